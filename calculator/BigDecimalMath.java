@@ -0,0 +1,652 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+
+/**
+ * BigDecimal 缺少的数学函数集中在这里，所有方法都是静态方法。
+ * 长时间的迭代会在每一步检查线程中断（协作式取消）并回调进度。
+ * 阶乘、组合数与整数次幂在 BigInteger 上精确计算（见 {@link BigIntegerMath}），最后只舍入一次。
+ * 超越函数（sin/cos/tan/ln/log10/exp/x^y）先做参数约化再求级数，内部多算 {@link #FUNCTION_GUARD_DIGITS} 位，
+ * 结果按给定精度舍入；它们用到的 π、ln 2、ln 10 每个精度只计算一次并缓存（见 {@link ConstantCache}）。
+ */
+final class BigDecimalMath {
+
+    // double 初值大约有 16~17 位可信数字，精度翻倍从这里起步。
+    private static final int SEED_DIGITS = 16;
+    // 每个翻倍步骤额外保留的保护位，抵消中间舍入误差。
+    private static final int GUARD_DIGITS = 2;
+    // 目标精度上的最终修正最多执行的次数；正常情况下一到两次即收敛。
+    private static final int MAX_POLISH_STEPS = 3;
+    // 低于该精度时翻倍调度的额外开销超过收益，直接在目标精度上迭代。
+    private static final int DOUBLING_THRESHOLD = 128;
+    private static final MathContext SEED_CONTEXT = new MathContext(SEED_DIGITS + 1, RoundingMode.HALF_EVEN);
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+
+    // 超越函数内部的保护位数：覆盖约化与级数求和中的累计舍入误差。
+    private static final int FUNCTION_GUARD_DIGITS = 10;
+    // exp 的参数上限：再大时 2^k 的指数超出 BigDecimal.pow 的范围（结果也早已无法显示）；更小的负数直接下溢为 0。
+    private static final BigDecimal MAX_EXP_ARGUMENT = BigDecimal.valueOf(500_000_000L);
+    // pow 用低精度估算的 y·ln|x| 超过该值时直接判定溢出/下溢：取 exp 上限的两倍，足以覆盖估算误差，
+    // 并且在加宽精度计算 ln 之前就返回（否则 846 ^ 1e50000 要先算五万位的 ln 才被 exp 拒绝）。
+    private static final BigDecimal MAX_POW_ESTIMATE = MAX_EXP_ARGUMENT.multiply(BigDecimal.valueOf(2));
+    // 三角函数参数整数部分的位数上限：约化需要同样多位的 π，更大的参数没有意义。
+    private static final int MAX_TRIG_INTEGER_DIGITS = CalculatorModel.MAX_PRECISION;
+    // ln 约化时开平方直到 |f - 1| 不超过该值；再往下开方收益不抵代价，而且会放大 f - 1 的相对误差。
+    private static final BigDecimal LOG_SQRT_TARGET = new BigDecimal("0.001");
+    private static final double LOG2_10 = Math.log(10) / Math.log(2);
+    // 整数次幂的精确结果不超过这么多位时在 BigInteger 上精确计算、最后只舍入一次；更长的结果按加宽的精度逐步舍入。
+    private static final long MAX_EXACT_POWER_DIGITS = 100_000;
+    // n! 与 C(n, k) 中 k 的上限：100000! 约 45.6 万位，再大时精确连乘要数秒，结果也早已只能以科学计数法显示。
+    static final int MAX_FACTORIAL_ARGUMENT = 100_000;
+    private static final BigInteger CHUDNOVSKY_C3_OVER_24 = BigInteger.valueOf(10_939_058_860_032_000L);
+
+    private static final ConstantCache PI = new ConstantCache(BigDecimalMath::computePi);
+    private static final ConstantCache LN2 = new ConstantCache(digits -> computeLogConstant(digits, false));
+    private static final ConstantCache LN10 = new ConstantCache(digits -> computeLogConstant(digits, true));
+
+    private BigDecimalMath() {
+    }
+
+    /**
+     * 精度翻倍的牛顿法平方根：
+     * 1. 先把指数拆成偶数部分，用 Math.sqrt 求尾数的 double 近似作为初值（避免超大/超小值溢出）；
+     * 2. 每一步只在“当前可信位数的两倍”精度下迭代，前面的步骤都很便宜，
+     *    一直做到目标精度的一半左右；
+     * 3. 最后在目标精度上做有限次修正，直到两次结果相同（通常一次翻倍加一次确认）。
+     * 低精度（小于 DOUBLING_THRESHOLD）时跳过第 2 步，修正步数相应放宽。
+     * 总迭代次数不超过 log2(精度 / 15) + 1 + MAX_POLISH_STEPS，不会出现末位来回振荡导致的死循环。
+     *
+     * @param value    非负数
+     * @param listener 可为 null 的进度监听器
+     */
+    static BigDecimal sqrt(BigDecimal value, MathContext mc, CalculatorModel.ProgressListener listener) {
+        if (value.signum() < 0) {
+            throw new ArithmeticException("Invalid input");
+        }
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        // 最后一次翻倍由目标精度上的修正步骤完成，这里只规划到一半。
+        int targetDigits = (mc.getPrecision() + GUARD_DIGITS) / 2 + 1;
+        int[] schedule = precisionSchedule(targetDigits);
+        int polishSteps = MAX_POLISH_STEPS;
+        if (mc.getPrecision() < DOUBLING_THRESHOLD) {
+            polishSteps += schedule.length;
+            schedule = new int[0];
+        }
+        int totalSteps = schedule.length + polishSteps;
+
+        BigDecimal guess = seed(value);
+        for (int i = 0; i < schedule.length; i++) {
+            checkCancelled();
+            MathContext working = new MathContext(schedule[i], RoundingMode.HALF_EVEN);
+            // 被开方数也先截到当前精度，避免低精度步骤里做全长除法。
+            BigDecimal operand = value.round(working);
+            guess = guess.add(operand.divide(guess, working), working).divide(TWO, working);
+            reportProgress(listener, (i + 1) / (double) totalSteps);
+        }
+
+        // 在目标精度上收尾：与旧算法使用同一个不动点条件，但步数有上限。
+        guess = guess.round(mc);
+        for (int i = 0; i < polishSteps; i++) {
+            checkCancelled();
+            BigDecimal next = guess.add(value.divide(guess, mc)).divide(TWO, mc);
+            if (next.equals(guess)) {
+                break;
+            }
+            guess = next;
+            reportProgress(listener, (schedule.length + i + 1) / (double) totalSteps);
+        }
+        reportProgress(listener, 1.0);
+        return guess;
+    }
+
+    /**
+     * 从目标精度不断减半，直到落入 double 初值的可信范围，再反转成递增序列。
+     * 例如目标 502 位 → [17, 33, 64, 127, 252, 502]。
+     */
+    private static int[] precisionSchedule(int targetDigits) {
+        int steps = 0;
+        for (int p = targetDigits; p > SEED_DIGITS; p = p / 2 + 1) {
+            steps++;
+        }
+        int[] schedule = new int[Math.max(1, steps)];
+        int p = targetDigits;
+        for (int i = schedule.length - 1; i >= 0; i--) {
+            schedule[i] = p;
+            p = p / 2 + 1;
+        }
+        return schedule;
+    }
+
+    /**
+     * value = m × 10^(2k)，其中 m 落在 double 可表示的范围内；初值为 sqrt(m) × 10^k。
+     */
+    private static BigDecimal seed(BigDecimal value) {
+        long exponent = (long) value.precision() - value.scale() - 1;
+        long half = Math.floorDiv(exponent, 2);
+        BigDecimal mantissa = value.round(SEED_CONTEXT).movePointLeft((int) (half * 2));
+        return new BigDecimal(Math.sqrt(mantissa.doubleValue()), SEED_CONTEXT).movePointRight((int) half);
+    }
+
+    /**
+     * 圆周率，按精度缓存。
+     */
+    static BigDecimal pi(MathContext mc) {
+        return PI.get(mc);
+    }
+
+    static BigDecimal ln2(MathContext mc) {
+        return LN2.get(mc);
+    }
+
+    static BigDecimal ln10(MathContext mc) {
+        return LN10.get(mc);
+    }
+
+    /**
+     * e^x：x = k·ln2 + r（|r| ≤ ln2/2），再把 r 缩小 2^s 倍求泰勒级数，平方 s 次后乘以 2^k。
+     * s 约为精度的平方根，使级数项数与平方次数大致平衡；级数在二进制定点数上求和（见 {@link #toFixed}）。
+     *
+     * @throws ArithmeticException x 过大，结果超出可表示范围（"Overflow"）
+     */
+    static BigDecimal exp(BigDecimal x, MathContext mc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (x.compareTo(MAX_EXP_ARGUMENT) > 0) {
+            throw new ArithmeticException("Overflow");
+        }
+        if (x.compareTo(MAX_EXP_ARGUMENT.negate()) < 0) {
+            return BigDecimal.ZERO;
+        }
+        int precision = mc.getPrecision();
+        int halvings = (int) Math.sqrt(precision) / 2 + 2;
+        int integerDigits = integerDigits(x);
+        MathContext working = new MathContext(precision + FUNCTION_GUARD_DIGITS + halvings / 3 + 1,
+                RoundingMode.HALF_EVEN);
+
+        BigDecimal ln2 = ln2(new MathContext(working.getPrecision() + integerDigits, RoundingMode.HALF_EVEN));
+        long k = x.divide(ln2, new MathContext(integerDigits + 3, RoundingMode.HALF_EVEN))
+                .setScale(0, RoundingMode.HALF_EVEN).longValueExact();
+        BigDecimal r = x.subtract(ln2.multiply(BigDecimal.valueOf(k)), working);
+
+        // 每次平方把相对误差放大一倍，多留 halvings 个二进制位。
+        int bits = fixedBits(working) + halvings;
+        BigInteger y = toFixed(r, bits).shiftRight(halvings);
+        BigInteger term = BigInteger.ONE.shiftLeft(bits);
+        BigInteger fixedSum = term;
+        for (int i = 1; term.signum() != 0; i++) {
+            checkCancelled();
+            term = term.multiply(y).shiftRight(bits).divide(BigInteger.valueOf(i));
+            fixedSum = fixedSum.add(term);
+        }
+        for (int i = 0; i < halvings; i++) {
+            fixedSum = fixedSum.multiply(fixedSum).shiftRight(bits);
+        }
+        BigDecimal sum = fromFixed(fixedSum, bits, working);
+        if (k != 0) {
+            sum = sum.multiply(TWO.pow((int) k, working), working);
+        }
+        return sum.round(mc);
+    }
+
+    /**
+     * 自然对数：x = f × 2^j × 10^e，使 f 落在 1 附近；x 本身就在 [0.75, 1.5) 时不拆分，避免抵消。
+     * 再对 f 开平方 s 次直到 |f - 1| 足够小，最后用 ln f = 2·atanh((f-1)/(f+1)) 的级数求和。
+     *
+     * @throws ArithmeticException x ≤ 0（"Invalid input"）
+     */
+    static BigDecimal ln(BigDecimal x, MathContext mc) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("Invalid input");
+        }
+        if (x.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ZERO;
+        }
+        int precision = mc.getPrecision();
+        int maxSqrts = precision <= 32 ? 0 : (int) Math.sqrt(precision) / 2;
+        long e = 0;
+        int j = 0;
+        BigDecimal f = x;
+        if (x.compareTo(new BigDecimal("0.75")) < 0 || x.compareTo(new BigDecimal("1.5")) >= 0) {
+            e = (long) x.precision() - x.scale() - 1;
+            f = x.movePointLeft((int) e);
+            // f ∈ [1, 10)：除以 2^j 落到 [0.75, 1.5)，除以 2 的幂总能精确表示。
+            j = (int) Math.round(Math.log(f.doubleValue()) / Math.log(2));
+            f = f.divide(BigDecimal.valueOf(1L << j));
+        }
+        int magnitudeDigits = Long.toString(Math.abs(e)).length();
+        MathContext working = new MathContext(precision + FUNCTION_GUARD_DIGITS + magnitudeDigits + 4,
+                RoundingMode.HALF_EVEN);
+
+        int sqrts = 0;
+        while (sqrts < maxSqrts && f.subtract(BigDecimal.ONE).abs().compareTo(LOG_SQRT_TARGET) > 0) {
+            f = sqrt(f, working, null);
+            sqrts++;
+        }
+        BigDecimal z = f.subtract(BigDecimal.ONE).divide(f.add(BigDecimal.ONE), working);
+        int bits = fixedBits(working) + leadingZeroBits(z);
+        // 在 |z| 上求和再补符号：负数右移向负无穷取整，幂次会停在 -1 而不是归零。
+        BigInteger fixedZ = toFixed(z.abs(), bits);
+        BigInteger z2 = fixedZ.multiply(fixedZ).shiftRight(bits);
+        BigInteger power = fixedZ;
+        BigInteger sum = fixedZ;
+        for (int k = 1; power.signum() != 0; k++) {
+            checkCancelled();
+            power = power.multiply(z2).shiftRight(bits);
+            sum = sum.add(power.divide(BigInteger.valueOf(2L * k + 1)));
+        }
+        if (z.signum() < 0) {
+            sum = sum.negate();
+        }
+        BigDecimal result = fromFixed(sum.shiftLeft(sqrts + 1), bits, working);
+        if (j != 0) {
+            result = result.add(ln2(working).multiply(BigDecimal.valueOf(j)), working);
+        }
+        if (e != 0) {
+            result = result.add(ln10(working).multiply(BigDecimal.valueOf(e)), working);
+        }
+        return result.round(mc);
+    }
+
+    /**
+     * 常用对数；10 的整数次幂直接返回精确的指数。
+     */
+    static BigDecimal log10(BigDecimal x, MathContext mc) {
+        if (x.signum() > 0) {
+            BigDecimal stripped = x.stripTrailingZeros();
+            if (stripped.unscaledValue().equals(BigInteger.ONE)) {
+                return BigDecimal.valueOf(-(long) stripped.scale());
+            }
+        }
+        MathContext working = new MathContext(mc.getPrecision() + FUNCTION_GUARD_DIGITS, RoundingMode.HALF_EVEN);
+        return ln(x, working).divide(ln10(working), mc);
+    }
+
+    static BigDecimal sin(BigDecimal x, MathContext mc) {
+        return trigonometric(x, mc, 0);
+    }
+
+    static BigDecimal cos(BigDecimal x, MathContext mc) {
+        return trigonometric(x, mc, 1);
+    }
+
+    /**
+     * @throws ArithmeticException 参数过大
+     */
+    static BigDecimal tan(BigDecimal x, MathContext mc) {
+        return trigonometric(x, mc, 2);
+    }
+
+    /**
+     * x^y：
+     * - y 是整数且精确结果不超过 {@link #MAX_EXACT_POWER_DIGITS} 位时，对去掉末尾 0 的尾数做 BigInteger 平方-乘
+     *   （见 {@link BigIntegerMath#pow}），最后只舍入（负指数时只做一次除法）；
+     * - y 是更大的整数时用 BigDecimal 的二进制幂在加宽的精度上计算（负底数、负指数都可以）；
+     * - 否则 x^y = exp(y·ln x)，ln x 的精度按 y·ln x 的整数位数加宽，抵消 exp 对绝对误差的放大。
+     *
+     * @throws ArithmeticException 0 的负数次幂（"Cannot divide by zero"）、负数的非整数次幂（"Invalid input"）、溢出
+     */
+    static BigDecimal pow(BigDecimal x, BigDecimal y, MathContext mc) {
+        if (y.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (x.signum() == 0) {
+            if (y.signum() < 0) {
+                throw new ArithmeticException("Cannot divide by zero");
+            }
+            return BigDecimal.ZERO;
+        }
+        boolean integral = y.stripTrailingZeros().scale() <= 0;
+        if (integral && y.abs().compareTo(BigDecimal.valueOf(999_999_999)) <= 0) {
+            int n = y.intValueExact();
+            BigDecimal base = x.stripTrailingZeros();
+            long exponent = Math.abs((long) n);
+            long scale = base.scale() * exponent;
+            if (base.precision() * exponent <= MAX_EXACT_POWER_DIGITS && scale == (int) scale) {
+                BigDecimal power = new BigDecimal(BigIntegerMath.pow(base.unscaledValue(), (int) exponent), (int) scale);
+                return n > 0 ? power.round(mc) : BigDecimal.ONE.divide(power, mc);
+            }
+            MathContext working = new MathContext(mc.getPrecision() + Integer.toString(Math.abs(n)).length()
+                    + FUNCTION_GUARD_DIGITS, RoundingMode.HALF_EVEN);
+            return x.pow(n, working).round(mc);
+        }
+        if (x.signum() < 0 && !integral) {
+            throw new ArithmeticException("Invalid input");
+        }
+        BigDecimal magnitude = x.abs();
+        BigDecimal estimate = y.multiply(ln(magnitude, SEED_CONTEXT), SEED_CONTEXT);
+        if (estimate.abs().compareTo(MAX_POW_ESTIMATE) > 0) {
+            if (estimate.signum() > 0) {
+                throw new ArithmeticException("Overflow");
+            }
+            return BigDecimal.ZERO;
+        }
+        MathContext working = new MathContext(mc.getPrecision() + FUNCTION_GUARD_DIGITS + integerDigits(estimate),
+                RoundingMode.HALF_EVEN);
+        BigDecimal result = exp(y.multiply(ln(magnitude, working), working), mc);
+        // 负底数的超大整数次幂：符号由指数的奇偶决定。
+        if (x.signum() < 0 && y.toBigInteger().testBit(0)) {
+            result = result.negate();
+        }
+        return result;
+    }
+
+    /**
+     * n!，n 为不超过 {@link #MAX_FACTORIAL_ARGUMENT} 的非负整数；精确计算后只舍入一次。
+     *
+     * @throws ArithmeticException 负数或非整数（"Invalid input"）、n 过大（"Overflow"）
+     */
+    static BigDecimal factorial(BigDecimal x, MathContext mc) {
+        int n = nonNegativeInteger(x);
+        if (n > MAX_FACTORIAL_ARGUMENT) {
+            throw new ArithmeticException("Overflow");
+        }
+        return new BigDecimal(BigIntegerMath.factorial(n)).round(mc);
+    }
+
+    /**
+     * 组合数 C(n, r)，n、r 为非负整数且 r ≤ n；min(r, n-r) 不超过 {@link #MAX_FACTORIAL_ARGUMENT}。
+     *
+     * @throws ArithmeticException 参数不是非负整数或 r > n（"Invalid input"）、结果过大（"Overflow"）
+     */
+    static BigDecimal binomial(BigDecimal n, BigDecimal r, MathContext mc) {
+        BigInteger total = nonNegativeBigInteger(n);
+        BigInteger chosen = nonNegativeBigInteger(r);
+        if (chosen.compareTo(total) > 0) {
+            throw new ArithmeticException("Invalid input");
+        }
+        BigInteger k = chosen.min(total.subtract(chosen));
+        if (k.compareTo(BigInteger.valueOf(MAX_FACTORIAL_ARGUMENT)) > 0) {
+            throw new ArithmeticException("Overflow");
+        }
+        return new BigDecimal(BigIntegerMath.binomial(total, k.intValue())).round(mc);
+    }
+
+    private static int nonNegativeInteger(BigDecimal x) {
+        BigInteger value = nonNegativeBigInteger(x);
+        return value.bitLength() < 31 ? value.intValue() : Integer.MAX_VALUE;
+    }
+
+    /**
+     * 非负整数参数；整数部分比最高精度还长的数（如 1E+999999999）不展开成 BigInteger，直接视为溢出。
+     */
+    private static BigInteger nonNegativeBigInteger(BigDecimal x) {
+        if (x.signum() < 0) {
+            throw new ArithmeticException("Invalid input");
+        }
+        if (integerDigits(x) > CalculatorModel.MAX_PRECISION) {
+            throw new ArithmeticException("Overflow");
+        }
+        try {
+            return x.toBigIntegerExact();
+        } catch (ArithmeticException ex) {
+            throw new ArithmeticException("Invalid input");
+        }
+    }
+
+    /**
+     * 三角函数的公共部分：x = k·(π/2) + r，|r| ≤ π/4，按 k mod 4 选择 ±sin r 或 ±cos r。
+     * r 很小（x 贴近 π/2 的整数倍）时 r 的前导零位会损失精度，此时加宽精度重新约化一次。
+     * function：0 = sin，1 = cos，2 = tan。
+     */
+    private static BigDecimal trigonometric(BigDecimal x, MathContext mc, int function) {
+        if (x.signum() == 0) {
+            return function == 1 ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        int integerDigits = integerDigits(x);
+        if (integerDigits > MAX_TRIG_INTEGER_DIGITS) {
+            throw new ArithmeticException("Invalid input");
+        }
+        int extra = 0;
+        while (true) {
+            MathContext working = new MathContext(mc.getPrecision() + FUNCTION_GUARD_DIGITS + extra,
+                    RoundingMode.HALF_EVEN);
+            BigDecimal halfPi = pi(new MathContext(working.getPrecision() + integerDigits, RoundingMode.HALF_EVEN))
+                    .divide(TWO);
+            BigInteger k = x.divide(halfPi, new MathContext(integerDigits + 3, RoundingMode.HALF_EVEN))
+                    .setScale(0, RoundingMode.HALF_EVEN).toBigIntegerExact();
+            BigDecimal r = x.subtract(halfPi.multiply(new BigDecimal(k)), working);
+            // r 的前导零位数：|r| = 0.000ddd… 时小数点后有几个 0。
+            int leadingZeros = r.signum() == 0 ? 0 : Math.max(0, r.scale() - r.precision());
+            if (extra == 0 && leadingZeros > 0 && k.signum() != 0) {
+                extra = leadingZeros;
+                continue;
+            }
+            int quadrant = k.intValue() & 3;
+            // 高精度时先把 r 缩小 3^s（sin）或 2^s（cos）倍，级数项数随之大减，再用倍角公式还原。
+            int reductions = mc.getPrecision() <= 40 ? 0 : (int) Math.sqrt(mc.getPrecision()) / 2;
+            int bits = fixedBits(working) + leadingZeroBits(r) + 2 * reductions;
+            BigInteger fixedR = toFixed(r, bits);
+            BigInteger value;
+            switch (function) {
+                case 0:
+                    // sin(r + kπ/2)：sin r, cos r, -sin r, -cos r
+                    value = quadrant % 2 == 0 ? sinFixed(fixedR, bits, reductions) : cosFixed(fixedR, bits, reductions);
+                    if (quadrant >= 2) {
+                        value = value.negate();
+                    }
+                    break;
+                case 1:
+                    // cos(r + kπ/2)：cos r, -sin r, -cos r, sin r
+                    value = quadrant % 2 == 0 ? cosFixed(fixedR, bits, reductions) : sinFixed(fixedR, bits, reductions);
+                    if (quadrant == 1 || quadrant == 2) {
+                        value = value.negate();
+                    }
+                    break;
+                default:
+                    // tan 的周期是 π：偶象限 sin r / cos r，奇象限 -cos r / sin r；定点数的比值无需换算。
+                    BigDecimal sin = new BigDecimal(sinFixed(fixedR, bits, reductions));
+                    BigDecimal cos = new BigDecimal(cosFixed(fixedR, bits, reductions));
+                    return (quadrant % 2 == 0 ? sin.divide(cos, mc) : cos.negate().divide(sin, mc));
+            }
+            return fromFixed(value, bits, mc);
+        }
+    }
+
+    /**
+     * 定点 sin：先除以 3^s，求泰勒级数后用 sin 3a = 3 sin a − 4 sin³a 还原 s 次。
+     */
+    private static BigInteger sinFixed(BigInteger r, int bits, int triplings) {
+        BigInteger a = triplings == 0 ? r : r.divide(BigInteger.valueOf(3).pow(triplings));
+        BigInteger a2 = a.multiply(a).shiftRight(bits);
+        BigInteger term = a;
+        BigInteger sum = a;
+        for (long i = 1; term.signum() != 0; i++) {
+            checkCancelled();
+            term = term.multiply(a2).shiftRight(bits).divide(BigInteger.valueOf((2 * i) * (2 * i + 1))).negate();
+            sum = sum.add(term);
+        }
+        for (int i = 0; i < triplings; i++) {
+            BigInteger cube = sum.multiply(sum).shiftRight(bits).multiply(sum).shiftRight(bits);
+            sum = sum.multiply(BigInteger.valueOf(3)).subtract(cube.shiftLeft(2));
+        }
+        return sum;
+    }
+
+    /**
+     * 定点 cos：先除以 2^s，求泰勒级数后用 cos 2a = 2cos²a − 1 还原 s 次。
+     */
+    private static BigInteger cosFixed(BigInteger r, int bits, int halvings) {
+        BigInteger a = r.shiftRight(halvings);
+        BigInteger a2 = a.multiply(a).shiftRight(bits);
+        BigInteger one = BigInteger.ONE.shiftLeft(bits);
+        BigInteger term = one;
+        BigInteger sum = one;
+        for (long i = 1; term.signum() != 0; i++) {
+            checkCancelled();
+            term = term.multiply(a2).shiftRight(bits).divide(BigInteger.valueOf((2 * i - 1) * (2 * i))).negate();
+            sum = sum.add(term);
+        }
+        for (int i = 0; i < halvings; i++) {
+            sum = sum.multiply(sum).shiftRight(bits - 1).subtract(one);
+        }
+        return sum;
+    }
+
+    /**
+     * 级数在二进制定点数（value × 2^bits 的 BigInteger）上求和：每项只有一次整数乘法、移位和除以小整数，
+     * 避免 BigDecimal 带 MathContext 的乘除在每一步都做十进制舍入（高精度时那是长除法）。
+     * bits 对应 working 精度再加 32 个保护位。
+     */
+    private static int fixedBits(MathContext working) {
+        return (int) Math.ceil(working.getPrecision() * LOG2_10) + 32;
+    }
+
+    /**
+     * |value| < 1 时小数点后前导零对应的二进制位数：定点数是绝对精度，小参数需要额外的位来保住相对精度。
+     */
+    private static int leadingZeroBits(BigDecimal value) {
+        if (value.signum() == 0) {
+            return 0;
+        }
+        return (int) Math.ceil(Math.max(0, value.scale() - value.precision()) * LOG2_10);
+    }
+
+    private static BigInteger toFixed(BigDecimal value, int bits) {
+        return value.multiply(new BigDecimal(BigInteger.ONE.shiftLeft(bits)))
+                .setScale(0, RoundingMode.HALF_EVEN).unscaledValue();
+    }
+
+    private static BigDecimal fromFixed(BigInteger value, int bits, MathContext mc) {
+        return new BigDecimal(value).divide(new BigDecimal(BigInteger.ONE.shiftLeft(bits)), mc);
+    }
+
+    /**
+     * 整数部分的位数（|x| < 1 时为 0）。
+     */
+    private static int integerDigits(BigDecimal x) {
+        return Math.max(0, x.precision() - x.scale());
+    }
+
+    /**
+     * Chudnovsky 级数的二分求积（binary splitting）：每项约 14 位，全部用 BigInteger 精确累积，
+     * 最后只做一次除法和一次开方。
+     */
+    private static BigDecimal computePi(int digits) {
+        MathContext working = new MathContext(digits, RoundingMode.HALF_EVEN);
+        int terms = digits / 14 + 2;
+        BigInteger[] pqt = chudnovsky(0, terms);
+        BigDecimal numerator = new BigDecimal(pqt[1].multiply(BigInteger.valueOf(426_880)))
+                .multiply(sqrt(BigDecimal.valueOf(10_005), working, null), working);
+        return numerator.divide(new BigDecimal(pqt[2]), working);
+    }
+
+    /**
+     * 返回区间 [a, b) 的 {P, Q, T}。
+     */
+    private static BigInteger[] chudnovsky(int a, int b) {
+        checkCancelled();
+        if (b - a == 1) {
+            if (a == 0) {
+                return new BigInteger[] {BigInteger.ONE, BigInteger.ONE, BigInteger.valueOf(13_591_409)};
+            }
+            BigInteger p = BigInteger.valueOf((6L * a - 5) * (2L * a - 1) * (6L * a - 1));
+            BigInteger q = BigInteger.valueOf(a).pow(3).multiply(CHUDNOVSKY_C3_OVER_24);
+            BigInteger t = p.multiply(BigInteger.valueOf(13_591_409L + 545_140_134L * a));
+            return new BigInteger[] {p, q, (a & 1) == 0 ? t : t.negate()};
+        }
+        int m = (a + b) >>> 1;
+        BigInteger[] left = chudnovsky(a, m);
+        BigInteger[] right = chudnovsky(m, b);
+        return new BigInteger[] {
+                left[0].multiply(right[0]),
+                left[1].multiply(right[1]),
+                left[2].multiply(right[1]).add(left[0].multiply(right[2]))
+        };
+    }
+
+    /**
+     * ln 2 = 18·atanh(1/26) − 2·atanh(1/4801) + 8·atanh(1/8749)；
+     * ln 10 = 3·ln 2 + 2·atanh(1/9)（即 ln 1.25）。全部在定点 BigInteger 上求和。
+     */
+    private static BigDecimal computeLogConstant(int digits, boolean ten) {
+        int scale = digits + FUNCTION_GUARD_DIGITS;
+        BigInteger ln2 = inverseAtanh(26, scale).multiply(BigInteger.valueOf(18))
+                .subtract(inverseAtanh(4801, scale).shiftLeft(1))
+                .add(inverseAtanh(8749, scale).shiftLeft(3));
+        BigInteger value = ten ? ln2.multiply(BigInteger.valueOf(3)).add(inverseAtanh(9, scale).shiftLeft(1)) : ln2;
+        return new BigDecimal(value, scale).round(new MathContext(digits, RoundingMode.HALF_EVEN));
+    }
+
+    /**
+     * atanh(1/x) × 10^scale = Σ 1/((2k+1)·x^(2k+1))，每项只需两次 BigInteger 除以小整数。
+     */
+    private static BigInteger inverseAtanh(int x, int scale) {
+        BigInteger power = BigInteger.TEN.pow(scale).divide(BigInteger.valueOf(x));
+        BigInteger xSquared = BigInteger.valueOf((long) x * x);
+        BigInteger sum = power;
+        for (long k = 1; power.signum() != 0; k++) {
+            if ((k & 63) == 0) {
+                checkCancelled();
+            }
+            power = power.divide(xSquared);
+            sum = sum.add(power.divide(BigInteger.valueOf(2 * k + 1)));
+        }
+        return sum;
+    }
+
+    /**
+     * 后台计算的协作式取消：线程被中断时抛出 CancellationException，
+     * 控制器会丢弃正在计算的模型副本。
+     */
+    static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Calculation cancelled");
+        }
+    }
+
+    private static void reportProgress(CalculatorModel.ProgressListener listener, double fraction) {
+        if (listener != null) {
+            listener.onProgress(Math.min(1.0, fraction));
+        }
+    }
+
+    /**
+     * 按精度缓存的数学常量：
+     * - 保存迄今算得最精确的一份值，更低的精度只需舍入，不再重新求级数；
+     * - 舍入后的结果按 MathContext 再缓存一次，热循环中反复请求同一精度时直接返回同一个对象。
+     * 需要更高精度时在锁内重新计算（同一常量不会被并发重复计算）。
+     */
+    private static final class ConstantCache {
+        // 不同精度的舍入结果最多保留这么多份，超出后整体清空（精度通常只有寥寥几种）。
+        private static final int MAX_ROUNDED_ENTRIES = 64;
+
+        private final IntFunction<BigDecimal> compute;
+        private final ConcurrentHashMap<MathContext, BigDecimal> rounded = new ConcurrentHashMap<>();
+        private BigDecimal master;
+        private int masterDigits;
+
+        ConstantCache(IntFunction<BigDecimal> compute) {
+            this.compute = compute;
+        }
+
+        BigDecimal get(MathContext mc) {
+            BigDecimal value = rounded.get(mc);
+            if (value != null) {
+                return value;
+            }
+            value = master(mc.getPrecision() + FUNCTION_GUARD_DIGITS).round(mc);
+            if (rounded.size() >= MAX_ROUNDED_ENTRIES) {
+                rounded.clear();
+            }
+            rounded.put(mc, value);
+            return value;
+        }
+
+        private synchronized BigDecimal master(int digits) {
+            if (masterDigits < digits) {
+                master = compute.apply(digits);
+                masterDigits = digits;
+            }
+            return master;
+        }
+    }
+}
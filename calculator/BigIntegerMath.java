@@ -0,0 +1,187 @@
+package calculator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.math.BigInteger;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 大整数的阶乘、组合数与整数次幂：
+ * - 连乘用二分（binary splitting）：把区间对半分开递归求积，两侧乘数大小相近，
+ *   大数乘法能用上 BigInteger 的 Karatsuba/Toom-Cook，而不是一个大数反复乘小整数；
+ * - 区间足够大时左右两半作为 fork-join 任务并行求积；
+ * - 单次大乘法在 Java 19+ 上用 {@code BigInteger.parallelMultiply}（反射取得，项目仍以 Java 8 为编译目标）。
+ * 并行任务在公共 fork-join 池里执行，线程中断只发生在调用线程上，所以任务检查的是调用线程的中断状态。
+ */
+final class BigIntegerMath {
+
+    // 区间长度不超过该值时顺序连乘：此时乘数只有几个机器字，并行的调度开销不划算。
+    private static final int SEQUENTIAL_RANGE = 256;
+    // 两个乘数都超过该位数时才用并行乘法。
+    private static final int PARALLEL_MULTIPLY_BITS = 1 << 17;
+    private static final MethodHandle PARALLEL_MULTIPLY = lookupParallelMultiply();
+
+    private BigIntegerMath() {
+    }
+
+    /**
+     * n!，n ≥ 0。
+     */
+    static BigInteger factorial(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative");
+        }
+        // n! = 2^e × (1..n 中各数去掉因子 2 后的积)：移位代替了所有乘 2，乘积也短了约 n 位。
+        int twos = n - Integer.bitCount(n);
+        return rangeProduct(BigInteger.ONE, n, true).shiftLeft(twos);
+    }
+
+    /**
+     * 组合数 C(n, k) = n(n-1)…(n-k+1) / k!，0 ≤ k ≤ n；按 min(k, n-k) 计算。
+     */
+    static BigInteger binomial(BigInteger n, int k) {
+        if (k < 0 || n.compareTo(BigInteger.valueOf(k)) < 0) {
+            throw new IllegalArgumentException("k must be between 0 and n");
+        }
+        BigInteger complement = n.subtract(BigInteger.valueOf(k));
+        if (complement.compareTo(BigInteger.valueOf(k)) < 0) {
+            k = complement.intValue();
+        }
+        if (k == 0) {
+            return BigInteger.ONE;
+        }
+        BigInteger numerator = rangeProduct(n.subtract(BigInteger.valueOf(k - 1)), k, false);
+        return numerator.divide(factorial(k));
+    }
+
+    /**
+     * base^n（n ≥ 0）：二进制平方-乘，大乘法走 {@link #multiply}。
+     */
+    static BigInteger pow(BigInteger base, int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Exponent must not be negative");
+        }
+        if (PARALLEL_MULTIPLY == null) {
+            // 没有并行乘法时 BigInteger.pow 本身就是平方-乘，并且平方用专门的算法。
+            return base.pow(n);
+        }
+        BigInteger result = BigInteger.ONE;
+        BigInteger square = base;
+        Thread caller = Thread.currentThread();
+        for (int bits = n; bits != 0; bits >>>= 1) {
+            checkCancelled(caller);
+            if ((bits & 1) != 0) {
+                result = multiply(result, square);
+            }
+            if (bits > 1) {
+                square = multiply(square, square);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 两个大数都很长时用并行乘法，否则普通乘法。
+     */
+    static BigInteger multiply(BigInteger a, BigInteger b) {
+        if (PARALLEL_MULTIPLY != null && a.bitLength() > PARALLEL_MULTIPLY_BITS
+                && b.bitLength() > PARALLEL_MULTIPLY_BITS) {
+            try {
+                return (BigInteger) PARALLEL_MULTIPLY.invokeExact(a, b);
+            } catch (RuntimeException | Error ex) {
+                throw ex;
+            } catch (Throwable ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
+        return a.multiply(b);
+    }
+
+    /**
+     * start、start+1、…、start+count-1 之积；oddParts 为 true 时每一项先去掉因子 2。
+     */
+    private static BigInteger rangeProduct(BigInteger start, int count, boolean oddParts) {
+        return new RangeProduct(start, 0, count, oddParts, Thread.currentThread()).invoke();
+    }
+
+    private static void checkCancelled(Thread caller) {
+        if (caller.isInterrupted()) {
+            throw new CancellationException("Calculation cancelled");
+        }
+    }
+
+    private static MethodHandle lookupParallelMultiply() {
+        try {
+            return MethodHandles.publicLookup().findVirtual(BigInteger.class, "parallelMultiply",
+                    MethodType.methodType(BigInteger.class, BigInteger.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * 区间 [from, to) 上 start+i 的积；区间较大时拆成两个子任务，一个 fork 出去，一个在当前线程计算。
+     */
+    private static final class RangeProduct extends RecursiveTask<BigInteger> {
+        private final BigInteger start;
+        private final int from;
+        private final int to;
+        private final boolean oddParts;
+        private final Thread caller;
+
+        RangeProduct(BigInteger start, int from, int to, boolean oddParts, Thread caller) {
+            this.start = start;
+            this.from = from;
+            this.to = to;
+            this.oddParts = oddParts;
+            this.caller = caller;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            checkCancelled(caller);
+            if (to - from <= SEQUENTIAL_RANGE) {
+                return sequential();
+            }
+            int middle = (from + to) >>> 1;
+            RangeProduct left = new RangeProduct(start, from, middle, oddParts, caller);
+            left.fork();
+            BigInteger right = new RangeProduct(start, middle, to, oddParts, caller).compute();
+            return multiply(left.join(), right);
+        }
+
+        /**
+         * 小区间：起点能放进 long 时两两相乘成 long（不溢出时）再乘进结果，减少大数乘小数的次数。
+         */
+        private BigInteger sequential() {
+            BigInteger product = BigInteger.ONE;
+            if (start.bitLength() < 62 && start.longValue() + to < (1L << 31)) {
+                long base = start.longValue();
+                long pending = 1;
+                for (int i = from; i < to; i++) {
+                    long term = base + i;
+                    if (oddParts) {
+                        term >>>= Long.numberOfTrailingZeros(term);
+                    }
+                    if (pending > Long.MAX_VALUE / term) {
+                        product = product.multiply(BigInteger.valueOf(pending));
+                        pending = term;
+                    } else {
+                        pending *= term;
+                    }
+                }
+                return product.multiply(BigInteger.valueOf(pending));
+            }
+            for (int i = from; i < to; i++) {
+                BigInteger term = start.add(BigInteger.valueOf(i));
+                if (oddParts) {
+                    term = term.shiftRight(term.getLowestSetBit());
+                }
+                product = product.multiply(term);
+            }
+            return product;
+        }
+    }
+}
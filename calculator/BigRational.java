@@ -0,0 +1,184 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+
+/**
+ * 不可变的精确分数 numerator / denominator（分母恒为正），供模型的精确模式使用。
+ * 约分是惰性的：运算结果默认不求 GCD，只有分子分母的总位数超过 {@link #NORMALIZE_BITS}
+ * 并且比上一次约分后的位数翻了一倍时才约分一次。既约分数（例如 1/3^n）会一直增长，
+ * 翻倍条件保证它不会在之后的每一步都重复求 GCD；长运算链中的大部分步骤因此只有几次 BigInteger 乘加。
+ * 只在显示时通过 {@link #toBigDecimal} 换算成小数，中间结果永不舍入。
+ */
+final class BigRational {
+
+    // 分子分母位数之和超过该值才约分；低于它时 GCD 的代价比多出来的位数更贵。
+    static final int NORMALIZE_BITS = 256;
+
+    static final BigRational ZERO = new BigRational(BigInteger.ZERO, BigInteger.ONE, 0);
+    private static final BigRational ONE_HUNDRED = new BigRational(BigInteger.valueOf(100), BigInteger.ONE, 0);
+
+    private final BigInteger numerator;
+    private final BigInteger denominator;
+    // 最近一次约分后分子分母的总位数，随运算传递给结果，用于判断是否又该约分。
+    private final int normalizedBits;
+
+    private BigRational(BigInteger numerator, BigInteger denominator, int normalizedBits) {
+        this.numerator = numerator;
+        this.denominator = denominator;
+        this.normalizedBits = normalizedBits;
+    }
+
+    /**
+     * 有限小数精确转换：unscaled × 10^-scale，分母是 10 的幂，不约分。
+     */
+    static BigRational valueOf(BigDecimal value) {
+        if (value.signum() == 0) {
+            return ZERO;
+        }
+        if (value.scale() <= 0) {
+            return new BigRational(value.toBigIntegerExact(), BigInteger.ONE, 0);
+        }
+        return new BigRational(value.unscaledValue(), BigInteger.TEN.pow(value.scale()), 0);
+    }
+
+    /**
+     * 按按钮上的运算符计算，运算符写法与 {@link CalculatorModel#computeBinaryOperation} 相同。
+     */
+    static BigRational compute(BigRational left, BigRational right, String operator) {
+        switch (operator) {
+            case "+":
+                return left.add(right);
+            case "-":
+                return left.add(right.negate());
+            case "\u00d7":
+            case "x":
+            case "X":
+            case "*":
+                return left.multiply(right);
+            case "\u00f7":
+            case "/":
+                return left.divide(right);
+            default:
+                throw new IllegalArgumentException("Unknown operator " + operator);
+        }
+    }
+
+    BigRational add(BigRational other) {
+        if (numerator.signum() == 0) {
+            return other;
+        }
+        if (other.numerator.signum() == 0) {
+            return this;
+        }
+        // 同分母（例如两个小数位数相同的输入）只需一次加法。
+        if (denominator.equals(other.denominator)) {
+            return create(numerator.add(other.numerator), denominator, other);
+        }
+        return create(numerator.multiply(other.denominator).add(other.numerator.multiply(denominator)),
+                denominator.multiply(other.denominator), other);
+    }
+
+    BigRational multiply(BigRational other) {
+        if (numerator.signum() == 0 || other.numerator.signum() == 0) {
+            return ZERO;
+        }
+        return create(numerator.multiply(other.numerator), denominator.multiply(other.denominator), other);
+    }
+
+    /**
+     * @throws ArithmeticException 除数为 0，消息与模型的错误显示一致
+     */
+    BigRational divide(BigRational other) {
+        return multiply(other.reciprocal());
+    }
+
+    /**
+     * @throws ArithmeticException 对 0 取倒数
+     */
+    BigRational reciprocal() {
+        if (numerator.signum() == 0) {
+            throw new ArithmeticException("Cannot divide by zero");
+        }
+        return numerator.signum() > 0
+                ? new BigRational(denominator, numerator, normalizedBits)
+                : new BigRational(denominator.negate(), numerator.negate(), normalizedBits);
+    }
+
+    BigRational negate() {
+        return numerator.signum() == 0 ? this : new BigRational(numerator.negate(), denominator, normalizedBits);
+    }
+
+    BigRational percent() {
+        return divide(ONE_HUNDRED);
+    }
+
+    int signum() {
+        return numerator.signum();
+    }
+
+    /**
+     * 分子与分母的总位数，用于估算占用的内存。
+     */
+    int bitLength() {
+        return numerator.bitLength() + denominator.bitLength();
+    }
+
+    /**
+     * 换算成小数，仅用于显示；能在给定精度内精确表示的值（如 1/3 × 3）得到精确结果。
+     */
+    BigDecimal toBigDecimal(MathContext mathContext) {
+        if (numerator.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        if (denominator.equals(BigInteger.ONE)) {
+            return new BigDecimal(numerator).round(mathContext);
+        }
+        return new BigDecimal(numerator).divide(new BigDecimal(denominator), mathContext);
+    }
+
+    /**
+     * this 与 other 运算得到的原始分子分母：总位数超过阈值且比两个操作数上次约分后的位数翻倍时约分，
+     * 否则原样保留。
+     */
+    private BigRational create(BigInteger numerator, BigInteger denominator, BigRational other) {
+        int bits = numerator.bitLength() + denominator.bitLength();
+        int previous = Math.max(normalizedBits, other.normalizedBits);
+        if (bits <= Math.max(NORMALIZE_BITS, 2 * previous)) {
+            return new BigRational(numerator, denominator, previous);
+        }
+        BigInteger gcd = numerator.gcd(denominator);
+        if (!gcd.equals(BigInteger.ONE)) {
+            numerator = numerator.divide(gcd);
+            denominator = denominator.divide(gcd);
+        }
+        return new BigRational(numerator, denominator, numerator.bitLength() + denominator.bitLength());
+    }
+
+    /**
+     * 数值相等即相等（1/2 与 2/4 相等），与是否约分无关。
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof BigRational)) {
+            return false;
+        }
+        BigRational other = (BigRational) obj;
+        return numerator.multiply(other.denominator).equals(other.numerator.multiply(denominator));
+    }
+
+    @Override
+    public int hashCode() {
+        BigInteger gcd = numerator.gcd(denominator);
+        return 31 * numerator.divide(gcd).hashCode() + denominator.divide(gcd).hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return numerator + "/" + denominator;
+    }
+}
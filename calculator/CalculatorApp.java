@@ -2,12 +2,18 @@ package calculator;
 
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
+import javax.management.JMException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * 应用入口类：
  * 1. 保证所有 GUI 初始化都发生在 Swing 事件派发线程（EDT）；
  * 2. 尝试套用操作系统的外观，让窗口更“原生”；
  * 3. 在 main 方法里装配 MVC 三层对象。
+ * 运行指标始终开启并注册到 JMX；-Dcalculator.metrics.dump=秒数 时还会定期把文本报告写到标准错误。
  */
 public class CalculatorApp {
 
@@ -26,6 +32,8 @@ public class CalculatorApp {
             // MVC 装配：模型负责计算和状态存储，视图负责布局与渲染，
             // 控制器监听用户操作并把事件转成模型调用。  
             CalculatorModel model = new CalculatorModel();
+            model.setHistoryTape(openHistoryTape());
+            model.setMetrics(openMetrics());
             CalculatorView view = new CalculatorView();
             new CalculatorController(model, view);
 
@@ -33,4 +41,44 @@ public class CalculatorApp {
             view.setVisible(true);
         });
     }
+
+    /**
+     * 创建运行指标：注册到 JMX，按需开启定期文本输出。
+     * JMX 不可用时指标照常记录，只是无法远程查看。
+     */
+    private static CalculatorMetrics openMetrics() {
+        CalculatorMetrics metrics = new CalculatorMetrics();
+        try {
+            metrics.registerMBean();
+        } catch (JMException | SecurityException ignored) {
+            // 继续使用未注册的实例。
+        }
+        long dumpSeconds = Long.getLong("calculator.metrics.dump", 0);
+        if (dumpSeconds > 0) {
+            metrics.startPeriodicDump(dumpSeconds, System.err);
+        }
+        return metrics;
+    }
+
+    /**
+     * 打开用户目录下的历史纸带（~/.calculator/history.tape），退出时刷盘关闭。
+     * 目录不可写、纸带已被另一个正在运行的计算器占用等情况下返回 null，计算器照常运行，只是不记录历史。
+     */
+    private static HistoryTape openHistoryTape() {
+        Path file = Paths.get(System.getProperty("user.home"), ".calculator", "history.tape");
+        try {
+            Files.createDirectories(file.getParent());
+            HistoryTape tape = HistoryTape.open(file);
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    tape.close();
+                } catch (IOException ignored) {
+                    // 进程即将退出，映射内存仍会由操作系统写回。
+                }
+            }, "history-tape-close"));
+            return tape;
+        } catch (IOException ex) {
+            return null;
+        }
+    }
 }
@@ -0,0 +1,201 @@
+package calculator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * 无界面的批量回放引擎：
+ * 1. 输入是一串“按键脚本”（每个脚本是一组与按钮标签一致的命令）；
+ * 2. 脚本按块提交到 fork-join 线程池，每个工作线程复用自己的 {@link CalculatorModel}；
+ * 3. 结果按输入顺序流式回调给调用方，同时限制在途块数量，保证内存占用与输入规模无关。
+ * 整个过程不创建任何 Swing 组件，也不会触碰 EDT。
+ */
+public class CalculatorBatchEngine implements AutoCloseable {
+
+    private static final int DEFAULT_CHUNK_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+    private final boolean ownsPool;
+    private final int chunkSize;
+    private final int maxChunksInFlight;
+    // 每个工作线程一个模型实例：脚本之间通过 reset 复位，避免反复分配。
+    private final ThreadLocal<CalculatorModel> workerModel = ThreadLocal.withInitial(CalculatorModel::new);
+
+    /**
+     * 使用与 CPU 核数相同的并行度。
+     */
+    public CalculatorBatchEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    public CalculatorBatchEngine(int parallelism) {
+        this(new ForkJoinPool(parallelism), true, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 复用调用方提供的线程池；引擎关闭时不会关闭该线程池。
+     */
+    public CalculatorBatchEngine(ForkJoinPool pool, int chunkSize) {
+        this(pool, false, chunkSize);
+    }
+
+    private CalculatorBatchEngine(ForkJoinPool pool, boolean ownsPool, int chunkSize) {
+        if (pool == null) {
+            throw new IllegalArgumentException("Pool cannot be null");
+        }
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive");
+        }
+        this.pool = pool;
+        this.ownsPool = ownsPool;
+        this.chunkSize = chunkSize;
+        // 在途块数量为并行度的两倍：既能喂饱所有核心，又不会无限缓存结果。
+        this.maxChunksInFlight = Math.max(2, pool.getParallelism() * 2);
+    }
+
+    /**
+     * 在调用线程上执行单个脚本，使用该线程自己的模型实例。
+     */
+    public ScriptResult evaluate(List<String> script) {
+        return run(0, script);
+    }
+
+    /**
+     * 批量执行文本脚本（格式见 {@link CalculatorCommands#parseScript(String)}），
+     * 结果按输入顺序交给 sink。解析工作也在工作线程上完成。
+     */
+    public void evaluateLines(Stream<String> lines, Consumer<? super ScriptResult> sink) {
+        evaluateInternal(lines.iterator(), true, sink);
+    }
+
+    /**
+     * 批量执行命令脚本，结果按输入顺序交给 sink。
+     * sink 始终在调用线程上被回调，因此不需要线程安全。
+     */
+    public void evaluate(Stream<? extends List<String>> scripts, Consumer<? super ScriptResult> sink) {
+        evaluateInternal(scripts.iterator(), false, sink);
+    }
+
+    private void evaluateInternal(Iterator<?> source, boolean parseLines,
+                                  Consumer<? super ScriptResult> sink) {
+        ArrayDeque<ForkJoinTask<ScriptResult[]>> inFlight = new ArrayDeque<>();
+        long nextIndex = 0;
+        while (source.hasNext()) {
+            List<Object> chunk = new ArrayList<>(chunkSize);
+            while (chunk.size() < chunkSize && source.hasNext()) {
+                chunk.add(source.next());
+            }
+            if (inFlight.size() >= maxChunksInFlight) {
+                // 背压：先把最早的块交付给 sink，再继续读取输入。
+                deliver(inFlight.poll(), sink);
+            }
+            final long firstIndex = nextIndex;
+            inFlight.add(pool.submit(() -> runChunk(firstIndex, chunk, parseLines)));
+            nextIndex += chunk.size();
+        }
+        while (!inFlight.isEmpty()) {
+            deliver(inFlight.poll(), sink);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ScriptResult[] runChunk(long firstIndex, List<Object> chunk, boolean parseLines) {
+        ScriptResult[] results = new ScriptResult[chunk.size()];
+        for (int i = 0; i < results.length; i++) {
+            Object item = chunk.get(i);
+            List<String> script = parseLines
+                    ? CalculatorCommands.parseScript((String) item)
+                    : (List<String>) item;
+            results[i] = run(firstIndex + i, script);
+        }
+        return results;
+    }
+
+    private ScriptResult run(long index, List<String> script) {
+        CalculatorModel model = workerModel.get();
+        model.reset();
+        for (String command : script) {
+            CalculatorCommands.dispatch(model, command);
+        }
+        return new ScriptResult(index, model.getHistoryDisplay(), model.getCurrentDisplay(),
+                model.isErrorState());
+    }
+
+    private void deliver(ForkJoinTask<ScriptResult[]> task, Consumer<? super ScriptResult> sink) {
+        ScriptResult[] results;
+        try {
+            results = task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Batch evaluation interrupted");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Batch evaluation failed", cause);
+        }
+        for (ScriptResult result : results) {
+            sink.accept(result);
+        }
+    }
+
+    /**
+     * 仅关闭引擎自己创建的线程池。
+     */
+    @Override
+    public void close() {
+        if (ownsPool) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 单个脚本的执行结果：两块显示区的最终内容，以及是否停在错误态。
+     */
+    public static final class ScriptResult {
+        private final long index;
+        private final String historyDisplay;
+        private final String currentDisplay;
+        private final boolean error;
+
+        ScriptResult(long index, String historyDisplay, String currentDisplay, boolean error) {
+            this.index = index;
+            this.historyDisplay = historyDisplay;
+            this.currentDisplay = currentDisplay;
+            this.error = error;
+        }
+
+        /**
+         * 脚本在输入流中的序号（从 0 开始）。
+         */
+        public long getIndex() {
+            return index;
+        }
+
+        public String getHistoryDisplay() {
+            return historyDisplay;
+        }
+
+        public String getCurrentDisplay() {
+            return currentDisplay;
+        }
+
+        public boolean isError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return index + "\t" + historyDisplay + "\t" + currentDisplay;
+        }
+    }
+}
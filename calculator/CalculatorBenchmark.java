@@ -0,0 +1,323 @@
+package calculator;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * 计算器引擎的基准测试套件，测量吞吐量（ops/s）与每次操作的分配字节数（B/op）。
+ * 运行方式：java -cp out calculator.CalculatorBenchmark [名称正则] [--csv 基线文件]
+ * - 名称正则只运行匹配的基准，例如 "format|unary"；
+ * - --csv 把结果写成 CSV，作为之后引擎改动的对比基线。
+ * 每个基准都从一份预先准备好的模型状态出发（copyStateFrom 复位），保证每次调用做的工作完全相同。
+ */
+public final class CalculatorBenchmark {
+
+    private CalculatorBenchmark() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Pattern filter = null;
+        String csvPath = null;
+        for (int i = 0; i < args.length; i++) {
+            if ("--csv".equals(args[i]) && i + 1 < args.length) {
+                csvPath = args[++i];
+            } else {
+                filter = Pattern.compile(args[i]);
+            }
+        }
+
+        System.out.printf("# JVM %s %s, %d cores%n", System.getProperty("java.vm.name"),
+                System.getProperty("java.version"), Runtime.getRuntime().availableProcessors());
+        System.out.println(MicroBenchmark.header());
+        List<MicroBenchmark.Result> results = new ArrayList<>();
+        for (Map.Entry<String, Supplier<?>> entry : benchmarks().entrySet()) {
+            if (filter != null && !filter.matcher(entry.getKey()).find()) {
+                continue;
+            }
+            MicroBenchmark.Result result = MicroBenchmark.run(entry.getKey(), entry.getValue());
+            System.out.println(result);
+            results.add(result);
+        }
+        if (csvPath != null) {
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(Paths.get(csvPath), StandardCharsets.UTF_8))) {
+                writer.println("benchmark,ops_per_second,error,bytes_per_op");
+                for (MicroBenchmark.Result result : results) {
+                    writer.println(result.toCsv());
+                }
+            }
+        }
+    }
+
+    /**
+     * 所有基准，按分组顺序排列（名称即输出顺序）。
+     */
+    private static Map<String, Supplier<?>> benchmarks() {
+        Map<String, Supplier<?>> benchmarks = new LinkedHashMap<>();
+
+        // 逐位输入：16 位整数、带小数点的输入、输入后退格。
+        CalculatorModel digits = new CalculatorModel();
+        benchmarks.put("inputDigit.16digits", () -> {
+            digits.clearEntry();
+            for (int i = 0; i < 16; i++) {
+                digits.inputDigit((i * 7 + 3) % 10);
+            }
+            return digits;
+        });
+        benchmarks.put("inputDigit.decimal8+8", () -> {
+            digits.clearEntry();
+            for (int i = 0; i < 8; i++) {
+                digits.inputDigit(i + 1);
+            }
+            digits.inputDecimalPoint();
+            for (int i = 0; i < 8; i++) {
+                digits.inputDigit(9 - i);
+            }
+            return digits;
+        });
+        benchmarks.put("inputDigit.backspace", () -> {
+            digits.clearEntry();
+            for (int i = 0; i < 12; i++) {
+                digits.inputDigit(i % 10);
+                digits.inputDigit(5);
+                digits.backspace();
+            }
+            return digits;
+        });
+
+        // 开启撤销后的同一组输入：每条命令额外保存一个 O(1) 快照；以及一次撤销 + 重做的往返。
+        CalculatorModel undoable = new CalculatorModel();
+        undoable.setUndoMemoryLimit(1 << 20);
+        benchmarks.put("undo.inputDigit.16digits", () -> {
+            undoable.clearEntry();
+            for (int i = 0; i < 16; i++) {
+                undoable.inputDigit((i * 7 + 3) % 10);
+            }
+            return undoable;
+        });
+        benchmarks.put("undo.undoRedo", () -> {
+            undoable.undo();
+            undoable.redo();
+            return undoable;
+        });
+
+        // 开启状态发布后的同一组输入：每条命令多一个 O(1) 快照与一次 volatile 写入；
+        // 同时开启撤销时撤销栈直接复用发布的快照，与只开撤销相比只多一次引用写入。
+        CalculatorModel publishing = new CalculatorModel();
+        publishing.setStatePublishing(true);
+        benchmarks.put("publish.inputDigit.16digits", () -> {
+            publishing.clearEntry();
+            for (int i = 0; i < 16; i++) {
+                publishing.inputDigit((i * 7 + 3) % 10);
+            }
+            return publishing;
+        });
+        CalculatorModel publishingUndoable = new CalculatorModel();
+        publishingUndoable.setUndoMemoryLimit(1 << 20);
+        publishingUndoable.setStatePublishing(true);
+        benchmarks.put("publish.undo.inputDigit.16digits", () -> {
+            publishingUndoable.clearEntry();
+            for (int i = 0; i < 16; i++) {
+                publishingUndoable.inputDigit((i * 7 + 3) % 10);
+            }
+            return publishingUndoable;
+        });
+
+        // 链式二元运算：每次调用输入一个操作数并按下运算符（触发上一步的立即执行）。
+        addChain(benchmarks, "applyBinaryOperator.chainAdd.int", "+", "12345");
+        addChain(benchmarks, "applyBinaryOperator.chainSubtract.decimal", "-", "12.75");
+        addChain(benchmarks, "applyBinaryOperator.chainMultiply.int", "*", "3");
+        addChain(benchmarks, "applyBinaryOperator.chainDivide.repeating", "/", "7");
+
+        // 等号：从 “左操作数 运算符 右操作数” 的状态出发求值。
+        addEvaluate(benchmarks, "evaluate.add.int", "123456 + 654321", 16);
+        addEvaluate(benchmarks, "evaluate.multiply.decimal", "1234.5678 * 8765.4321", 16);
+        addEvaluate(benchmarks, "evaluate.divide.exact", "1 / 8", 16);
+        addEvaluate(benchmarks, "evaluate.divide.repeating", "1 / 7", 16);
+        addEvaluate(benchmarks, "evaluate.divide.repeating@1000", "1 / 7", 1_000);
+        // 高精度结果缓存命中时的延迟（其余基准都不挂缓存，测的是真实计算）。
+        addEvaluate(benchmarks, "evaluate.divide.repeating@1000.cached", "1 / 7", 1_000,
+                new OperationCache(OperationCache.DEFAULT_MAX_BYTES));
+
+        // 一元运算：每种运算各测一次。
+        for (CalculatorModel.UnaryOperation operation : CalculatorModel.UnaryOperation.values()) {
+            addUnary(benchmarks, "applyUnaryOperation." + operation.name(), operation, "2 + 12.5");
+        }
+        addUnary(benchmarks, "applyUnaryOperation.SQUARE_ROOT@1000",
+                CalculatorModel.UnaryOperation.SQUARE_ROOT, "2", 1_000, null);
+        addUnary(benchmarks, "applyUnaryOperation.SQUARE_ROOT@1000.cached",
+                CalculatorModel.UnaryOperation.SQUARE_ROOT, "2", 1_000,
+                new OperationCache(OperationCache.DEFAULT_MAX_BYTES));
+        // 指数巨大的乘方必须在低精度估算阶段就报告溢出/下溢，而不是先按数万位精度计算 ln
+        // （846 ^ 1e50000 以前要 17 秒）；这两个基准若退化会直接卡住整个套件。
+        BigDecimal base = new BigDecimal("846");
+        BigDecimal hugeExponent = new BigDecimal("3.4E+168186");
+        MathContext defaultContext = new MathContext(16);
+        benchmarks.put("pow.overflow.3.4e+168186", () -> powOrError(base, hugeExponent, defaultContext));
+        benchmarks.put("pow.underflow.-3.4e+168186", () -> powOrError(base, hugeExponent.negate(), defaultContext));
+        // 通用循环的 12.5 对阶乘是错误输入，这里单独测二分连乘。
+        addUnary(benchmarks, "applyUnaryOperation.FACTORIAL.5000",
+                CalculatorModel.UnaryOperation.FACTORIAL, "5000");
+
+        // 宏回放：30 步的费用计算（含百分号、除法与平方根），与逐条按字符串分派对比。
+        List<String> feeSteps = CalculatorCommands.parseScript(
+                "C 1250.75 × 12 + 89.5 = × 3.5 % ÷ 12 = + 14.25 = sqrt");
+        CalculatorMacro feeMacro = CalculatorMacro.compile(feeSteps);
+        CalculatorModel macroModel = new CalculatorModel();
+        benchmarks.put("macro.fee30.compiled", () -> {
+            feeMacro.run(macroModel);
+            return macroModel;
+        });
+        benchmarks.put("macro.fee30.dispatch", () -> {
+            for (String command : feeSteps) {
+                CalculatorCommands.dispatch(macroModel, command);
+            }
+            return macroModel;
+        });
+
+        // 统计：一千个数逐个按 Σ+ 输入，与粘贴同样的一列文本一次解析对比。
+        StringBuilder column = new StringBuilder();
+        for (int i = 0; i < 1_000; i++) {
+            column.append(i * 37 % 1_000).append('.').append(i % 100).append('\n');
+        }
+        String columnText = column.toString();
+        List<String> columnKeys = CalculatorCommands.parseScript(columnText.replace("\n", " \u03a3+ "));
+        CalculatorModel statistics = new CalculatorModel();
+        benchmarks.put("statistics.keys1000", () -> {
+            statistics.clearStatistics();
+            for (String key : columnKeys) {
+                CalculatorCommands.dispatch(statistics, key);
+            }
+            return statistics;
+        });
+        benchmarks.put("statistics.paste1000", () -> {
+            statistics.clearStatistics();
+            statistics.addStatisticsValues(columnText);
+            return statistics;
+        });
+
+        // 程序员模式：64 位运算链与四种进制的显示，格式化写入模型自己的字符缓冲区。
+        String[] programmerKeys = "F F 0 0 AND 3 C 0 OR 1 2 << 4 XOR 7 F =".split(" ");
+        ProgrammerModel programmer = new ProgrammerModel();
+        programmer.setRadix(ProgrammerModel.Radix.HEX);
+        benchmarks.put("programmer.chain", () -> {
+            programmer.clearAll();
+            for (String key : programmerKeys) {
+                ProgrammerCommands.dispatch(programmer, key);
+            }
+            return programmer;
+        });
+        ProgrammerModel programmerDisplay = new ProgrammerModel();
+        programmerDisplay.setValue(Long.MIN_VALUE + 12345);
+        for (ProgrammerModel.Radix radix : ProgrammerModel.Radix.values()) {
+            benchmarks.put("programmer.format." + radix.name().toLowerCase(),
+                    () -> programmerDisplay.getDisplay(radix));
+        }
+
+        // 显示格式化：覆盖普通写法、长小数、巨大/极小指数与高精度尾数。
+        addFormat(benchmarks, "format.integer", new BigDecimal("12345"));
+        addFormat(benchmarks, "format.decimal", new BigDecimal("1234.5678"));
+        addFormat(benchmarks, "format.16digits", new BigDecimal("0.1428571428571429"));
+        addFormat(benchmarks, "format.1e+20", new BigDecimal("1E+20"));
+        addFormat(benchmarks, "format.1e-20", new BigDecimal("1.5E-20"));
+        addFormat(benchmarks, "format.1e+1000000", new BigDecimal("9.999999999999999E+1000000"));
+        addFormat(benchmarks, "format.1000digits",
+                BigDecimal.ONE.divide(BigDecimal.valueOf(7), new MathContext(1_000)));
+        return benchmarks;
+    }
+
+    private static void addChain(Map<String, Supplier<?>> benchmarks, String name,
+                                 String operator, String operand) {
+        CalculatorModel model = new CalculatorModel();
+        run(model, "1 " + operator);
+        CalculatorModel template = new CalculatorModel(model);
+        List<String> keys = CalculatorCommands.parseScript(operand + " " + operator);
+        int[] count = {0};
+        benchmarks.put(name, () -> {
+            // 定期复位，避免乘除链把数值推向极端、改变被测工作量。
+            if (++count[0] % 32 == 0) {
+                model.copyStateFrom(template);
+            }
+            for (String key : keys) {
+                CalculatorCommands.dispatch(model, key);
+            }
+            return model;
+        });
+    }
+
+    private static void addEvaluate(Map<String, Supplier<?>> benchmarks, String name,
+                                    String expression, int precision) {
+        addEvaluate(benchmarks, name, expression, precision, null);
+    }
+
+    /**
+     * cache 为 null 时不挂结果缓存：否则预热之后高精度基准测到的只是缓存命中。
+     */
+    private static void addEvaluate(Map<String, Supplier<?>> benchmarks, String name,
+                                    String expression, int precision, OperationCache cache) {
+        CalculatorModel template = new CalculatorModel();
+        template.setPrecision(precision);
+        template.setOperationCache(cache);
+        run(template, expression);
+        CalculatorModel model = new CalculatorModel(template);
+        benchmarks.put(name, () -> {
+            model.copyStateFrom(template);
+            model.evaluate();
+            return model;
+        });
+    }
+
+    private static void addUnary(Map<String, Supplier<?>> benchmarks, String name,
+                                 CalculatorModel.UnaryOperation operation, String setup) {
+        addUnary(benchmarks, name, operation, setup, 16, null);
+    }
+
+    private static void addUnary(Map<String, Supplier<?>> benchmarks, String name,
+                                 CalculatorModel.UnaryOperation operation, String setup, int precision,
+                                 OperationCache cache) {
+        CalculatorModel template = new CalculatorModel();
+        template.setPrecision(precision);
+        template.setOperationCache(cache);
+        run(template, setup);
+        CalculatorModel model = new CalculatorModel(template);
+        benchmarks.put(name, () -> {
+            model.copyStateFrom(template);
+            model.applyUnaryOperation(operation);
+            return model;
+        });
+    }
+
+    /**
+     * 交替格式化 value 与 -value，绕过格式化器的“最近一次”缓存，测量真实的格式化开销。
+     */
+    private static void addFormat(Map<String, Supplier<?>> benchmarks, String name, BigDecimal value) {
+        DisplayFormatter formatter = new DisplayFormatter();
+        BigDecimal[] values = {value, value.negate()};
+        int[] index = {0};
+        benchmarks.put(name, () -> formatter.format(values[index[0]++ & 1]));
+    }
+
+    private static Object powOrError(BigDecimal x, BigDecimal y, MathContext mc) {
+        try {
+            return BigDecimalMath.pow(x, y, mc);
+        } catch (ArithmeticException ex) {
+            return ex.getMessage();
+        }
+    }
+
+    private static void run(CalculatorModel model, String script) {
+        for (String command : CalculatorCommands.parseScript(script)) {
+            CalculatorCommands.dispatch(model, command);
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package calculator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 命令分派表：把按钮/键盘使用的命令字符串映射到模型方法。
+ * 控制器与无界面的批处理引擎共用这一份映射，保证两条路径的语义完全一致。
+ * 每条命令对应一个整数操作码，录制的宏（{@link CalculatorMacro}）按操作码回放。
+ */
+public final class CalculatorCommands {
+
+    // 命令的操作码即它在此表中的下标。宏文件（见 {@link CalculatorMacro}）保存的是操作码，
+    // 因此已有命令的顺序不能改变，新命令只能追加在末尾。
+    private static final String[] COMMANDS = {
+            "0", "1", "2", "3", "4", "5", "6", "7", "8", "9",
+            ".", "+", "-", "\u00d7", "\u00f7", "^", "=",
+            "%", "1/x", "\u221a", "+/-", "sin", "cos", "tan", "ln", "log", "exp",
+            "CE", "C", "\u2190", "n!", "nCr",
+            "\u03a3+", "CAD", "n", "\u03a3x", "x\u0304", "s\u00b2", "s", "min", "max"
+    };
+    static final int OPCODE_COUNT = COMMANDS.length;
+    private static final int DECIMAL_POINT = 10;
+    private static final int ADD = 11;
+    private static final int SUBTRACT = 12;
+    private static final int MULTIPLY = 13;
+    private static final int DIVIDE = 14;
+    private static final int POWER = 15;
+    private static final int EVALUATE = 16;
+    private static final int PERCENT = 17;
+    private static final int RECIPROCAL = 18;
+    private static final int SQUARE_ROOT = 19;
+    private static final int NEGATE = 20;
+    private static final int SINE = 21;
+    private static final int COSINE = 22;
+    private static final int TANGENT = 23;
+    private static final int NATURAL_LOGARITHM = 24;
+    private static final int COMMON_LOGARITHM = 25;
+    private static final int EXPONENTIAL = 26;
+    private static final int CLEAR_ENTRY = 27;
+    private static final int CLEAR_ALL = 28;
+    private static final int BACKSPACE = 29;
+    private static final int FACTORIAL = 30;
+    private static final int BINOMIAL = 31;
+    private static final int STATISTICS_ADD = 32;
+    private static final int STATISTICS_CLEAR = 33;
+    // 其后依次是 CalculatorModel.Statistic 的各个统计量，顺序与枚举相同。
+    private static final int FIRST_STATISTIC = 34;
+    private static final CalculatorModel.Statistic[] STATISTICS = CalculatorModel.Statistic.values();
+
+    private static final Map<String, Integer> OPCODES = new HashMap<>();
+
+    static {
+        for (int i = 0; i < COMMANDS.length; i++) {
+            OPCODES.put(COMMANDS[i], i);
+        }
+        for (CalculatorModel.Statistic statistic : STATISTICS) {
+            if (!COMMANDS[FIRST_STATISTIC + statistic.ordinal()].equals(statistic.getLabel())) {
+                throw new IllegalStateException("Statistic opcode mismatch: " + statistic);
+            }
+        }
+    }
+
+    private CalculatorCommands() {
+    }
+
+    /**
+     * 根据命令字符串调用对应的模型方法。
+     * 命令与按钮标签保持一致；无法识别的命令会被忽略（与界面行为相同）。
+     * 模型挂有 {@link CalculatorMetrics} 时记录每条命令的耗时与分配字节数。
+     *
+     * @return 命令是否被识别
+     */
+    public static boolean dispatch(CalculatorModel model, String command) {
+        int opcode = opcodeOf(command);
+        if (opcode < 0) {
+            return false;
+        }
+        CalculatorMetrics metrics = model.getMetrics();
+        if (metrics == null) {
+            execute(model, opcode);
+            return true;
+        }
+        long allocatedBefore = CalculatorMetrics.allocatedBytes();
+        long start = System.nanoTime();
+        execute(model, opcode);
+        metrics.recordCommand(command, System.nanoTime() - start, allocatedBefore);
+        return true;
+    }
+
+    /**
+     * 命令字符串 → 操作码；无法识别时返回 -1。
+     */
+    static int opcodeOf(String command) {
+        if (command == null || command.isEmpty()) {
+            return -1;
+        }
+        Integer opcode = OPCODES.get(command);
+        return opcode == null ? -1 : opcode;
+    }
+
+    /**
+     * 操作码 → 命令字符串（即按钮标签）。
+     */
+    static String commandOf(int opcode) {
+        return COMMANDS[opcode];
+    }
+
+    /**
+     * 按操作码调用模型方法：整数 switch 编译为跳转表，宏回放直接走这里，不再逐条比较字符串。
+     */
+    static void execute(CalculatorModel model, int opcode) {
+        switch (opcode) {
+            case 0: case 1: case 2: case 3: case 4:
+            case 5: case 6: case 7: case 8: case 9:
+                model.inputDigit(opcode);
+                break;
+            case DECIMAL_POINT:
+                model.inputDecimalPoint();
+                break;
+            case ADD:
+            case SUBTRACT:
+            case MULTIPLY:
+            case DIVIDE:
+            case POWER:
+            case BINOMIAL:
+                // 传入表中的同一个字符串实例，模型按运算符比较时不必逐字符比较。
+                model.applyBinaryOperator(COMMANDS[opcode]);
+                break;
+            case EVALUATE:
+                model.evaluate();
+                break;
+            case PERCENT:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.PERCENT);
+                break;
+            case RECIPROCAL:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.RECIPROCAL);
+                break;
+            case SQUARE_ROOT:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.SQUARE_ROOT);
+                break;
+            case NEGATE:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.NEGATE);
+                break;
+            case SINE:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.SINE);
+                break;
+            case COSINE:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.COSINE);
+                break;
+            case TANGENT:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.TANGENT);
+                break;
+            case NATURAL_LOGARITHM:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.NATURAL_LOGARITHM);
+                break;
+            case COMMON_LOGARITHM:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.COMMON_LOGARITHM);
+                break;
+            case EXPONENTIAL:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.EXPONENTIAL);
+                break;
+            case CLEAR_ENTRY:
+                model.clearEntry();
+                break;
+            case CLEAR_ALL:
+                model.clearAll();
+                break;
+            case BACKSPACE:
+                model.backspace();
+                break;
+            case FACTORIAL:
+                model.applyUnaryOperation(CalculatorModel.UnaryOperation.FACTORIAL);
+                break;
+            case STATISTICS_ADD:
+                model.addStatisticsValue();
+                break;
+            case STATISTICS_CLEAR:
+                model.clearStatistics();
+                break;
+            default:
+                if (opcode >= FIRST_STATISTIC && opcode < FIRST_STATISTIC + STATISTICS.length) {
+                    model.recallStatistic(STATISTICS[opcode - FIRST_STATISTIC]);
+                    break;
+                }
+                throw new IllegalArgumentException("Unknown opcode " + opcode);
+        }
+    }
+
+    /**
+     * 把一行文本脚本拆成命令序列，供批处理/回放使用：
+     * - 以空白分隔命令，例如 "12.5 × 3 =";
+     * - 多位数字会展开成逐位按键（"12.5" → "1" "2" "." "5"）；
+     * - 接受常见 ASCII 别名（* / x sqrt neg pow bs mean sd 等），统一转换为按钮上的符号。
+     */
+    public static List<String> parseScript(String script) {
+        if (script == null || script.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> commands = new ArrayList<>();
+        int length = script.length();
+        int index = 0;
+        while (index < length) {
+            while (index < length && Character.isWhitespace(script.charAt(index))) {
+                index++;
+            }
+            int start = index;
+            while (index < length && !Character.isWhitespace(script.charAt(index))) {
+                index++;
+            }
+            if (start == index) {
+                break;
+            }
+            appendToken(commands, script.substring(start, index));
+        }
+        return commands;
+    }
+
+    private static void appendToken(List<String> commands, String token) {
+        if (isNumberToken(token)) {
+            for (int i = 0; i < token.length(); i++) {
+                commands.add(String.valueOf(token.charAt(i)));
+            }
+            return;
+        }
+        commands.add(canonicalCommand(token));
+    }
+
+    /**
+     * 仅由数字和小数点组成的记号视为“连续按键”。
+     */
+    private static boolean isNumberToken(String token) {
+        if (token.length() <= 1) {
+            return false;
+        }
+        for (int i = 0; i < token.length(); i++) {
+            char c = token.charAt(i);
+            if ((c < '0' || c > '9') && c != '.') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * ASCII 别名 → 按钮命令；未知记号原样返回，由 dispatch 决定是否忽略。
+     */
+    static String canonicalCommand(String token) {
+        switch (token) {
+            case "*":
+            case "x":
+            case "X":
+                return "\u00d7";
+            case "/":
+                return "\u00f7";
+            case "sqrt":
+                return "\u221a";
+            case "pow":
+            case "**":
+                return "^";
+            case "log10":
+                return "log";
+            case "!":
+            case "fact":
+                return "n!";
+            case "ncr":
+            case "choose":
+                return "nCr";
+            case "sigma+":
+            case "s+":
+                return "\u03a3+";
+            case "cad":
+                return "CAD";
+            case "count":
+                return "n";
+            case "sum":
+                return "\u03a3x";
+            case "mean":
+            case "avg":
+                return "x\u0304";
+            case "var":
+                return "s\u00b2";
+            case "sd":
+            case "stdev":
+                return "s";
+            case "neg":
+            case "+-":
+                return "+/-";
+            case "bs":
+            case "BS":
+            case "<-":
+                return "\u2190";
+            case "ce":
+                return "CE";
+            case "c":
+                return "C";
+            default:
+                return token;
+        }
+    }
+}
@@ -2,9 +2,30 @@ package calculator;
 
 import javax.swing.AbstractAction;
 import javax.swing.KeyStroke;
+import javax.swing.SwingUtilities;
+import java.awt.Toolkit;
+import java.awt.datatransfer.DataFlavor;
+import java.awt.datatransfer.StringSelection;
+import java.awt.datatransfer.UnsupportedFlavorException;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 /**
  * 控制器：作为 View 与 Model 的粘合层，负责监听按钮/键盘事件并把命令转交给模型。
@@ -12,8 +33,40 @@ import java.awt.event.KeyEvent;
  */
 public class CalculatorController implements ActionListener {
 
+    // 精度不超过该值时所有运算都足够快，直接在 EDT 上同步执行。
+    private static final int SYNC_PRECISION_LIMIT = 64;
+    // n!、nCr 与 ^ 的代价取决于参数大小而不是精度：参数（nCr 取 min(k, n-k)）超过该值时即使默认精度也放到后台，
+    // 否则 100000 n! 之类的运算会让界面卡住且无法取消。
+    private static final int SYNC_INTEGER_LIMIT = 2_000;
+    private static final BigDecimal SYNC_INTEGER_LIMIT_VALUE = BigDecimal.valueOf(SYNC_INTEGER_LIMIT);
+    // 粘贴的统计数据超过该字符数（约十万个数字）时放到后台解析。
+    private static final int SYNC_PASTE_CHARS = 1 << 20;
+
     private final CalculatorModel model;
     private final CalculatorView view;
+    // 把每条命令后的显示刷新合并为每帧最多一次。
+    private final DisplayRefreshScheduler refreshScheduler;
+    // 撤销栈的内存上限：每一步通常只占一两百字节，足够回退上万步。
+    private static final long UNDO_MEMORY_LIMIT = 4L << 20;
+
+    // 后台运算线程池：被取消的运算无法打断 BigDecimal 内部循环，
+    // 使用可伸缩的线程池，让新运算不必等待被放弃的旧运算跑完。
+    private final ExecutorService computeExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "calculator-compute");
+        thread.setDaemon(true);
+        return thread;
+    });
+    // 以下字段只在 EDT 上读写。
+    private Future<?> runningComputation;
+    private long computationId;
+    // 函数图像窗口，第一次打开时才创建。
+    private GraphView graphView;
+    // 程序员模式窗口，第一次打开时才创建；与主计算器互不影响。
+    private ProgrammerView programmerView;
+    // 正在录制的宏命令；null 表示未在录制。
+    private List<String> macroRecording;
+    // 最近录制或读取的宏。
+    private CalculatorMacro macro;
 
     /**
      * 构造时即完成事件绑定与显示初始化。
@@ -21,8 +74,26 @@ public class CalculatorController implements ActionListener {
     public CalculatorController(CalculatorModel model, CalculatorView view) {
         this.model = model;
         this.view = view;
+        this.refreshScheduler = new DisplayRefreshScheduler(model, view);
+        this.model.setUndoMemoryLimit(UNDO_MEMORY_LIMIT);
         this.view.addButtonListener(this);
-        this.view.setDisplays(model.getHistoryDisplay(), model.getCurrentDisplay());
+        this.view.addPrecisionListener(e -> changePrecision(Integer.parseInt(e.getActionCommand())));
+        this.view.addExactModeListener(e -> changeExactMode());
+        this.view.addCopyListener(e -> copyFullResult());
+        this.view.addUndoListener(e -> undo());
+        this.view.addRedoListener(e -> redo());
+        this.view.addHistoryListener(e -> showHistory());
+        this.view.addGraphListener(e -> openGraph());
+        this.view.addProgrammerListener(e -> openProgrammer());
+        this.view.addRecordMacroListener(e -> toggleMacroRecording());
+        this.view.addPlayMacroListener(e -> playMacro());
+        this.view.addSaveMacroListener(e -> saveMacro());
+        this.view.addLoadMacroListener(e -> loadMacro());
+        this.view.addStatisticsCommandListener(this);
+        this.view.addPasteStatisticsListener(e -> pasteStatistics());
+        this.view.addLoadStatisticsListener(e -> loadStatistics());
+        refreshScheduler.flush();
+        updateUndoActions();
         registerKeyboardShortcuts();
     }
 
@@ -33,55 +104,395 @@ public class CalculatorController implements ActionListener {
 
     /**
      * 根据按钮/键盘发来的 action command 分派模型方法。
-     * 命令字符串与按钮标签保持一致，降低额外映射成本。
+     * 命令字符串与按钮标签保持一致，具体映射集中在 {@link CalculatorCommands}，
+     * 以便无界面的批处理引擎复用同一套语义。
      */
     private void handleCommand(String command) {
         if (command == null || command.isEmpty()) {
             return;
         }
+        if (isBusy()) {
+            // 后台运算期间只响应 C/CE（取消），其余按键忽略，避免与后台结果交错。
+            if ("C".equals(command) || "CE".equals(command)) {
+                cancelComputation();
+            }
+            return;
+        }
+        if (macroRecording != null && CalculatorCommands.opcodeOf(command) >= 0) {
+            macroRecording.add(command);
+        }
+        if (runsInBackground(command)) {
+            startBackgroundComputation(working -> CalculatorCommands.dispatch(working, command));
+            return;
+        }
+        CalculatorCommands.dispatch(model, command);
+        // 只标记需要刷新：连续快速输入（扫码枪、粘贴宏）时每帧最多写一次标签。
+        refreshScheduler.markDirty();
+        updateUndoActions();
+    }
+
+    private boolean isBusy() {
+        return runningComputation != null;
+    }
+
+    /**
+     * 高精度下除输入编辑类按键外的命令都可能触发耗时运算（包括链式运算中的待执行除法），
+     * 统一放到后台执行。
+     */
+    private boolean runsInBackground(String command) {
+        if (model.getPrecision() <= SYNC_PRECISION_LIMIT) {
+            return runsLargeIntegerMath(command);
+        }
         switch (command) {
             case "0": case "1": case "2": case "3": case "4":
             case "5": case "6": case "7": case "8": case "9":
-                model.inputDigit(command.charAt(0) - '0');
-                break;
             case ".":
-                model.inputDecimalPoint();
-                break;
+            case "\u2190":
+            case "+/-":
+            case "CE":
+            case "C":
+            case "CAD":
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 低精度下唯一可能耗时的是大整数运算：对较大的参数按 n!，或者按等号/运算符时执行的是参数较大的 ^、nCr。
+     */
+    private boolean runsLargeIntegerMath(String command) {
+        if (model.isErrorState()) {
+            return false;
+        }
+        switch (command) {
+            case "n!":
+                return model.getCurrentValue().abs().compareTo(SYNC_INTEGER_LIMIT_VALUE) > 0;
+            case "=":
             case "+":
             case "-":
             case "\u00d7":
             case "\u00f7":
-                model.applyBinaryOperator(command);
-                break;
-            case "=":
-                model.evaluate();
-                break;
-            case "%":
-                model.applyUnaryOperation(CalculatorModel.UnaryOperation.PERCENT);
-                break;
-            case "1/x":
-                model.applyUnaryOperation(CalculatorModel.UnaryOperation.RECIPROCAL);
-                break;
-            case "\u221a":
-                model.applyUnaryOperation(CalculatorModel.UnaryOperation.SQUARE_ROOT);
-                break;
-            case "+/-":
-                model.applyUnaryOperation(CalculatorModel.UnaryOperation.NEGATE);
-                break;
-            case "CE":
-                model.clearEntry();
-                break;
-            case "C":
-                model.clearAll();
-                break;
-            case "\u2190":
-                model.backspace();
+            case "^":
+            case "nCr":
                 break;
             default:
-                break;
+                return false;
         }
-        // 每次模型状态改变后立即刷新两个显示标签。
-        view.setDisplays(model.getHistoryDisplay(), model.getCurrentDisplay());
+        return model.pendingIntegerWork().compareTo(SYNC_INTEGER_LIMIT_VALUE) > 0;
+    }
+
+    /**
+     * 把完整精度的当前结果放进剪贴板：显示区只能容纳约 30 个字符，高精度结果要靠复制才能看全。
+     */
+    private void copyFullResult() {
+        if (isBusy()) {
+            return;
+        }
+        StringSelection text = new StringSelection(model.getFullPrecisionDisplay());
+        try {
+            Toolkit.getDefaultToolkit().getSystemClipboard().setContents(text, text);
+        } catch (IllegalStateException ex) {
+            // 剪贴板暂时被其他程序占用，放弃这次复制。
+        }
+    }
+
+    /**
+     * 粘贴：把剪贴板中的整条表达式交给模型按优先级求值，高精度下同样放到后台。
+     */
+    private void pasteExpression() {
+        if (isBusy()) {
+            return;
+        }
+        String expression;
+        try {
+            expression = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+        } catch (UnsupportedFlavorException | IOException | IllegalStateException ex) {
+            // 剪贴板里不是文本或暂时不可用，忽略这次粘贴。
+            return;
+        }
+        if (expression == null || expression.trim().isEmpty()) {
+            return;
+        }
+        if (model.getPrecision() > SYNC_PRECISION_LIMIT) {
+            startBackgroundComputation(working -> working.evaluateExpression(expression));
+            return;
+        }
+        model.evaluateExpression(expression);
+        refreshScheduler.markDirty();
+        updateUndoActions();
+    }
+
+    /**
+     * 把剪贴板中的一列数字加入统计数据；文本很长或精度很高时放到后台。
+     */
+    private void pasteStatistics() {
+        if (isBusy()) {
+            return;
+        }
+        String text;
+        try {
+            text = (String) Toolkit.getDefaultToolkit().getSystemClipboard().getData(DataFlavor.stringFlavor);
+        } catch (UnsupportedFlavorException | IOException | IllegalStateException ex) {
+            return;
+        }
+        if (text == null || text.trim().isEmpty()) {
+            return;
+        }
+        if (text.length() > SYNC_PASTE_CHARS || model.getPrecision() > SYNC_PRECISION_LIMIT) {
+            startBackgroundComputation(working -> working.addStatisticsValues(text));
+            return;
+        }
+        model.addStatisticsValues(text);
+        refreshScheduler.markDirty();
+        updateUndoActions();
+    }
+
+    /**
+     * 从文本文件（每行或以逗号分隔的数字）读取统计数据，总在后台逐块读取；
+     * 读文件失败时提示错误，数据保持不变。
+     */
+    private void loadStatistics() {
+        if (isBusy()) {
+            return;
+        }
+        Path file = view.chooseStatisticsFile();
+        if (file == null) {
+            return;
+        }
+        startBackgroundComputation(working -> {
+            try (Reader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                working.addStatisticsValues(in);
+            } catch (IOException ex) {
+                String message = "Cannot read " + file.getFileName() + ": " + ex.getMessage();
+                SwingUtilities.invokeLater(() -> view.showError("Statistics", message));
+            }
+        });
+    }
+
+    /**
+     * 在模型副本上执行操作：完成后由 EDT 把副本状态提交回主模型；
+     * 若期间被取消，副本直接丢弃，主模型不受影响。
+     */
+    private void startBackgroundComputation(Consumer<CalculatorModel> action) {
+        long id = ++computationId;
+        CalculatorModel working = new CalculatorModel(model);
+        working.setProgressListener(fraction -> SwingUtilities.invokeLater(() -> {
+            if (id == computationId && isBusy()) {
+                view.setBusy(true, String.format("Calculating\u2026 %d%%", Math.round(fraction * 100)));
+            }
+        }));
+        // 先推送尚未显示的状态，避免帧末的刷新覆盖忙碌提示。
+        refreshScheduler.flush();
+        refreshScheduler.invalidate();
+        view.setBusy(true, "Calculating\u2026");
+        runningComputation = computeExecutor.submit(() -> {
+            boolean completed = false;
+            try {
+                action.accept(working);
+                completed = true;
+            } catch (CancellationException ignored) {
+                // 已被用户取消，结果无需提交。
+            } finally {
+                boolean commit = completed;
+                SwingUtilities.invokeLater(() -> finishComputation(id, commit ? working : null));
+            }
+        });
+    }
+
+    private void finishComputation(long id, CalculatorModel result) {
+        if (id != computationId) {
+            // 这是一次已被取消的运算，主模型早已恢复交互。
+            return;
+        }
+        runningComputation = null;
+        if (result != null) {
+            model.copyStateFrom(result);
+        }
+        view.setBusy(false, null);
+        refreshScheduler.flush();
+        updateUndoActions();
+    }
+
+    private void cancelComputation() {
+        computationId++;
+        runningComputation.cancel(true);
+        runningComputation = null;
+        view.setBusy(false, null);
+        refreshScheduler.flush();
+    }
+
+    /**
+     * 撤销/重做：只恢复计算状态（输入、累加器、历史行），精度与精确模式保持不变。
+     */
+    private void undo() {
+        if (!isBusy() && model.undo()) {
+            refreshScheduler.markDirty();
+        }
+        updateUndoActions();
+    }
+
+    private void redo() {
+        if (!isBusy() && model.redo()) {
+            refreshScheduler.markDirty();
+        }
+        updateUndoActions();
+    }
+
+    private void updateUndoActions() {
+        view.setUndoRedoEnabled(model.canUndo(), model.canRedo());
+    }
+
+    /**
+     * 后台运算提交时会连同副本的精确模式一起写回，因此计算期间不允许切换，菜单勾选恢复为模型的实际状态。
+     */
+    private void changeExactMode() {
+        if (isBusy()) {
+            view.setExactModeSelected(model.isExactMode());
+            return;
+        }
+        model.setExactMode(view.isExactModeSelected());
+    }
+
+    private void changePrecision(int digits) {
+        if (isBusy()) {
+            view.setSelectedPrecision(model.getPrecision());
+            return;
+        }
+        model.setPrecision(digits);
+    }
+
+    /**
+     * 开始/停止录制：录制期间经过 handleCommand 的按键依次记下，停止时编译成 {@link CalculatorMacro}。
+     */
+    private void toggleMacroRecording() {
+        if (view.isRecordMacroSelected()) {
+            macroRecording = new ArrayList<>();
+        } else if (macroRecording != null) {
+            macro = CalculatorMacro.compile(macroRecording);
+            macroRecording = null;
+        }
+        view.setMacroAvailable(macro != null && macro.length() > 0);
+    }
+
+    /**
+     * 在当前状态上回放宏：所有命令执行完后只刷新一次显示；高精度下或含大整数运算时整段放到后台执行。
+     */
+    private void playMacro() {
+        if (isBusy() || macro == null || macroRecording != null) {
+            return;
+        }
+        CalculatorMacro playing = macro;
+        if (model.getPrecision() > SYNC_PRECISION_LIMIT || usesIntegerMath(playing)) {
+            startBackgroundComputation(playing::run);
+            return;
+        }
+        playing.run(model);
+        refreshScheduler.markDirty();
+        updateUndoActions();
+    }
+
+    /**
+     * 宏里的参数要回放时才知道，含 n!、nCr 或 ^ 的宏一律放到后台回放。
+     */
+    private static boolean usesIntegerMath(CalculatorMacro macro) {
+        for (String command : macro.commands()) {
+            if ("n!".equals(command) || "nCr".equals(command) || "^".equals(command)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void saveMacro() {
+        if (macro == null) {
+            return;
+        }
+        Path file = view.chooseMacroFile(true);
+        if (file == null) {
+            return;
+        }
+        try {
+            macro.save(file);
+        } catch (IOException ex) {
+            view.showError("Save macro", "Cannot save macro: " + ex.getMessage());
+        }
+    }
+
+    private void loadMacro() {
+        Path file = view.chooseMacroFile(false);
+        if (file == null) {
+            return;
+        }
+        try {
+            macro = CalculatorMacro.load(file);
+        } catch (IOException ex) {
+            view.showError("Load macro", "Cannot load macro: " + ex.getMessage());
+        }
+        view.setMacroAvailable(macro != null && macro.length() > 0);
+    }
+
+    /**
+     * 展示历史纸带内存中的最近记录，不读取磁盘；未启用纸带时显示空列表。
+     */
+    private void showHistory() {
+        List<String> lines = new ArrayList<>();
+        HistoryTape tape = model.getHistoryTape();
+        if (tape != null) {
+            DisplayFormatter formatter = new DisplayFormatter();
+            SimpleDateFormat timeFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+            for (HistoryTape.Entry entry : tape.recent()) {
+                lines.add(timeFormat.format(new Date(entry.getTimestampMillis())) + "   "
+                        + formatter.format(entry.getLeft()) + " " + entry.getOperator() + " "
+                        + formatter.format(entry.getRight()) + " = " + formatter.format(entry.getResult()));
+            }
+        }
+        view.showHistory(lines);
+    }
+
+    /**
+     * 打开函数图像窗口；已经打开过则直接显示原窗口，保留之前的表达式与视图位置。
+     */
+    private void openGraph() {
+        if (graphView == null) {
+            graphView = new GraphView();
+            graphView.addExpressionListener(e -> plotExpression(graphView.getExpressionText()));
+            graphView.setLocationRelativeTo(view);
+            plotExpression(graphView.getExpressionText());
+        }
+        graphView.setVisible(true);
+        graphView.toFront();
+    }
+
+    /**
+     * 打开程序员模式窗口；已经打开过则直接显示原窗口，保留之前的值与进制。
+     */
+    private void openProgrammer() {
+        if (programmerView == null) {
+            programmerView = new ProgrammerView();
+            new ProgrammerController(new ProgrammerModel(), programmerView);
+            programmerView.setLocationRelativeTo(view);
+        }
+        programmerView.setVisible(true);
+        programmerView.toFront();
+    }
+
+    /**
+     * 编译 f(x) 并交给图像窗口；语法错误或变量多于一个时只提示，不清除当前图像。
+     */
+    private void plotExpression(String text) {
+        CompiledExpression expression;
+        try {
+            expression = ExpressionCompiler.shared().compile(text.trim());
+        } catch (IllegalArgumentException ex) {
+            graphView.showError(ex.getMessage());
+            return;
+        }
+        if (expression.getVariables().size() > 1) {
+            graphView.showError("Only one variable is allowed, found " + expression.getVariables());
+            return;
+        }
+        graphView.plot(expression);
     }
 
     /**
@@ -102,6 +513,7 @@ public class CalculatorController implements ActionListener {
         registerKeyAction("MULTIPLY_NUMPAD", KeyStroke.getKeyStroke(KeyEvent.VK_MULTIPLY, 0), "\u00d7");
         registerKeyAction("DIVIDE_KEY", KeyStroke.getKeyStroke('/'), "\u00f7");
         registerKeyAction("DIVIDE_NUMPAD", KeyStroke.getKeyStroke(KeyEvent.VK_DIVIDE, 0), "\u00f7");
+        registerKeyAction("POWER_KEY", KeyStroke.getKeyStroke('^'), "^");
 
         registerKeyAction("ENTER", KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "=");
         registerKeyAction("EQUALS", KeyStroke.getKeyStroke('='), "=");
@@ -109,6 +521,14 @@ public class CalculatorController implements ActionListener {
         registerKeyAction("BACKSPACE", KeyStroke.getKeyStroke(KeyEvent.VK_BACK_SPACE, 0), "\u2190");
         registerKeyAction("ESCAPE", KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), "C");
         registerKeyAction("DELETE", KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "CE");
+
+        view.registerKeyAction("PASTE", KeyStroke.getKeyStroke(KeyEvent.VK_V, InputEvent.CTRL_DOWN_MASK),
+                new AbstractAction() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        pasteExpression();
+                    }
+                });
     }
 
     /**
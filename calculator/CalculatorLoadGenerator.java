@@ -0,0 +1,190 @@
+package calculator;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link CalculatorServer} 的压测工具：同时打开大量会话，先让所有连接就绪，再同时开始发送命令，
+ * 按命令统计往返延迟并输出 p50/p99/最大值。
+ * 运行方式：
+ * java -cp out calculator.CalculatorLoadGenerator [--host 主机] [--port 端口] [--sessions 会话数]
+ *      [--commands 每会话命令数] [--think 两条命令间隔毫秒]
+ * 不指定 --port 时在进程内启动一个临时服务端（随机端口），便于单机直接运行。
+ * 客户端会话同样跑在 {@link VirtualThreads} 提供的执行器上。
+ */
+public final class CalculatorLoadGenerator {
+
+    // 每条命令单独成行发送；数字出现得更频繁，贴近真实的按键分布。
+    private static final String[] COMMANDS = {
+            "7", "3", "9", "+", "-", "*", "/", "=", "sqrt", "1/x", "%", "neg", "bs", "CE", "C"
+    };
+    private static final int DIGIT_COMMANDS = 3;
+    private static final int CONNECT_TIMEOUT_SECONDS = 120;
+
+    private CalculatorLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = InetAddress.getLoopbackAddress().getHostAddress();
+        int port = -1;
+        int sessions = 1000;
+        int commandsPerSession = 100;
+        long thinkMillis = 0;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[i + 1];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--sessions":
+                    sessions = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--commands":
+                    commandsPerSession = Integer.parseInt(args[i + 1]);
+                    break;
+                case "--think":
+                    thinkMillis = Long.parseLong(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        CalculatorServer embedded = null;
+        if (port < 0) {
+            embedded = new CalculatorServer(0, CalculatorServer.DEFAULT_IDLE_TIMEOUT_MILLIS);
+            port = embedded.getPort();
+        }
+        try {
+            run(host, port, sessions, commandsPerSession, thinkMillis, embedded);
+        } finally {
+            if (embedded != null) {
+                embedded.close();
+            }
+        }
+    }
+
+    private static void run(String host, int port, int sessions, int commandsPerSession, long thinkMillis,
+                            CalculatorServer embedded) throws Exception {
+        LatencyHistogram[] histograms = new LatencyHistogram[COMMANDS.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+        LongAdder failedSessions = new LongAdder();
+        LongAdder errorResponses = new LongAdder();
+        CountDownLatch connected = new CountDownLatch(sessions);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = VirtualThreads.newPerTaskExecutor("load-session");
+        List<Future<?>> futures = new ArrayList<>(sessions);
+        for (int i = 0; i < sessions; i++) {
+            futures.add(executor.submit(() -> runSession(host, port, commandsPerSession, thinkMillis,
+                    histograms, connected, start, failedSessions, errorResponses)));
+        }
+        if (!connected.await(CONNECT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            System.out.printf("# only %d of %d sessions connected in time%n",
+                    sessions - connected.getCount(), sessions);
+        }
+        System.out.printf("# %d sessions connected%s, %s threads%n", sessions - failedSessions.intValue(),
+                embedded != null ? " (server reports " + embedded.getActiveSessionCount() + " active)" : "",
+                VirtualThreads.isAvailable() ? "virtual" : "platform");
+
+        long startNanos = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        double seconds = (System.nanoTime() - startNanos) / 1e9;
+        executor.shutdown();
+
+        LatencyHistogram total = new LatencyHistogram();
+        for (LatencyHistogram histogram : histograms) {
+            total.add(histogram);
+        }
+        System.out.printf(Locale.ROOT, "# %d commands in %.2f s (%.0f commands/s), %d failed sessions, %d error responses%n",
+                total.getCount(), seconds, total.getCount() / seconds, failedSessions.sum(), errorResponses.sum());
+        System.out.printf("%-8s %10s %10s %10s %10s%n", "command", "count", "p50(us)", "p99(us)", "max(us)");
+        for (int i = 0; i < COMMANDS.length; i++) {
+            printRow(COMMANDS[i], histograms[i]);
+        }
+        printRow("all", total);
+    }
+
+    private static void runSession(String host, int port, int commands, long thinkMillis,
+                                   LatencyHistogram[] histograms, CountDownLatch connected, CountDownLatch start,
+                                   LongAdder failedSessions, LongAdder errorResponses) {
+        Socket socket;
+        try {
+            socket = new Socket(host, port);
+            socket.setTcpNoDelay(true);
+        } catch (IOException ex) {
+            failedSessions.increment();
+            connected.countDown();
+            return;
+        }
+        connected.countDown();
+        try (Socket s = socket) {
+            OutputStream out = s.getOutputStream();
+            CalculatorServer.LineReader reader = new CalculatorServer.LineReader(
+                    new BufferedInputStream(s.getInputStream(), 512));
+            start.await();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            byte[][] requests = encodedCommands();
+            for (int n = 0; n < commands; n++) {
+                // 数字命令的概率是其余命令的数倍，让运算链中有足够长的操作数。
+                int index = random.nextInt(COMMANDS.length + DIGIT_COMMANDS * 3);
+                if (index >= COMMANDS.length) {
+                    index = index % DIGIT_COMMANDS;
+                }
+                long begin = System.nanoTime();
+                out.write(requests[index]);
+                out.flush();
+                String response = reader.readLine();
+                histograms[index].record(System.nanoTime() - begin);
+                if (response == null) {
+                    failedSessions.increment();
+                    return;
+                }
+                if (response.startsWith("ERR")) {
+                    errorResponses.increment();
+                }
+                if (thinkMillis > 0) {
+                    Thread.sleep(thinkMillis);
+                }
+            }
+        } catch (IOException ex) {
+            failedSessions.increment();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static byte[][] encodedCommands() {
+        byte[][] requests = new byte[COMMANDS.length][];
+        for (int i = 0; i < COMMANDS.length; i++) {
+            requests[i] = (COMMANDS[i] + "\n").getBytes(StandardCharsets.UTF_8);
+        }
+        return requests;
+    }
+
+    private static void printRow(String name, LatencyHistogram histogram) {
+        System.out.printf(Locale.ROOT, "%-8s %10d %10.1f %10.1f %10.1f%n", name, histogram.getCount(),
+                histogram.valueAtPercentile(50) / 1e3, histogram.valueAtPercentile(99) / 1e3,
+                histogram.getMax() / 1e3);
+    }
+}
@@ -0,0 +1,133 @@
+package calculator;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 录制下来的一串按键，编译成操作码数组（见 {@link CalculatorCommands#opcodeOf}）：
+ * - 编译时一次性解析命令字符串，无法识别的命令直接丢弃（与界面忽略未知命令的行为一致）；
+ * - 回放只按操作码跳转调用模型方法，不比较字符串、不刷新显示，也不记录运行指标；
+ * - 不可变，可以在多个线程上同时对不同的模型回放。
+ * 文件格式：4 字节魔数 "CMAC"、1 字节版本、4 字节命令数（大端），之后每条命令 1 字节操作码。
+ */
+public final class CalculatorMacro {
+
+    private static final int MAGIC = 0x434d4143;
+    private static final int VERSION = 1;
+    // 读文件时的命令数上限，防止损坏的长度字段导致巨大的数组分配。
+    private static final int MAX_LENGTH = 1 << 26;
+
+    private final byte[] opcodes;
+
+    private CalculatorMacro(byte[] opcodes) {
+        this.opcodes = opcodes;
+    }
+
+    /**
+     * 把命令字符串（按钮标签）编译成宏。
+     */
+    public static CalculatorMacro compile(List<String> commands) {
+        byte[] opcodes = new byte[commands.size()];
+        int length = 0;
+        for (String command : commands) {
+            int opcode = CalculatorCommands.opcodeOf(command);
+            if (opcode >= 0) {
+                opcodes[length++] = (byte) opcode;
+            }
+        }
+        return new CalculatorMacro(Arrays.copyOf(opcodes, length));
+    }
+
+    /**
+     * 从文件读取宏。
+     *
+     * @throws IOException 文件无法读取，或者不是受支持的宏文件
+     */
+    public static CalculatorMacro load(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return readFrom(in);
+        }
+    }
+
+    public static CalculatorMacro readFrom(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a calculator macro");
+        }
+        int version = data.readUnsignedByte();
+        if (version != VERSION) {
+            throw new IOException("Unsupported macro version " + version);
+        }
+        int length = data.readInt();
+        if (length < 0 || length > MAX_LENGTH) {
+            throw new IOException("Corrupt macro length " + length);
+        }
+        byte[] opcodes = new byte[length];
+        data.readFully(opcodes);
+        for (byte opcode : opcodes) {
+            if (opcode < 0 || opcode >= CalculatorCommands.OPCODE_COUNT) {
+                throw new IOException("Unknown opcode " + opcode);
+            }
+        }
+        return new CalculatorMacro(opcodes);
+    }
+
+    public void save(Path file) throws IOException {
+        try (OutputStream out = Files.newOutputStream(file)) {
+            writeTo(out);
+        }
+    }
+
+    public void writeTo(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeByte(VERSION);
+        data.writeInt(opcodes.length);
+        data.write(opcodes);
+        data.flush();
+    }
+
+    /**
+     * 在给定模型上从当前状态开始回放。
+     */
+    public void run(CalculatorModel model) {
+        byte[] code = opcodes;
+        for (byte opcode : code) {
+            CalculatorCommands.execute(model, opcode);
+        }
+    }
+
+    /**
+     * 在一个全新的模型上回放并返回它。
+     */
+    public CalculatorModel runOnNewModel() {
+        CalculatorModel model = new CalculatorModel();
+        run(model);
+        return model;
+    }
+
+    /**
+     * 命令数。
+     */
+    public int length() {
+        return opcodes.length;
+    }
+
+    /**
+     * 还原成命令字符串，便于显示或与按键脚本互相转换。
+     */
+    public String[] commands() {
+        String[] commands = new String[opcodes.length];
+        for (int i = 0; i < opcodes.length; i++) {
+            commands[i] = CalculatorCommands.commandOf(opcodes[i]);
+        }
+        return commands;
+    }
+}
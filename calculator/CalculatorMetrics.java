@@ -0,0 +1,226 @@
+package calculator;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+/**
+ * 计算器的运行指标，回答“为什么感觉卡”：
+ * - 每条命令（数字键合并为 "digit"，其余按按钮标签区分）的延迟直方图与平均分配字节数，
+ *   由 {@link CalculatorCommands#dispatch} 记录，界面、批处理、服务与流水线都经过这里；
+ * - 模型格式化显示文本（formatBigDecimal）的耗时与进入错误态的次数，由 {@link CalculatorModel} 记录；
+ * - 控制器把显示内容写入标签（view 更新）的耗时，由 {@link DisplayRefreshScheduler} 记录。
+ * 记录只做原子累加、不加锁（见 {@link LatencyHistogram}），可以在多个线程、多个模型之间共享。
+ * 通过 JMX（{@link #registerMBean()}）或定期文本输出（{@link #startPeriodicDump}）查看。
+ */
+public final class CalculatorMetrics implements CalculatorMetricsMXBean {
+
+    public static final String OBJECT_NAME = "calculator:type=CalculatorMetrics";
+    static final String DIGIT_COMMAND = "digit";
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final ConcurrentHashMap<String, CommandStats> commands = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+    private final LongAdder errorEntries = new LongAdder();
+    private final LatencyHistogram formatLatency = new LatencyHistogram();
+    private final LatencyHistogram displayLatency = new LatencyHistogram();
+
+    /**
+     * 当前线程累计分配的字节数，作为 {@link #recordCommand} 的起点；JVM 不支持时返回 -1。
+     */
+    static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) THREADS;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 记录一条命令：nanos 是耗时，allocatedBefore 是执行前的 {@link #allocatedBytes()}。
+     * 必须在执行命令的同一个线程上调用。
+     */
+    void recordCommand(String command, long nanos, long allocatedBefore) {
+        String name = command.length() == 1 && command.charAt(0) >= '0' && command.charAt(0) <= '9'
+                ? DIGIT_COMMAND
+                : command;
+        CommandStats stats = commands.get(name);
+        if (stats == null) {
+            stats = commands.computeIfAbsent(name, key -> new CommandStats());
+        }
+        stats.latency.record(nanos);
+        if (allocatedBefore >= 0) {
+            stats.allocatedBytes.add(Math.max(0, allocatedBytes() - allocatedBefore));
+            stats.allocationSamples.increment();
+        }
+    }
+
+    void recordFormat(long nanos) {
+        formatLatency.record(nanos);
+    }
+
+    void recordDisplayUpdate(long nanos) {
+        displayLatency.record(nanos);
+    }
+
+    /**
+     * 模型从正常状态进入错误态。
+     */
+    void recordError(String message) {
+        errorEntries.increment();
+        errors.computeIfAbsent(message, key -> new LongAdder()).increment();
+    }
+
+    /**
+     * 以 {@link #OBJECT_NAME} 注册到平台 MBeanServer；同名的旧实例会被替换。
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(OBJECT_NAME);
+        if (server.isRegistered(name)) {
+            server.unregisterMBean(name);
+        }
+        server.registerMBean(this, name);
+    }
+
+    /**
+     * 每隔 periodSeconds 秒把 {@link #getReport()} 写到 out（守护线程），关闭返回值即停止。
+     */
+    public AutoCloseable startPeriodicDump(long periodSeconds, PrintStream out) {
+        if (periodSeconds <= 0) {
+            throw new IllegalArgumentException("Dump period must be positive");
+        }
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "calculator-metrics-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> out.print(getReport()), periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        return executor::shutdownNow;
+    }
+
+    @Override
+    public Map<String, Long> getCommandCounts() {
+        return commandTable(stats -> stats.latency.getCount());
+    }
+
+    @Override
+    public Map<String, Long> getCommandP50Nanos() {
+        return commandTable(stats -> stats.latency.valueAtPercentile(50));
+    }
+
+    @Override
+    public Map<String, Long> getCommandP99Nanos() {
+        return commandTable(stats -> stats.latency.valueAtPercentile(99));
+    }
+
+    @Override
+    public Map<String, Long> getCommandMaxNanos() {
+        return commandTable(stats -> stats.latency.getMax());
+    }
+
+    @Override
+    public Map<String, Long> getCommandBytesPerCall() {
+        Map<String, Long> table = new TreeMap<>();
+        for (Map.Entry<String, CommandStats> entry : commands.entrySet()) {
+            long bytesPerCall = entry.getValue().bytesPerCall();
+            if (bytesPerCall >= 0) {
+                table.put(entry.getKey(), bytesPerCall);
+            }
+        }
+        return table;
+    }
+
+    @Override
+    public long getErrorEntries() {
+        return errorEntries.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> table = new TreeMap<>();
+        errors.forEach((message, count) -> table.put(message, count.sum()));
+        return table;
+    }
+
+    @Override
+    public long getFormatCount() {
+        return formatLatency.getCount();
+    }
+
+    @Override
+    public long getFormatP99Nanos() {
+        return formatLatency.valueAtPercentile(99);
+    }
+
+    @Override
+    public long getDisplayUpdateCount() {
+        return displayLatency.getCount();
+    }
+
+    @Override
+    public long getDisplayUpdateP99Nanos() {
+        return displayLatency.valueAtPercentile(99);
+    }
+
+    /**
+     * 文本报告：每行一个命令或阶段，延迟单位微秒。
+     */
+    @Override
+    public String getReport() {
+        StringBuilder report = new StringBuilder();
+        report.append("# calculator metrics ")
+                .append(new SimpleDateFormat("yyyy-MM-dd HH:mm:ss").format(new Date()))
+                .append(String.format("%n%-16s %10s %10s %10s %10s %10s %12s%n",
+                        "command", "count", "mean us", "p50 us", "p99 us", "max us", "B/call"));
+        for (Map.Entry<String, CommandStats> entry : new TreeMap<>(commands).entrySet()) {
+            appendRow(report, entry.getKey(), entry.getValue().latency, entry.getValue().bytesPerCall());
+        }
+        appendRow(report, "[format]", formatLatency, -1);
+        appendRow(report, "[display]", displayLatency, -1);
+        report.append(String.format("errors %d %s%n", getErrorEntries(), getErrorCounts()));
+        return report.toString();
+    }
+
+    private Map<String, Long> commandTable(ToLongFunction<CommandStats> value) {
+        Map<String, Long> table = new TreeMap<>();
+        commands.forEach((name, stats) -> table.put(name, value.applyAsLong(stats)));
+        return table;
+    }
+
+    private static void appendRow(StringBuilder report, String name, LatencyHistogram latency, long bytesPerCall) {
+        report.append(String.format("%-16s %10d %10.1f %10.1f %10.1f %10.1f %12s%n", name, latency.getCount(),
+                latency.getMean() / 1e3, latency.valueAtPercentile(50) / 1e3, latency.valueAtPercentile(99) / 1e3,
+                latency.getMax() / 1e3, bytesPerCall < 0 ? "-" : Long.toString(bytesPerCall)));
+    }
+
+    private static final class CommandStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder allocatedBytes = new LongAdder();
+        final LongAdder allocationSamples = new LongAdder();
+
+        /**
+         * 平均每次分配的字节数；没有分配数据时返回 -1。
+         */
+        long bytesPerCall() {
+            long samples = allocationSamples.sum();
+            return samples == 0 ? -1 : allocatedBytes.sum() / samples;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package calculator;
+
+import java.util.Map;
+
+/**
+ * {@link CalculatorMetrics} 的 JMX 视图（jconsole/VisualVM 中的 "calculator:type=CalculatorMetrics"）。
+ * 按命令分组的数据以“命令 → 数值”的表格给出，命令名与按钮标签一致，所有数字键合并为 "digit"。
+ * 时间单位都是纳秒。
+ */
+public interface CalculatorMetricsMXBean {
+
+    Map<String, Long> getCommandCounts();
+
+    Map<String, Long> getCommandP50Nanos();
+
+    Map<String, Long> getCommandP99Nanos();
+
+    Map<String, Long> getCommandMaxNanos();
+
+    /**
+     * 每条命令平均分配的字节数；JVM 不支持线程分配计数时为空表。
+     */
+    Map<String, Long> getCommandBytesPerCall();
+
+    /**
+     * 进入错误态的总次数。
+     */
+    long getErrorEntries();
+
+    /**
+     * 按错误消息分组的进入错误态次数。
+     */
+    Map<String, Long> getErrorCounts();
+
+    long getFormatCount();
+
+    long getFormatP99Nanos();
+
+    long getDisplayUpdateCount();
+
+    long getDisplayUpdateP99Nanos();
+
+    /**
+     * 与定期文本输出相同的完整报告。
+     */
+    String getReport();
+}
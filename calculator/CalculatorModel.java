@@ -1,8 +1,13 @@
 package calculator;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
 
 /**
  * 计算器的“数据与业务大脑”：集中管理当前输入、累加器、历史显示以及所有算术规则。
@@ -18,15 +23,59 @@ public class CalculatorModel {
         SQUARE_ROOT,
         RECIPROCAL,
         PERCENT,
-        NEGATE
+        NEGATE,
+        SINE,
+        COSINE,
+        TANGENT,
+        NATURAL_LOGARITHM,
+        COMMON_LOGARITHM,
+        EXPONENTIAL,
+        FACTORIAL
     }
 
-    // 所有 BigDecimal 运算共用的精度与舍入方式，确保乘除/倒数统一。
+    /**
+     * 统计模式可以调出的统计量，调出的值进入主显示区，可以继续参与运算。
+     */
+    public enum Statistic {
+        COUNT("n"),
+        SUM("\u03a3x"),
+        MEAN("x\u0304"),
+        VARIANCE("s\u00b2"),
+        STANDARD_DEVIATION("s"),
+        MIN("min"),
+        MAX("max");
+
+        private final String label;
+
+        Statistic(String label) {
+            this.label = label;
+        }
+
+        /**
+         * 按钮/菜单上的符号，同时是 {@link CalculatorCommands} 中的命令名。
+         */
+        public String getLabel() {
+            return label;
+        }
+    }
+
+    /**
+     * 长时间运算的进度回调，fraction 取值 0..1。
+     * 回调发生在执行运算的线程上，监听方需要自行切回 EDT。
+     */
+    public interface ProgressListener {
+        void onProgress(double fraction);
+    }
+
+    // 所有 BigDecimal 运算共用的默认精度与舍入方式，确保乘除/倒数统一。
     private static final MathContext DEFAULT_CONTEXT = new MathContext(16, RoundingMode.HALF_UP);
+    // 可选精度的上下限：不低于 16 位，保证定点快速路径与默认行为一致。
+    public static final int MIN_PRECISION = 16;
+    public static final int MAX_PRECISION = 100_000;
     private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
 
-    // currentInput 保存显示屏上的“正在输入”部分，使用 StringBuilder 便于退格。
-    private final StringBuilder currentInput = new StringBuilder("0");
+    // currentInput 保存显示屏上的“正在输入”部分，同时增量维护数值表示，取操作数时无需解析字符串。
+    private final InputBuffer currentInput = new InputBuffer();
     // accumulator 存储立即执行链路中已确认的左操作数。
     private BigDecimal accumulator = BigDecimal.ZERO;
     // pendingOperator 记录等待执行的二元运算符（+、-、×、÷）。
@@ -37,6 +86,86 @@ public class CalculatorModel {
     private String historyDisplay = "";
     // errorMessage 非空即表示出现错误，此时显示屏上只显示错误内容。
     private String errorMessage;
+    // 负责把 BigDecimal 转成有界宽度的显示文本，并缓存最近一次结果。
+    private final DisplayFormatter displayFormatter = new DisplayFormatter();
+    // 当前使用的精度；高精度下除法/开方/倒数可能耗时数秒，由控制器放到后台执行。
+    private MathContext mathContext = DEFAULT_CONTEXT;
+    // 可选的进度监听器，只在长时间的迭代运算中回调。
+    private ProgressListener progressListener;
+    // 精确模式：加减乘除、倒数、百分号改用分数运算，BigDecimal 只用于显示。
+    private boolean exactMode;
+    // 与 accumulator 对应的精确值；null 表示 accumulator 本身就是精确的有限小数。
+    private BigRational exactAccumulator;
+    // 与 currentInput 中运算结果对应的精确值，仅当 currentInput 仍显示 exactInputDisplayed 这个结果时有效。
+    private BigRational exactInput;
+    private BigDecimal exactInputDisplayed;
+    // 可选的历史纸带：每次成功的等号运算都追加一条记录。
+    private HistoryTape historyTape;
+    // 后台副本不直接写纸带：等号运算的记录先暂存在这里，提交（copyStateFrom）时由主模型在 EDT 上写入；
+    // 取消的运算连同记录一起丢弃。null 表示不暂存。
+    private List<HistoryEntry> deferredHistory;
+    // 可选的撤销/重做栈；为 null 时命令不做任何快照。
+    private UndoHistory undoHistory;
+    // 高精度运算的结果缓存，默认与其他模型实例共享；为 null 时不缓存。
+    private OperationCache operationCache = OperationCache.shared();
+    // 可选的运行指标：格式化耗时与进入错误态的次数记在这里，命令耗时由 CalculatorCommands 记录。
+    private CalculatorMetrics metrics;
+    // 统计模式的数据；null 表示没有数据。按不可变值使用：加入数据时先复制再修改，
+    // 因此撤销快照与后台副本可以直接共享引用。
+    private StatisticsAccumulator statistics;
+    // 为其他线程上的读者发布的状态快照（见 setStatePublishing）；只由写入线程赋值，读者无锁读取。
+    private volatile CalculatorState published;
+    // 是否在每次状态变化后发布快照；只在写入线程上读写。
+    private boolean publishing;
+
+    public CalculatorModel() {
+    }
+
+    /**
+     * 复制构造：得到一份状态完全相同、互不影响的模型，
+     * 供控制器在后台线程上计算，完成后再用 {@link #copyStateFrom} 提交回来。
+     */
+    CalculatorModel(CalculatorModel source) {
+        copyStateFrom(source);
+        // 后台副本上完成的等号运算同样要写进纸带，但只在结果被提交时写：
+        // 被取消的运算不应留下记录，工作线程带着中断标志做通道 I/O 还会让 FileChannel 被永久关闭。
+        if (source.historyTape != null) {
+            deferredHistory = new ArrayList<>(1);
+        }
+        operationCache = source.operationCache;
+        metrics = source.metrics;
+    }
+
+    /**
+     * 用另一个模型的状态覆盖当前模型（不包括进度监听器、历史纸带与撤销栈）；
+     * source 是后台副本时，它暂存的纸带记录在这里写入当前模型的纸带。
+     * 控制器用它提交后台运算的结果，因此这同样是一步可撤销的操作。
+     */
+    void copyStateFrom(CalculatorModel source) {
+        checkpoint();
+        currentInput.copyFrom(source.currentInput);
+        accumulator = source.accumulator;
+        pendingOperator = source.pendingOperator;
+        resetInputOnNextDigit = source.resetInputOnNextDigit;
+        historyDisplay = source.historyDisplay;
+        errorMessage = source.errorMessage;
+        mathContext = source.mathContext;
+        exactMode = source.exactMode;
+        exactAccumulator = source.exactAccumulator;
+        exactInput = source.exactInput;
+        exactInputDisplayed = source.exactInputDisplayed;
+        statistics = source.statistics;
+        if (displayFormatter.getMaxWidth() != source.displayFormatter.getMaxWidth()) {
+            displayFormatter.setMaxWidth(source.displayFormatter.getMaxWidth());
+        }
+        if (source.deferredHistory != null) {
+            for (HistoryEntry entry : source.deferredHistory) {
+                recordHistory(entry.left, entry.operator, entry.right, entry.result);
+            }
+            source.deferredHistory.clear();
+        }
+        publish();
+    }
 
     /**
      * 输入一位数字（0-9）。
@@ -46,39 +175,38 @@ public class CalculatorModel {
         if (digit < 0 || digit > 9) {
             throw new IllegalArgumentException("Digit must be between 0 and 9");
         }
+        checkpoint();
         if (isErrorState()) {
             return;
         }
         if (resetInputOnNextDigit) {
             // 刚执行完一次运算，需要从 0 开始新的输入。
-            overwriteInput("0");
+            currentInput.reset();
             resetInputOnNextDigit = false;
         }
-        if (currentInput.length() == 1 && currentInput.charAt(0) == '0') {
-            // 去掉单独的 0，避免形成 0123。
-            currentInput.setLength(0);
-        }
-        currentInput.append((char) ('0' + digit));
+        // InputBuffer 会去掉单独的 0，避免形成 0123。
+        currentInput.appendDigit(digit);
+        publish();
     }
 
     /**
      * 输入小数点：若当前值没有小数点则追加，若刚执行完运算则补 0.。
      */
     public void inputDecimalPoint() {
+        checkpoint();
         if (isErrorState()) {
             return;
         }
         if (resetInputOnNextDigit) {
-            overwriteInput("0");
+            currentInput.reset();
             resetInputOnNextDigit = false;
         }
-        if (currentInput.indexOf(".") == -1) {
-            currentInput.append('.');
-        }
+        currentInput.appendDecimalPoint();
+        publish();
     }
 
     /**
-     * 应用二元运算符（+、-、×、÷），遵循“立即执行”规则：
+     * 应用二元运算符（+、-、×、÷、^、nCr），遵循“立即执行”规则：
      * - 第一次按运算符时把当前输入搬到 accumulator；
      * - 再次按运算符会先计算 accumulator (op) currentInput；
      * - 如果刚按完运算符又换一个运算符，只替换 pendingOperator。
@@ -90,20 +218,27 @@ public class CalculatorModel {
         if (isBlank(operator)) {
             throw new IllegalArgumentException("Operator cannot be blank");
         }
+        checkpoint();
         if (pendingOperator != null && resetInputOnNextDigit) {
             // 用户在没有输入新数字前重复按运算符，只需改历史和待执行运算符。
             pendingOperator = operator;
             historyDisplay = formatBigDecimal(accumulator) + " " + operator;
+            publish();
             return;
         }
         BigDecimal inputValue = getCurrentInputValue();
         try {
             if (pendingOperator == null) {
                 // 链路的第一步：把当前输入记为左操作数。
+                exactAccumulator = exactMode ? exactCurrentInput() : null;
                 accumulator = inputValue;
+            } else if (computesExactly(pendingOperator)) {
+                exactAccumulator = BigRational.compute(exactAccumulator(), exactCurrentInput(), pendingOperator);
+                accumulator = exactAccumulator.toBigDecimal(mathContext);
             } else {
                 // 立即执行：把之前的运算符派上用场，并把结果继续放入 accumulator。
-                accumulator = computeBinaryOperation(accumulator, inputValue, pendingOperator);
+                accumulator = computePending(accumulator, inputValue);
+                exactAccumulator = null;
             }
         } catch (ArithmeticException ex) {
             setErrorMessage(ex.getMessage() == null ? "Math error" : ex.getMessage());
@@ -112,42 +247,95 @@ public class CalculatorModel {
         pendingOperator = operator;
         historyDisplay = formatBigDecimal(accumulator) + " " + operator;
         resetInputOnNextDigit = true;
+        publish();
     }
 
     /**
      * 按下等号：仅当有待执行的运算符时才执行运算，并把结果显示在主显示区。
      */
     public void evaluate() {
+        checkpoint();
         if (isErrorState()) {
             return;
         }
         if (pendingOperator == null) {
             historyDisplay = "";
+            publish();
             return;
         }
         BigDecimal leftOperand = accumulator;
         BigDecimal rightOperand = getCurrentInputValue();
         try {
-            BigDecimal result = computeBinaryOperation(leftOperand, rightOperand, pendingOperator);
+            BigRational exactResult = null;
+            BigDecimal result;
+            if (computesExactly(pendingOperator)) {
+                exactResult = BigRational.compute(exactAccumulator(), exactCurrentInput(), pendingOperator);
+                result = exactResult.toBigDecimal(mathContext);
+            } else {
+                result = computePending(leftOperand, rightOperand);
+            }
             historyDisplay = formatBigDecimal(leftOperand) + " " + pendingOperator + " "
                     + formatBigDecimal(rightOperand) + " =";
+            overwriteInput(result, exactResult);
+            resetInputOnNextDigit = true;
+            accumulator = result;
+            exactAccumulator = exactResult;
+            recordHistory(leftOperand, pendingOperator, rightOperand, result);
+            pendingOperator = null;
+            publish();
+        } catch (ArithmeticException ex) {
+            setErrorMessage(ex.getMessage() == null ? "Math error" : ex.getMessage());
+        }
+    }
+
+    /**
+     * 直接计算一整条表达式（例如粘贴进来的 "(3+4)×2÷7"）：按运算符优先级求值，
+     * 加减乘除与按键链路使用同一套规则。结果进入主显示区，可以继续参与后续运算；
+     * 无法解析或含有未赋值变量的表达式显示 "Invalid expression"。
+     */
+    public void evaluateExpression(String expression) {
+        if (isBlank(expression)) {
+            throw new IllegalArgumentException("Expression cannot be blank");
+        }
+        checkpoint();
+        if (isErrorState()) {
+            return;
+        }
+        CompiledExpression compiled;
+        try {
+            compiled = ExpressionCompiler.shared().compile(expression.trim());
+        } catch (IllegalArgumentException ex) {
+            setErrorMessage("Invalid expression");
+            return;
+        }
+        if (!compiled.getVariables().isEmpty()) {
+            setErrorMessage("Invalid expression");
+            return;
+        }
+        try {
+            BigDecimal result = compiled.evaluate(mathContext);
+            historyDisplay = compiled.getSource() + " =";
             overwriteInput(result);
             resetInputOnNextDigit = true;
             accumulator = result;
+            exactAccumulator = null;
             pendingOperator = null;
+            publish();
         } catch (ArithmeticException ex) {
             setErrorMessage(ex.getMessage() == null ? "Math error" : ex.getMessage());
         }
     }
 
     /**
-     * 执行一元运算：平方根、倒数、百分号、取反号。
+     * 执行一元运算：平方根、倒数、百分号、取反号，以及 sin/cos/tan（弧度）、ln、log10、e^x、n!。
      * 这些运算通常在当前输入数字上直接生效，部分情况下需要更新 historyDisplay。
+     * 科学函数按当前精度计算，精确模式下同样按小数计算。
      */
     public void applyUnaryOperation(UnaryOperation operation) {
         if (operation == null) {
             throw new IllegalArgumentException("Operation cannot be null");
         }
+        checkpoint();
         if (isErrorState()) {
             return;
         }
@@ -160,7 +348,7 @@ public class CalculatorModel {
                         setErrorMessage("Invalid input");
                         return;
                     }
-                    BigDecimal sqrtValue = sqrt(value);
+                    BigDecimal sqrtValue = memoized("\u221a", value, null, () -> sqrt(value));
                     historyDisplay = "\u221a(" + formatBigDecimal(value) + ")";
                     overwriteInput(sqrtValue);
                     resetInputOnNextDigit = true;
@@ -170,22 +358,31 @@ public class CalculatorModel {
                         setErrorMessage("Cannot divide by zero");
                         return;
                     }
-                    BigDecimal reciprocal = BigDecimal.ONE.divide(value, DEFAULT_CONTEXT);
+                    BigRational exactReciprocal = exactMode ? exactCurrentInput().reciprocal() : null;
+                    BigDecimal reciprocal = exactMode
+                            ? exactReciprocal.toBigDecimal(mathContext)
+                            : memoized("1/x", value, null, () -> BigDecimal.ONE.divide(value, mathContext));
                     historyDisplay = "1/(" + formatBigDecimal(value) + ")";
-                    overwriteInput(reciprocal);
+                    overwriteInput(reciprocal, exactReciprocal);
                     resetInputOnNextDigit = true;
                     break;
                 case PERCENT:
                     BigDecimal percentResult;
-                    if (pendingOperator == null) {
+                    BigRational exactPercent = null;
+                    if (exactMode) {
+                        exactPercent = pendingOperator == null
+                                ? exactCurrentInput().percent()
+                                : exactAccumulator().multiply(exactCurrentInput()).percent();
+                        percentResult = exactPercent.toBigDecimal(mathContext);
+                    } else if (pendingOperator == null) {
                         // 没有待执行运算符，则将当前值直接除以 100。
-                        percentResult = value.divide(ONE_HUNDRED, DEFAULT_CONTEXT);
+                        percentResult = value.divide(ONE_HUNDRED, mathContext);
                     } else {
                         // 存在运算符时采用 Windows 计算器规则：accumulator * current / 100。
-                        percentResult = accumulator.multiply(value, DEFAULT_CONTEXT)
-                                .divide(ONE_HUNDRED, DEFAULT_CONTEXT);
+                        percentResult = accumulator.multiply(value, mathContext)
+                                .divide(ONE_HUNDRED, mathContext);
                     }
-                    overwriteInput(percentResult);
+                    overwriteInput(percentResult, exactPercent);
                     resetInputOnNextDigit = true;
                     if (pendingOperator != null) {
                         historyDisplay = formatBigDecimal(accumulator) + " " + pendingOperator + " "
@@ -193,16 +390,161 @@ public class CalculatorModel {
                     }
                     break;
                 case NEGATE:
-                    if (value.compareTo(BigDecimal.ZERO) == 0 && currentInput.indexOf(".") == -1) {
+                    if (value.compareTo(BigDecimal.ZERO) == 0 && !currentInput.hasDecimalPoint()) {
                         // 对纯 0 取负没有意义，避免出现 -0。
                         return;
                     }
-                    overwriteInput(value.negate(DEFAULT_CONTEXT));
+                    if (!currentInput.negateInPlace()) {
+                        BigRational exactNegated = exactMode ? exactCurrentInput().negate() : null;
+                        overwriteInput(value.negate(mathContext), exactNegated);
+                    }
                     resetInputOnNextDigit = false;
                     break;
+                case SINE:
+                    applyFunction("sin", value, () -> BigDecimalMath.sin(value, mathContext));
+                    break;
+                case COSINE:
+                    applyFunction("cos", value, () -> BigDecimalMath.cos(value, mathContext));
+                    break;
+                case TANGENT:
+                    applyFunction("tan", value, () -> BigDecimalMath.tan(value, mathContext));
+                    break;
+                case NATURAL_LOGARITHM:
+                    applyFunction("ln", value, () -> BigDecimalMath.ln(value, mathContext));
+                    break;
+                case COMMON_LOGARITHM:
+                    applyFunction("log", value, () -> BigDecimalMath.log10(value, mathContext));
+                    break;
+                case EXPONENTIAL:
+                    applyFunction("exp", value, () -> BigDecimalMath.exp(value, mathContext));
+                    break;
+                case FACTORIAL:
+                    applyFunction("fact", value, () -> BigDecimalMath.factorial(value, mathContext));
+                    break;
                 default:
                     throw new IllegalStateException("Unsupported operation: " + operation);
             }
+            publish();
+        } catch (ArithmeticException ex) {
+            setErrorMessage(ex.getMessage() == null ? "Math error" : ex.getMessage());
+        }
+    }
+
+    /**
+     * Σ+：把当前输入加入统计数据，历史区显示数据个数，下一次输入数字时开始一个新的数。
+     * 数据的存储方式在第一个数据加入时确定：开启精确模式时保存精确小数，否则只保存 double，
+     * 直到 {@link #clearStatistics()} 清空为止。
+     */
+    public void addStatisticsValue() {
+        checkpoint();
+        if (isErrorState()) {
+            return;
+        }
+        StatisticsAccumulator value = new StatisticsAccumulator(statisticsExact());
+        try {
+            value.add(getCurrentInputValue());
+        } catch (IllegalArgumentException ex) {
+            // 超出 double 范围的输入。
+            setErrorMessage("Overflow");
+            return;
+        }
+        mergeStatistics(value);
+    }
+
+    /**
+     * 把一段文本（例如粘贴进来的一整列数字）中的所有数字加入统计数据，
+     * 分隔规则见 {@link StatisticsAccumulator#parse}；长文本在多个线程上并行解析。
+     * 只要有一个记号无法解析就一个也不加入，并显示 "Invalid input"。
+     */
+    public void addStatisticsValues(CharSequence text) {
+        checkpoint();
+        if (isErrorState()) {
+            return;
+        }
+        try {
+            mergeStatistics(StatisticsAccumulator.parse(text, statisticsExact()));
+        } catch (IllegalArgumentException ex) {
+            setErrorMessage("Invalid input");
+        }
+    }
+
+    /**
+     * 同上，数字来自字符流（例如文件），逐块读取，内存占用与数据量无关。
+     */
+    public void addStatisticsValues(Reader in) throws IOException {
+        checkpoint();
+        if (isErrorState()) {
+            return;
+        }
+        try {
+            mergeStatistics(StatisticsAccumulator.read(in, statisticsExact()));
+        } catch (IllegalArgumentException ex) {
+            setErrorMessage("Invalid input");
+        }
+    }
+
+    /**
+     * CAD：清空统计数据，当前输入保持不变。
+     */
+    public void clearStatistics() {
+        checkpoint();
+        statistics = null;
+        if (!isErrorState()) {
+            historyDisplay = "n = 0";
+        }
+        publish();
+    }
+
+    /**
+     * 调出一个统计量作为当前输入，历史区显示统计量符号与数据个数。
+     * 精确数据在精确模式下的和、均值与方差带有精确分数，可以继续参与精确运算；
+     * 没有数据时的均值、最值，以及少于两个数据时的方差与标准差显示 "Invalid input"。
+     */
+    public void recallStatistic(Statistic statistic) {
+        if (statistic == null) {
+            throw new IllegalArgumentException("Statistic cannot be null");
+        }
+        checkpoint();
+        if (isErrorState()) {
+            return;
+        }
+        StatisticsAccumulator data = statistics != null ? statistics : new StatisticsAccumulator(exactMode);
+        boolean exact = exactMode && data.isExact();
+        try {
+            BigDecimal value;
+            BigRational exactValue = null;
+            switch (statistic) {
+                case COUNT:
+                    value = BigDecimal.valueOf(data.count());
+                    break;
+                case SUM:
+                    value = data.sum(mathContext);
+                    exactValue = exact ? BigRational.valueOf(data.sum(MathContext.UNLIMITED)) : null;
+                    break;
+                case MEAN:
+                    exactValue = exact ? data.exactMean() : null;
+                    value = exact ? exactValue.toBigDecimal(mathContext) : data.mean(mathContext);
+                    break;
+                case VARIANCE:
+                    exactValue = exact ? data.exactVariance() : null;
+                    value = exact ? exactValue.toBigDecimal(mathContext) : data.variance(mathContext);
+                    break;
+                case STANDARD_DEVIATION:
+                    value = data.standardDeviation(mathContext);
+                    break;
+                case MIN:
+                    value = data.min(mathContext);
+                    break;
+                case MAX:
+                    value = data.max(mathContext);
+                    break;
+                default:
+                    throw new IllegalStateException("Unsupported statistic: " + statistic);
+            }
+            historyDisplay = statistic.getLabel() + " (n = " + data.count() + ")";
+            overwriteInput(value, exactValue);
+            resetInputOnNextDigit = true;
+            publish();
         } catch (ArithmeticException ex) {
             setErrorMessage(ex.getMessage() == null ? "Math error" : ex.getMessage());
         }
@@ -212,44 +554,83 @@ public class CalculatorModel {
      * CE 行为：仅清空当前输入；若处于错误状态则退化为 C。
      */
     public void clearEntry() {
+        checkpoint();
         if (isErrorState()) {
             clearAll();
             return;
         }
-        overwriteInput("0");
+        currentInput.reset();
         resetInputOnNextDigit = false;
+        publish();
     }
 
     /**
      * C 行为：清空当前输入、累加器、历史与错误信息。
      */
     public void clearAll() {
-        overwriteInput("0");
+        checkpoint();
+        currentInput.reset();
         accumulator = BigDecimal.ZERO;
+        exactAccumulator = null;
         pendingOperator = null;
         historyDisplay = "";
         errorMessage = null;
         resetInputOnNextDigit = true;
+        publish();
+    }
+
+    /**
+     * 回到新建模型时的状态：C 之外还清空统计数据，并恢复默认精度与非精确模式。
+     * 服务会话、批处理脚本与流水线复用同一个模型实例时用它复位，上一个使用者的数据不会带到下一个。
+     * 历史纸带、结果缓存、运行指标与撤销栈等挂接的设施不受影响。
+     */
+    public void reset() {
+        clearStatistics();
+        clearAll();
+        setExactMode(false);
+        setPrecision(MIN_PRECISION);
     }
 
     /**
      * 退格：删除当前输入的最后一个字符；如果刚执行完一次运算，则把显示重置为 0。
      */
     public void backspace() {
+        checkpoint();
         if (isErrorState()) {
             return;
         }
         if (resetInputOnNextDigit) {
             // 运算完立即退格相当于开始新的数字，直接回到 0。
-            overwriteInput("0");
+            currentInput.reset();
             resetInputOnNextDigit = false;
+            publish();
             return;
         }
-        if (currentInput.length() <= 1 || (currentInput.length() == 2 && currentInput.charAt(0) == '-')) {
-            overwriteInput("0");
-        } else {
-            currentInput.deleteCharAt(currentInput.length() - 1);
+        // 只剩一位数字（或 "-" 加一位数字）时由 InputBuffer 回到 0。
+        currentInput.deleteLast();
+        publish();
+    }
+
+    /**
+     * 按下等号/运算符时将要执行的大整数运算的规模：待执行 ^ 时是指数的绝对值，nCr 时是 min(k, n-k)，
+     * 其他情况为 0。控制器据此判断这一步会不会耗时。
+     */
+    BigDecimal pendingIntegerWork() {
+        BigDecimal right = getCurrentInputValue().abs();
+        if ("^".equals(pendingOperator)) {
+            return right;
+        }
+        if ("nCr".equals(pendingOperator)) {
+            return right.min(accumulator.subtract(getCurrentInputValue()).abs());
         }
+        return BigDecimal.ZERO;
+    }
+
+    /**
+     * 当前输入的数值（即下一次运算的右操作数或一元运算的参数）。
+     */
+    BigDecimal getCurrentValue() {
+        return getCurrentInputValue();
     }
 
     /**
@@ -269,6 +650,180 @@ public class CalculatorModel {
         return currentInput.toString();
     }
 
+    /**
+     * 主显示区内容的完整精度版本（复制结果用）：显示区按宽度舍入，这里给出全部有效数字，
+     * 格式见 {@link DisplayFormatter#fullText}；错误时与主显示区相同。
+     */
+    public String getFullPrecisionDisplay() {
+        if (isErrorState()) {
+            return errorMessage;
+        }
+        return DisplayFormatter.fullText(getCurrentInputValue());
+    }
+
+    /**
+     * 设置运算精度（有效数字位数），范围 {@link #MIN_PRECISION}..{@link #MAX_PRECISION}。
+     * 只影响之后的运算，已经显示的结果保持不变。
+     */
+    public void setPrecision(int digits) {
+        if (digits < MIN_PRECISION || digits > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION
+                    + " and " + MAX_PRECISION);
+        }
+        mathContext = digits == DEFAULT_CONTEXT.getPrecision()
+                ? DEFAULT_CONTEXT
+                : new MathContext(digits, RoundingMode.HALF_UP);
+        publish();
+    }
+
+    public int getPrecision() {
+        return mathContext.getPrecision();
+    }
+
+    /**
+     * 开启/关闭精确分数模式。开启后 1/x 再 1/x、÷3 再 ×3 之类的链路结果精确，
+     * 只在显示时按当前精度换算成小数；平方根、科学函数、乘方与表达式求值仍按小数计算。
+     * 切换只影响之后的运算。
+     */
+    public void setExactMode(boolean exactMode) {
+        this.exactMode = exactMode;
+        if (!exactMode) {
+            exactAccumulator = null;
+            exactInput = null;
+            exactInputDisplayed = null;
+        }
+        publish();
+    }
+
+    public boolean isExactMode() {
+        return exactMode;
+    }
+
+    /**
+     * 挂接历史纸带（可为 null）；纸带的打开与关闭由调用方负责。
+     */
+    public void setHistoryTape(HistoryTape historyTape) {
+        this.historyTape = historyTape;
+    }
+
+    public HistoryTape getHistoryTape() {
+        return historyTape;
+    }
+
+    /**
+     * 设置高精度运算的结果缓存（可为 null 表示不缓存），默认是 {@link OperationCache#shared()}。
+     * 同一个缓存可以被多个模型、多个线程同时使用。
+     */
+    public void setOperationCache(OperationCache operationCache) {
+        this.operationCache = operationCache;
+    }
+
+    public OperationCache getOperationCache() {
+        return operationCache;
+    }
+
+    /**
+     * 挂接运行指标（可为 null）；同一个实例可以被多个模型共享。
+     */
+    public void setMetrics(CalculatorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public CalculatorMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 开启撤销/重做：maxBytes 是撤销栈估算内存占用的上限，超出后丢弃最旧的记录；
+     * 0 表示关闭并清空。每条命令只保存一个共享未变部分的不可变快照（见 {@link CalculatorState}）。
+     */
+    public void setUndoMemoryLimit(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Undo memory limit cannot be negative");
+        }
+        undoHistory = maxBytes == 0 ? null : new UndoHistory(maxBytes);
+    }
+
+    /**
+     * 撤销上一条改变了状态的命令；没有可撤销的命令时返回 false。
+     * 精度与精确模式属于设置而不是计算状态，撤销时保持不变。
+     */
+    public boolean undo() {
+        if (undoHistory == null) {
+            return false;
+        }
+        CalculatorState previous = undoHistory.undo(snapshot());
+        if (previous == null) {
+            return false;
+        }
+        restore(previous);
+        return true;
+    }
+
+    /**
+     * 重做最近一次被撤销的命令；没有可重做的命令时返回 false。
+     */
+    public boolean redo() {
+        if (undoHistory == null) {
+            return false;
+        }
+        CalculatorState next = undoHistory.redo(snapshot());
+        if (next == null) {
+            return false;
+        }
+        restore(next);
+        return true;
+    }
+
+    public boolean canUndo() {
+        return undoHistory != null && undoHistory.canUndo(snapshot());
+    }
+
+    public boolean canRedo() {
+        return undoHistory != null && undoHistory.canRedo(snapshot());
+    }
+
+    /**
+     * 当前状态的不可变快照，O(1)：输入缓冲区的字符数组与快照共享，其余字段本身就是不可变对象。
+     */
+    CalculatorState snapshot() {
+        return new CalculatorState(currentInput.snapshot(), accumulator, pendingOperator, resetInputOnNextDigit,
+                historyDisplay, errorMessage, mathContext, exactMode, exactAccumulator, exactInput,
+                exactInputDisplayed, statistics);
+    }
+
+    /**
+     * 开启/关闭状态发布。开启后每次状态变化都把一个不可变的 {@link CalculatorState} 写入单个 volatile 引用，
+     * 其他线程（远程镜像、日志旁路等）通过 {@link #getPublishedState()} 无锁读取一致的主显示与历史显示，
+     * 不会看到一条命令执行到一半的状态。与其他修改方法一样，只能在写入线程（通常是 EDT）上调用。
+     */
+    public void setStatePublishing(boolean enabled) {
+        publishing = enabled;
+        published = enabled ? snapshot() : null;
+    }
+
+    public boolean isStatePublishing() {
+        return publishing;
+    }
+
+    /**
+     * 最近一次发布的状态，可以在任意线程上调用；未开启发布时返回 null。
+     */
+    public CalculatorState getPublishedState() {
+        return published;
+    }
+
+    public void setProgressListener(ProgressListener listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * 设置显示宽度上限（字符数）：普通写法超过该宽度的数值会以科学计数法显示。
+     */
+    public void setMaxDisplayWidth(int maxWidth) {
+        displayFormatter.setMaxWidth(maxWidth);
+    }
+
     /**
      * 返回历史显示区内容：错误时隐藏历史，避免出现“错误 +”的组合。
      */
@@ -280,67 +835,248 @@ public class CalculatorModel {
     }
 
     /**
-     * 根据运算符执行加减乘除，所有逻辑都围绕 BigDecimal 展开。
+     * 根据运算符执行加减乘除、乘方（^）与组合数（nCr），所有逻辑都围绕 BigDecimal 展开。
      * 之所以接受字符串，是因为控制器直接把按钮上的字符转进来。
+     * 常见的小整数/短小数先尝试定点 long 快速路径，只有可能溢出或需要舍入时才回退到 BigDecimal。
+     * 表达式求值（{@link CompiledExpression}）复用同一套规则，因此做成静态方法并显式传入精度。
      */
-    private BigDecimal computeBinaryOperation(BigDecimal left, BigDecimal right, String operator) {
+    static BigDecimal computeBinaryOperation(BigDecimal left, BigDecimal right, String operator,
+                                             MathContext mathContext) {
+        BigDecimal fastResult = computeScaledLong(left, right, operator);
+        if (fastResult != null) {
+            return fastResult;
+        }
         switch (operator) {
             case "+":
-                return left.add(right, DEFAULT_CONTEXT);
+                return left.add(right, mathContext);
             case "-":
-                return left.subtract(right, DEFAULT_CONTEXT);
+                return left.subtract(right, mathContext);
             case "\u00d7":
             case "x":
             case "X":
             case "*":
-                return left.multiply(right, DEFAULT_CONTEXT);
+                return left.multiply(right, mathContext);
             case "\u00f7":
             case "/":
                 if (right.compareTo(BigDecimal.ZERO) == 0) {
                     throw new ArithmeticException("Cannot divide by zero");
                 }
-                return left.divide(right, DEFAULT_CONTEXT);
+                return left.divide(right, mathContext);
+            case "^":
+                return BigDecimalMath.pow(left, right, mathContext);
+            case "nCr":
+                return BigDecimalMath.binomial(left, right, mathContext);
             default:
                 throw new IllegalArgumentException("Unknown operator " + operator);
         }
     }
 
     /**
-     * 将 currentInput 转成 BigDecimal：
-     * - 单独的 "-" 被视为 0；
-     * - 末尾的 "." 会补上 0 以通过 BigDecimal 构造器。
+     * 定点 long 快速路径：结果不超过 16 位有效数字时与 BigDecimal 结果数值完全相同，
+     * 经 formatBigDecimal 格式化后的显示也逐字符一致。返回 null 表示需要回退。
+     * 除数为 0 同样返回 null，让 BigDecimal 路径抛出统一的错误消息。
+     */
+    private static BigDecimal computeScaledLong(BigDecimal left, BigDecimal right, String operator) {
+        long a = ScaledLongArithmetic.fromBigDecimal(left);
+        if (a == ScaledLongArithmetic.NOT_PACKED) {
+            return null;
+        }
+        long b = ScaledLongArithmetic.fromBigDecimal(right);
+        if (b == ScaledLongArithmetic.NOT_PACKED) {
+            return null;
+        }
+        long result;
+        switch (operator) {
+            case "+":
+                result = ScaledLongArithmetic.add(a, b);
+                break;
+            case "-":
+                result = ScaledLongArithmetic.subtract(a, b);
+                break;
+            case "\u00d7":
+            case "x":
+            case "X":
+            case "*":
+                result = ScaledLongArithmetic.multiply(a, b);
+                break;
+            case "\u00f7":
+            case "/":
+                result = ScaledLongArithmetic.divide(a, b);
+                break;
+            default:
+                return null;
+        }
+        return result == ScaledLongArithmetic.NOT_PACKED ? null : ScaledLongArithmetic.toBigDecimal(result);
+    }
+
+    /**
+     * 取当前输入的数值：由 InputBuffer 增量维护，不再解析字符串；
+     * 运算结果直接返回保存的 BigDecimal。
      */
     private BigDecimal getCurrentInputValue() {
-        String value = currentInput.toString();
-        if (value.equals("-")) {
-            return BigDecimal.ZERO;
+        return currentInput.value();
+    }
+
+    /**
+     * 精确模式下当前输入的分数值：仍显示着上一次精确运算的结果时直接取分数，
+     * 否则把输入的有限小数精确转换。
+     */
+    private BigRational exactCurrentInput() {
+        BigDecimal displayed = currentInput.result();
+        if (exactInput != null && displayed != null && displayed == exactInputDisplayed) {
+            return exactInput;
         }
-        if (value.endsWith(".")) {
-            value = value + "0";
+        return BigRational.valueOf(getCurrentInputValue());
+    }
+
+    /**
+     * 按键链路中待执行的二元运算：除法、乘方与组合数在高精度下代价高，先查结果缓存。
+     */
+    private BigDecimal computePending(BigDecimal left, BigDecimal right) {
+        String operator = pendingOperator;
+        if ("\u00f7".equals(operator) || "/".equals(operator) || "^".equals(operator) || "nCr".equals(operator)) {
+            return memoized(operator, left, right, () -> computeBinaryOperation(left, right, operator, mathContext));
+        }
+        return computeBinaryOperation(left, right, operator, mathContext);
+    }
+
+    /**
+     * 精度高于 {@link OperationCache#MIN_PRECISION} 且启用了缓存时，按（运算、操作数、精度）查缓存，
+     * 未命中再计算；否则直接计算。
+     */
+    private BigDecimal memoized(String operation, BigDecimal left, BigDecimal right, Supplier<BigDecimal> compute) {
+        if (operationCache == null || mathContext.getPrecision() <= OperationCache.MIN_PRECISION) {
+            return compute.get();
         }
-        return new BigDecimal(value);
+        return operationCache.compute(operation, left, right, mathContext, compute);
     }
 
     /**
-     * 用格式化后的 BigDecimal 替换 currentInput。
+     * 精确模式下该运算符能否按分数计算：乘方的结果一般不是有理数，组合数本身就是精确整数，
+     * 两者都按小数路径计算，结果不再带有精确值。
+     */
+    private boolean computesExactly(String operator) {
+        return exactMode && !"^".equals(operator) && !"nCr".equals(operator);
+    }
+
+    private BigRational exactAccumulator() {
+        return exactAccumulator != null ? exactAccumulator : BigRational.valueOf(accumulator);
+    }
+
+    /**
+     * 用运算结果替换 currentInput：显示文本格式化一次，数值原样保留。
      */
     private void overwriteInput(BigDecimal value) {
-        overwriteInput(formatBigDecimal(value));
+        overwriteInput(value, null);
+    }
+
+    /**
+     * 同上，并记录结果对应的精确分数（非精确模式或无法精确表示时为 null）。
+     */
+    private void overwriteInput(BigDecimal value, BigRational exact) {
+        currentInput.load(value, formatBigDecimal(value));
+        exactInput = exact;
+        exactInputDisplayed = exact == null ? null : value;
+    }
+
+    /**
+     * 科学函数的公共部分：结果经过缓存计算，历史区显示 "name(value)"，结果替换当前输入。
+     */
+    private void applyFunction(String name, BigDecimal value, Supplier<BigDecimal> function) {
+        BigDecimal result = memoized(name, value, null, function);
+        historyDisplay = name + "(" + formatBigDecimal(value) + ")";
+        overwriteInput(result);
+        resetInputOnNextDigit = true;
+    }
+
+    /**
+     * 新数据沿用已有数据的存储方式；还没有数据时按当前是否开启精确模式决定。
+     */
+    private boolean statisticsExact() {
+        return statistics != null ? statistics.isExact() : exactMode;
+    }
+
+    /**
+     * 并入新数据：复制后再合并，原来的累加器可能还被撤销快照引用。
+     */
+    private void mergeStatistics(StatisticsAccumulator added) {
+        StatisticsAccumulator updated = added;
+        if (statistics != null) {
+            updated = statistics.copy();
+            updated.merge(added);
+        }
+        statistics = updated;
+        historyDisplay = "n = " + updated.count();
+        resetInputOnNextDigit = true;
+        publish();
+    }
+
+    /**
+     * 写入历史纸带。磁盘错误不应让一次已经算出的结果变成错误显示，
+     * 因此这里吞掉 IOException，计算结果照常显示。
+     */
+    private void recordHistory(BigDecimal left, String operator, BigDecimal right, BigDecimal result) {
+        if (deferredHistory != null) {
+            deferredHistory.add(new HistoryEntry(left, operator, right, result));
+            return;
+        }
+        if (historyTape == null) {
+            return;
+        }
+        try {
+            historyTape.append(left, operator, right, result);
+        } catch (IOException ignored) {
+            // 纸带不可写（磁盘已满等）时放弃这一条记录。
+        }
+    }
+
+    /**
+     * 命令即将修改状态：开启撤销时记下修改前的快照。
+     * 发布开启时上一次发布的快照就是当前状态，直接复用，不再另建一个。
+     */
+    private void checkpoint() {
+        if (undoHistory != null) {
+            undoHistory.record(publishing ? published : snapshot());
+        }
+    }
+
+    /**
+     * 状态变化之后调用：发布开启时取一个 O(1) 快照并写入 volatile 字段，写入线程只多一次引用写入。
+     * 状态没有变化的提前返回（例如错误态下忽略输入）不需要发布。
+     */
+    private void publish() {
+        if (publishing) {
+            published = snapshot();
+        }
     }
 
     /**
-     * 直接重写 currentInput 的字符串版本。
+     * 恢复到某个快照的计算状态，精度与精确模式沿用当前设置；
+     * 精确模式已关闭时丢弃快照中的分数，与 {@link #setExactMode} 的行为一致。
      */
-    private void overwriteInput(String value) {
-        currentInput.setLength(0);
-        currentInput.append(value);
+    private void restore(CalculatorState state) {
+        currentInput.restore(state.input);
+        accumulator = state.accumulator;
+        pendingOperator = state.pendingOperator;
+        resetInputOnNextDigit = state.resetInputOnNextDigit;
+        historyDisplay = state.historyDisplay;
+        errorMessage = state.errorMessage;
+        exactAccumulator = exactMode ? state.exactAccumulator : null;
+        exactInput = exactMode ? state.exactInput : null;
+        exactInputDisplayed = exactMode ? state.exactInputDisplayed : null;
+        statistics = state.statistics;
+        publish();
     }
 
     /**
      * 进入错误状态，只需设置错误消息；视图会在下一次刷新时读到它。
      */
     private void setErrorMessage(String message) {
+        if (metrics != null && errorMessage == null) {
+            metrics.recordError(message);
+        }
         errorMessage = message;
+        publish();
     }
 
     private boolean isBlank(String value) {
@@ -349,31 +1085,40 @@ public class CalculatorModel {
 
     /**
      * 统一的 BigDecimal 文本表示：去掉末尾多余 0，并在必要时降低 scale，
-     * 以模拟 Windows 计算器的输出风格。
+     * 以模拟 Windows 计算器的输出风格；超出显示宽度时改用科学计数法。
      */
-    private static String formatBigDecimal(BigDecimal value) {
-        BigDecimal normalized = value.stripTrailingZeros();
-        if (normalized.scale() < 0) {
-            normalized = normalized.setScale(0);
+    private String formatBigDecimal(BigDecimal value) {
+        if (metrics == null) {
+            return displayFormatter.format(value);
         }
-        return normalized.toPlainString();
+        long start = System.nanoTime();
+        String text = displayFormatter.format(value);
+        metrics.recordFormat(System.nanoTime() - start);
+        return text;
     }
 
     /**
-     * BigDecimal 没有内置 sqrt，这里用牛顿迭代：
-     * 从 double 精度的近似值开始，不断迭代直到两次结果相等。
+     * BigDecimal 没有内置 sqrt：使用精度翻倍的牛顿迭代，步数有上限，
+     * 并在每步之间检查取消、回调进度。
      */
     private BigDecimal sqrt(BigDecimal value) {
-        if (value.equals(BigDecimal.ZERO)) {
-            return BigDecimal.ZERO;
-        }
-        BigDecimal guess = new BigDecimal(Math.sqrt(value.doubleValue()), DEFAULT_CONTEXT);
-        BigDecimal previous;
-        do {
-            previous = guess;
-            guess = guess.add(value.divide(guess, DEFAULT_CONTEXT))
-                    .divide(BigDecimal.valueOf(2), DEFAULT_CONTEXT);
-        } while (!guess.equals(previous));
-        return guess;
+        return BigDecimalMath.sqrt(value, mathContext, progressListener);
+    }
+
+    /**
+     * 后台副本暂存的一条纸带记录。
+     */
+    private static final class HistoryEntry {
+        final BigDecimal left;
+        final String operator;
+        final BigDecimal right;
+        final BigDecimal result;
+
+        HistoryEntry(BigDecimal left, String operator, BigDecimal right, BigDecimal result) {
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+            this.result = result;
+        }
     }
 }
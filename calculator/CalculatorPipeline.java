@@ -0,0 +1,505 @@
+package calculator;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 命令行流水线：与 {@link CalculatorApp} 并列的无界面入口，把计算器接入 shell 管道。
+ * - 每行输入是一条按键脚本（格式见 {@link CalculatorCommands#parseScript(String)}），
+ *   或者在 --expressions 模式下是一整条表达式（见 {@link CalculatorModel#evaluateExpression(String)}）；
+ * - 每行在复位后的模型上独立求值，输出一行当前显示（--history 时前面加上历史显示和制表符），
+ *   出错的行输出错误消息，行与行一一对应，空行原样输出空行；
+ * - 输入输出都经过 NIO 通道和各自复用的 64 KB 缓冲区，按字节切分行、手工编码 UTF-8，
+ *   除每行的字符串本身外没有额外分配；
+ * - --parallel N 时按块并行求值，在途块数有上限且块对象循环复用，输出仍保持输入顺序；
+ *   内存占用只与块大小和并行度有关，与输入长度无关，可以处理任意大的文件。
+ * 运行方式：
+ * java -cp out calculator.CalculatorPipeline [--expressions] [--parallel 线程数] [--exact] [--precision 位数]
+ *      [--history] [--cache-stats] [--output 文件] [文件...]
+ * 不给文件或文件名为 "-" 时读取标准输入。--cache-stats 在结束时把高精度结果缓存的命中统计
+ * （见 {@link OperationCache}）写到标准错误，便于按回放负载调整缓存容量。
+ */
+public class CalculatorPipeline implements AutoCloseable {
+
+    static final int IO_BUFFER_SIZE = 1 << 16;
+    // 单行的字节上限：超过此长度视为输入格式错误，避免一行无换行的大文件耗尽内存。
+    static final int MAX_LINE_BYTES = 1 << 20;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final ForkJoinPool pool;
+    private final int maxChunksInFlight;
+    private final LongAdder errorCount = new LongAdder();
+    private boolean expressionMode;
+    private boolean exactMode;
+    private int precision = CalculatorModel.MIN_PRECISION;
+    private boolean showHistory;
+    // 每个工作线程一个模型实例：行与行之间通过 reset 复位，避免反复分配。
+    private final ThreadLocal<CalculatorModel> workerModel = ThreadLocal.withInitial(CalculatorModel::new);
+
+    /**
+     * parallelism 为 1 时在调用线程上逐行求值，不创建线程池。
+     */
+    public CalculatorPipeline(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.pool = parallelism == 1 ? null : new ForkJoinPool(parallelism);
+        this.maxChunksInFlight = Math.max(2, parallelism * 2);
+    }
+
+    public static void main(String[] args) throws IOException {
+        int parallelism = 1;
+        boolean expressions = false;
+        boolean exact = false;
+        boolean history = false;
+        boolean cacheStats = false;
+        int precision = CalculatorModel.MIN_PRECISION;
+        String output = null;
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--expressions":
+                    expressions = true;
+                    break;
+                case "--parallel":
+                    parallelism = Integer.parseInt(args[++i]);
+                    break;
+                case "--exact":
+                    exact = true;
+                    break;
+                case "--precision":
+                    precision = Integer.parseInt(args[++i]);
+                    break;
+                case "--history":
+                    history = true;
+                    break;
+                case "--cache-stats":
+                    cacheStats = true;
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                default:
+                    inputs.add(args[i]);
+            }
+        }
+        if (inputs.isEmpty()) {
+            inputs.add("-");
+        }
+
+        long errors;
+        try (CalculatorPipeline pipeline = new CalculatorPipeline(parallelism);
+             WritableByteChannel out = output == null
+                     ? new FileOutputStream(FileDescriptor.out).getChannel()
+                     : FileChannel.open(Paths.get(output), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                             StandardOpenOption.TRUNCATE_EXISTING)) {
+            pipeline.setExpressionMode(expressions);
+            pipeline.setExactMode(exact);
+            pipeline.setPrecision(precision);
+            pipeline.setShowHistory(history);
+            LineWriter writer = new LineWriter(out);
+            for (String input : inputs) {
+                try (ReadableByteChannel in = "-".equals(input)
+                        ? new FileInputStream(FileDescriptor.in).getChannel()
+                        : FileChannel.open(Paths.get(input), StandardOpenOption.READ)) {
+                    pipeline.run(new LineReader(in), writer);
+                }
+            }
+            writer.flush();
+            errors = pipeline.getErrorCount();
+        }
+        if (cacheStats) {
+            System.err.println("operation cache: " + OperationCache.shared());
+        }
+        // 与常见命令行工具一致：有行停在错误态时以状态码 1 退出，结果仍完整输出。
+        if (errors > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * 每行按一整条表达式求值，而不是按键脚本。
+     */
+    public void setExpressionMode(boolean expressionMode) {
+        this.expressionMode = expressionMode;
+    }
+
+    public void setExactMode(boolean exactMode) {
+        this.exactMode = exactMode;
+    }
+
+    /**
+     * 有效数字位数，范围同 {@link CalculatorModel#setPrecision(int)}。
+     */
+    public void setPrecision(int precision) {
+        if (precision < CalculatorModel.MIN_PRECISION || precision > CalculatorModel.MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + CalculatorModel.MIN_PRECISION
+                    + " and " + CalculatorModel.MAX_PRECISION);
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * 输出行前加上历史显示区的内容（以制表符分隔）。
+     */
+    public void setShowHistory(boolean showHistory) {
+        this.showHistory = showHistory;
+    }
+
+    /**
+     * 累计停在错误态的行数。
+     */
+    public long getErrorCount() {
+        return errorCount.sum();
+    }
+
+    /**
+     * 从通道读到流结束，结果写入 out 并刷出；返回处理的行数。
+     */
+    public long run(ReadableByteChannel in, WritableByteChannel out) throws IOException {
+        LineWriter writer = new LineWriter(out);
+        long lines = run(new LineReader(in), writer);
+        writer.flush();
+        return lines;
+    }
+
+    long run(LineReader reader, LineWriter writer) throws IOException {
+        return pool == null ? runSequential(reader, writer) : runParallel(reader, writer);
+    }
+
+    private long runSequential(LineReader reader, LineWriter writer) throws IOException {
+        long lines = 0;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            CalculatorModel model = workerModel.get();
+            if (evaluate(model, line)) {
+                writeResult(writer, showHistory ? model.getHistoryDisplay() : null, model.getCurrentDisplay());
+            } else {
+                writer.newLine();
+            }
+            lines++;
+        }
+        return lines;
+    }
+
+    /**
+     * 并行模式：读线程按块填充输入，块提交到线程池求值；在途块满时先按顺序写出最早的块，
+     * 写完的块对象放回空闲队列供下一次读取复用（与 {@link CalculatorBatchEngine} 的背压方式相同）。
+     */
+    private long runParallel(LineReader reader, LineWriter writer) throws IOException {
+        ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<>();
+        ArrayDeque<Chunk> free = new ArrayDeque<>();
+        long lines = 0;
+        try {
+            while (true) {
+                Chunk chunk = free.isEmpty() ? new Chunk() : free.poll();
+                if (!chunk.fill(reader)) {
+                    break;
+                }
+                lines += chunk.count;
+                if (inFlight.size() >= maxChunksInFlight) {
+                    free.add(write(inFlight.poll(), writer));
+                }
+                inFlight.add(pool.submit(() -> evaluate(chunk)));
+            }
+            while (!inFlight.isEmpty()) {
+                write(inFlight.poll(), writer);
+            }
+        } finally {
+            // 写出失败时取消剩余的块，避免它们在后台继续计算。
+            for (ForkJoinTask<Chunk> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+        return lines;
+    }
+
+    private Chunk evaluate(Chunk chunk) {
+        CalculatorModel model = workerModel.get();
+        for (int i = 0; i < chunk.count; i++) {
+            if (evaluate(model, chunk.lines[i])) {
+                chunk.history[i] = showHistory ? model.getHistoryDisplay() : null;
+                chunk.current[i] = model.getCurrentDisplay();
+            } else {
+                chunk.history[i] = null;
+                chunk.current[i] = null;
+            }
+            // 输入行不再需要，尽早释放引用。
+            chunk.lines[i] = null;
+        }
+        return chunk;
+    }
+
+    private Chunk write(ForkJoinTask<Chunk> task, LineWriter writer) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = task.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Pipeline interrupted");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Pipeline evaluation failed", cause);
+        }
+        for (int i = 0; i < chunk.count; i++) {
+            if (chunk.current[i] == null) {
+                writer.newLine();
+            } else {
+                writeResult(writer, chunk.history[i], chunk.current[i]);
+            }
+        }
+        return chunk;
+    }
+
+    private static void writeResult(LineWriter writer, String history, String current) throws IOException {
+        if (history != null) {
+            writer.write(history);
+            writer.write('\t');
+        }
+        writer.write(current);
+        writer.newLine();
+    }
+
+    /**
+     * 在复位后的模型上求值一行；空白行返回 false，由调用方输出空行。
+     */
+    private boolean evaluate(CalculatorModel model, String line) {
+        if (line.trim().isEmpty()) {
+            return false;
+        }
+        model.reset();
+        ensureConfigured(model);
+        if (expressionMode) {
+            model.evaluateExpression(line);
+        } else {
+            for (String command : CalculatorCommands.parseScript(line)) {
+                CalculatorCommands.dispatch(model, command);
+            }
+        }
+        if (model.isErrorState()) {
+            errorCount.increment();
+        }
+        return true;
+    }
+
+    /**
+     * reset 把模型恢复为默认精度与非精确模式，这里再换成流水线的配置。
+     */
+    private void ensureConfigured(CalculatorModel model) {
+        if (model.getPrecision() != precision) {
+            model.setPrecision(precision);
+        }
+        if (model.isExactMode() != exactMode) {
+            model.setExactMode(exactMode);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * 并行模式下的一块输入及其结果；数组在整个运行期间循环复用。
+     */
+    private static final class Chunk {
+        final String[] lines = new String[CHUNK_SIZE];
+        final String[] history = new String[CHUNK_SIZE];
+        final String[] current = new String[CHUNK_SIZE];
+        int count;
+
+        /**
+         * 读取下一块；没有更多输入时返回 false。
+         */
+        boolean fill(LineReader reader) throws IOException {
+            count = 0;
+            String line;
+            while (count < CHUNK_SIZE && (line = reader.readLine()) != null) {
+                lines[count++] = line;
+            }
+            return count > 0;
+        }
+    }
+
+    /**
+     * 从字节通道按行读取 UTF-8 文本，接受 "\n" 与 "\r\n"；整个读取过程复用同一个缓冲区，
+     * 行完整落在缓冲区内时直接从中解码，跨越缓冲区边界的行才拷贝到拼接区。
+     */
+    static final class LineReader {
+        private final ReadableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+        private byte[] pending = new byte[256];
+        private int pendingLength;
+        private long lineNumber;
+        private boolean endOfInput;
+
+        LineReader(ReadableByteChannel channel) {
+            this.channel = channel;
+            buffer.flip();
+        }
+
+        /**
+         * 读取一行（不含行尾）；流已结束且没有剩余内容时返回 null。
+         *
+         * @throws IOException 读取失败，或单行超过 {@link #MAX_LINE_BYTES} 字节
+         */
+        String readLine() throws IOException {
+            byte[] bytes = buffer.array();
+            while (true) {
+                int start = buffer.position();
+                int limit = buffer.limit();
+                for (int i = start; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        buffer.position(i + 1);
+                        lineNumber++;
+                        if (pendingLength == 0) {
+                            return decode(bytes, start, i - start);
+                        }
+                        append(bytes, start, i - start);
+                        return takePending();
+                    }
+                }
+                append(bytes, start, limit - start);
+                if (endOfInput || !fill()) {
+                    endOfInput = true;
+                    if (pendingLength == 0) {
+                        return null;
+                    }
+                    lineNumber++;
+                    return takePending();
+                }
+            }
+        }
+
+        private boolean fill() throws IOException {
+            buffer.clear();
+            int read;
+            do {
+                read = channel.read(buffer);
+            } while (read == 0);
+            buffer.flip();
+            return read > 0;
+        }
+
+        private void append(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return;
+            }
+            int needed = pendingLength + length;
+            if (needed > MAX_LINE_BYTES) {
+                throw new IOException("Line " + (lineNumber + 1) + " is longer than " + MAX_LINE_BYTES + " bytes");
+            }
+            if (needed > pending.length) {
+                pending = Arrays.copyOf(pending, Math.min(Math.max(needed, pending.length * 2), MAX_LINE_BYTES));
+            }
+            System.arraycopy(bytes, offset, pending, pendingLength, length);
+            pendingLength = needed;
+        }
+
+        private String takePending() {
+            String line = decode(pending, 0, pendingLength);
+            pendingLength = 0;
+            return line;
+        }
+
+        private static String decode(byte[] bytes, int offset, int length) {
+            if (length > 0 && bytes[offset + length - 1] == '\r') {
+                length--;
+            }
+            return new String(bytes, offset, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 把文本按 UTF-8 编码写入复用的缓冲区，满了才写到通道；换行统一为 "\n"。
+     */
+    static final class LineWriter {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(IO_BUFFER_SIZE);
+
+        LineWriter(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void write(String text) throws IOException {
+            for (int i = 0; i < text.length(); i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    write(c);
+                } else if (Character.isHighSurrogate(c) && i + 1 < text.length()
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    writeCodePoint(Character.toCodePoint(c, text.charAt(++i)));
+                } else {
+                    writeCodePoint(Character.isSurrogate(c) ? '?' : c);
+                }
+            }
+        }
+
+        void write(char c) throws IOException {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) c);
+        }
+
+        void newLine() throws IOException {
+            write('\n');
+        }
+
+        private void writeCodePoint(int codePoint) throws IOException {
+            if (buffer.remaining() < 4) {
+                drain();
+            }
+            if (codePoint < 0x80) {
+                buffer.put((byte) codePoint);
+            } else if (codePoint < 0x800) {
+                buffer.put((byte) (0xC0 | (codePoint >> 6)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (codePoint < 0x10000) {
+                buffer.put((byte) (0xE0 | (codePoint >> 12)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else {
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            }
+        }
+
+        void flush() throws IOException {
+            drain();
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package calculator;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本机多会话计算服务：只监听回环地址，每个 TCP 连接就是一个独立的计算器会话。
+ * 协议是逐行文本（UTF-8）：
+ * - 客户端每发送一行按键脚本（格式见 {@link CalculatorCommands#parseScript(String)}，例如 "12 + 30 ="），
+ *   服务端在该会话的模型上依次执行，然后回复一行 "OK\t历史显示\t当前显示"，出错时以 "ERR" 开头；
+ * - 空行只查询当前显示；客户端关闭连接即结束会话。
+ * 线程模型：
+ * - 每个会话在自己的线程上做阻塞读写，Java 21+ 使用虚拟线程，上万个会话只占少量载体线程（见 {@link VirtualThreads}）；
+ * - 会话空闲超过 idleTimeout 即被断开，模型实例复位后放回池中供新会话复用；
+ * - 每个会话只用几百字节的读写缓冲，内存占用随会话数线性增长且很小。
+ * 运行方式：java -cp out calculator.CalculatorServer [端口] [空闲秒数]
+ */
+public class CalculatorServer implements AutoCloseable {
+
+    public static final int DEFAULT_PORT = 7878;
+    public static final int DEFAULT_IDLE_TIMEOUT_MILLIS = 60_000;
+
+    // 一行脚本的字节上限：正常的按键脚本远小于此，超长视为异常客户端直接断开。
+    private static final int MAX_LINE_BYTES = 4096;
+    private static final int IO_BUFFER_SIZE = 512;
+    private static final int ACCEPT_BACKLOG = 4096;
+    private static final int DEFAULT_MAX_POOLED_MODELS = 1024;
+
+    private final ServerSocket serverSocket;
+    private final int idleTimeoutMillis;
+    private final ExecutorService sessionExecutor;
+    private final Thread acceptThread;
+    // 空闲模型池：有界，会话高峰过去后多余的模型交给 GC。
+    private final BlockingQueue<CalculatorModel> modelPool;
+    // 所有活跃连接，关闭服务时逐个断开，让阻塞在读上的会话线程退出。
+    private final Set<Socket> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger activeSessions = new AtomicInteger();
+    private final LongAdder totalSessions = new LongAdder();
+    private final LongAdder evictedSessions = new LongAdder();
+    private final LongAdder commandCount = new LongAdder();
+    private volatile boolean closed;
+
+    /**
+     * 在回环地址的指定端口上启动服务；port 为 0 时由系统分配，可通过 {@link #getPort()} 查询。
+     */
+    public CalculatorServer(int port, int idleTimeoutMillis) throws IOException {
+        this(port, idleTimeoutMillis, DEFAULT_MAX_POOLED_MODELS);
+    }
+
+    public CalculatorServer(int port, int idleTimeoutMillis, int maxPooledModels) throws IOException {
+        if (idleTimeoutMillis <= 0) {
+            throw new IllegalArgumentException("Idle timeout must be positive");
+        }
+        if (maxPooledModels <= 0) {
+            throw new IllegalArgumentException("Model pool size must be positive");
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.modelPool = new ArrayBlockingQueue<>(maxPooledModels);
+        this.serverSocket = new ServerSocket(port, ACCEPT_BACKLOG, InetAddress.getLoopbackAddress());
+        this.sessionExecutor = VirtualThreads.newPerTaskExecutor("calculator-session");
+        this.acceptThread = new Thread(this::acceptLoop, "calculator-server-accept");
+        this.acceptThread.setDaemon(true);
+        this.acceptThread.start();
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int idleSeconds = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_IDLE_TIMEOUT_MILLIS / 1000;
+        CalculatorServer server = new CalculatorServer(port, idleSeconds * 1000);
+        System.out.printf("Calculator server listening on %s:%d (%s threads, idle timeout %ds)%n",
+                InetAddress.getLoopbackAddress().getHostAddress(), server.getPort(),
+                VirtualThreads.isAvailable() ? "virtual" : "platform", idleSeconds);
+        server.acceptThread.join();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public int getActiveSessionCount() {
+        return activeSessions.get();
+    }
+
+    public long getTotalSessionCount() {
+        return totalSessions.sum();
+    }
+
+    /**
+     * 因空闲超时被断开的会话数。
+     */
+    public long getEvictedSessionCount() {
+        return evictedSessions.sum();
+    }
+
+    public long getCommandCount() {
+        return commandCount.sum();
+    }
+
+    public int getPooledModelCount() {
+        return modelPool.size();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException ex) {
+                // close() 关闭监听套接字后 accept 会抛异常，正常退出。
+                if (closed) {
+                    return;
+                }
+                continue;
+            }
+            sessions.add(socket);
+            activeSessions.incrementAndGet();
+            totalSessions.increment();
+            try {
+                sessionExecutor.execute(() -> serve(socket));
+            } catch (RuntimeException ex) {
+                // 执行器已关闭：服务正在停止。
+                endSession(socket, null);
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        CalculatorModel model = borrowModel();
+        try {
+            if (closed) {
+                return;
+            }
+            socket.setSoTimeout(idleTimeoutMillis);
+            socket.setTcpNoDelay(true);
+            InputStream in = new BufferedInputStream(socket.getInputStream(), IO_BUFFER_SIZE);
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream(), IO_BUFFER_SIZE);
+            LineReader reader = new LineReader(in);
+            String line;
+            while ((line = reader.readLine()) != null) {
+                for (String command : CalculatorCommands.parseScript(line)) {
+                    CalculatorCommands.dispatch(model, command);
+                }
+                commandCount.increment();
+                writeResponse(out, model);
+                out.flush();
+            }
+        } catch (SocketTimeoutException ex) {
+            evictedSessions.increment();
+        } catch (IOException ex) {
+            // 客户端断开或发送了超长行，结束会话即可。
+        } finally {
+            endSession(socket, model);
+        }
+    }
+
+    private static void writeResponse(OutputStream out, CalculatorModel model) throws IOException {
+        String response = (model.isErrorState() ? "ERR\t" : "OK\t")
+                + model.getHistoryDisplay() + '\t' + model.getCurrentDisplay() + '\n';
+        out.write(response.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void endSession(Socket socket, CalculatorModel model) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // 连接已不可用，无需处理。
+        }
+        if (sessions.remove(socket)) {
+            activeSessions.decrementAndGet();
+        }
+        if (model != null) {
+            releaseModel(model);
+        }
+    }
+
+    private CalculatorModel borrowModel() {
+        CalculatorModel model = modelPool.poll();
+        return model != null ? model : new CalculatorModel();
+    }
+
+    /**
+     * 把模型恢复到新建时的状态再放回池中；池已满时直接丢弃。
+     */
+    private void releaseModel(CalculatorModel model) {
+        model.reset();
+        modelPool.offer(model);
+    }
+
+    /**
+     * 停止接受新连接并断开所有会话，最多等待 5 秒让会话线程退出。
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        sessionExecutor.shutdown();
+        for (Socket socket : sessions) {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 继续断开其余连接。
+            }
+        }
+        try {
+            sessionExecutor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 按行读取 UTF-8 文本，复用同一个字节缓冲；接受 "\n" 与 "\r\n" 两种行尾。
+     */
+    static final class LineReader {
+        private final InputStream in;
+        private byte[] buffer = new byte[64];
+
+        LineReader(InputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * 读取一行（不含行尾）；流已结束且没有剩余内容时返回 null。
+         *
+         * @throws IOException 读取失败、超时或单行超过 {@link #MAX_LINE_BYTES} 字节
+         */
+        String readLine() throws IOException {
+            int length = 0;
+            int b;
+            while ((b = in.read()) != -1 && b != '\n') {
+                if (length == buffer.length) {
+                    if (length >= MAX_LINE_BYTES) {
+                        throw new IOException("Line too long");
+                    }
+                    buffer = Arrays.copyOf(buffer, Math.min(length * 2, MAX_LINE_BYTES));
+                }
+                buffer[length++] = (byte) b;
+            }
+            if (b == -1 && length == 0) {
+                return null;
+            }
+            if (length > 0 && buffer[length - 1] == '\r') {
+                length--;
+            }
+            return new String(buffer, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
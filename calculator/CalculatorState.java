@@ -0,0 +1,152 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+/**
+ * {@link CalculatorModel} 在某一时刻的不可变快照，用于撤销/重做，也是模型发布给其他线程的读取视图
+ * （见 {@link CalculatorModel#setStatePublishing}）。
+ * 所有字段都是不可变对象的引用（BigDecimal、String、BigRational、共享字符数组的输入快照，
+ * 以及模型按不可变值使用的统计累加器），
+ * 相邻快照之间未改变的部分直接共享同一个对象，因此每条命令只新增一个快照对象，与输入长度无关。
+ * 字段全部为 final，经 volatile 引用发布后任何线程都能读到完整一致的内容。
+ */
+public final class CalculatorState {
+
+    // 内存估算使用的对象大小（64 位 JVM、压缩指针）；只需要量级正确。
+    private static final int STATE_BYTES = 56;
+    private static final int INPUT_SNAPSHOT_BYTES = 40;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int BIG_DECIMAL_BYTES = 40;
+    private static final int BIG_INTEGER_BYTES = 40;
+    private static final int STRING_BYTES = 40;
+    private static final int BIG_RATIONAL_BYTES = 24;
+    private static final int STATISTICS_BYTES = 120;
+
+    final InputBuffer.Snapshot input;
+    final BigDecimal accumulator;
+    final String pendingOperator;
+    final boolean resetInputOnNextDigit;
+    final String historyDisplay;
+    final String errorMessage;
+    final MathContext mathContext;
+    final boolean exactMode;
+    final BigRational exactAccumulator;
+    final BigRational exactInput;
+    final BigDecimal exactInputDisplayed;
+    final StatisticsAccumulator statistics;
+
+    CalculatorState(InputBuffer.Snapshot input, BigDecimal accumulator, String pendingOperator,
+                    boolean resetInputOnNextDigit, String historyDisplay, String errorMessage,
+                    MathContext mathContext, boolean exactMode, BigRational exactAccumulator,
+                    BigRational exactInput, BigDecimal exactInputDisplayed, StatisticsAccumulator statistics) {
+        this.input = input;
+        this.accumulator = accumulator;
+        this.pendingOperator = pendingOperator;
+        this.resetInputOnNextDigit = resetInputOnNextDigit;
+        this.historyDisplay = historyDisplay;
+        this.errorMessage = errorMessage;
+        this.mathContext = mathContext;
+        this.exactMode = exactMode;
+        this.exactAccumulator = exactAccumulator;
+        this.exactInput = exactInput;
+        this.exactInputDisplayed = exactInputDisplayed;
+        this.statistics = statistics;
+    }
+
+    /**
+     * 主显示区内容，与 {@link CalculatorModel#getCurrentDisplay()} 相同：错误优先，其次是输入。
+     * 每次调用都从共享的字符数组新建字符串。
+     */
+    public String getCurrentDisplay() {
+        return errorMessage != null ? errorMessage : input.toString();
+    }
+
+    /**
+     * 历史显示区内容，与 {@link CalculatorModel#getHistoryDisplay()} 相同：错误时为空。
+     */
+    public String getHistoryDisplay() {
+        return errorMessage != null ? "" : historyDisplay;
+    }
+
+    public boolean isErrorState() {
+        return errorMessage != null;
+    }
+
+    /**
+     * 两个快照是否引用完全相同的对象（O(1)，不比较数值）。
+     * 输入快照在内容不变时会被复用，因此“什么都没改变”的命令前后得到的快照彼此相同。
+     */
+    boolean sameAs(CalculatorState other) {
+        return other != null
+                && input == other.input
+                && accumulator == other.accumulator
+                && pendingOperator == other.pendingOperator
+                && resetInputOnNextDigit == other.resetInputOnNextDigit
+                && historyDisplay == other.historyDisplay
+                && errorMessage == other.errorMessage
+                && mathContext == other.mathContext
+                && exactMode == other.exactMode
+                && exactAccumulator == other.exactAccumulator
+                && exactInput == other.exactInput
+                && exactInputDisplayed == other.exactInputDisplayed
+                && statistics == other.statistics;
+    }
+
+    /**
+     * 估算保留这个快照额外占用的字节数：与 neighbour（相邻快照，可为 null）共享的对象不重复计算。
+     */
+    long retainedBytes(CalculatorState neighbour) {
+        long bytes = STATE_BYTES;
+        if (neighbour == null || input != neighbour.input) {
+            bytes += INPUT_SNAPSHOT_BYTES;
+            if (neighbour == null || input.sharedText() != neighbour.input.sharedText()) {
+                bytes += ARRAY_HEADER_BYTES + 2L * input.sharedText().length;
+            }
+            if (neighbour == null || input.result() != neighbour.input.result()) {
+                bytes += bytesOf(input.result());
+            }
+        }
+        if (neighbour == null || accumulator != neighbour.accumulator) {
+            bytes += bytesOf(accumulator);
+        }
+        if (neighbour == null || historyDisplay != neighbour.historyDisplay) {
+            bytes += bytesOf(historyDisplay);
+        }
+        if (neighbour == null || errorMessage != neighbour.errorMessage) {
+            bytes += bytesOf(errorMessage);
+        }
+        if (neighbour == null || exactAccumulator != neighbour.exactAccumulator) {
+            bytes += bytesOf(exactAccumulator);
+        }
+        if (neighbour == null || exactInput != neighbour.exactInput) {
+            bytes += bytesOf(exactInput);
+        }
+        if (statistics != null && (neighbour == null || statistics != neighbour.statistics)) {
+            // 精确数据的和与平方和通常不长，按固定大小估算。
+            bytes += STATISTICS_BYTES;
+        }
+        return bytes;
+    }
+
+    private static long bytesOf(BigDecimal value) {
+        if (value == null) {
+            return 0;
+        }
+        // 18 位以内的 unscaled 值以 long 内联保存；更长的值另有 BigInteger 与 int[]。
+        int precision = value.precision();
+        return precision <= 18
+                ? BIG_DECIMAL_BYTES
+                : BIG_DECIMAL_BYTES + BIG_INTEGER_BYTES + ARRAY_HEADER_BYTES + 4L * (precision / 9 + 1);
+    }
+
+    private static long bytesOf(String value) {
+        return value == null ? 0 : STRING_BYTES + 2L * value.length();
+    }
+
+    private static long bytesOf(BigRational value) {
+        return value == null
+                ? 0
+                : BIG_RATIONAL_BYTES + 2 * (BIG_INTEGER_BYTES + ARRAY_HEADER_BYTES) + value.bitLength() / 8 + 8;
+    }
+}
@@ -1,28 +1,47 @@
 package calculator;
 
 import javax.swing.BorderFactory;
+import javax.swing.ButtonGroup;
 import javax.swing.ButtonModel;
+import javax.swing.DefaultButtonModel;
 import javax.swing.JButton;
+import javax.swing.JCheckBoxMenuItem;
 import javax.swing.JComponent;
+import javax.swing.JFileChooser;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JMenu;
+import javax.swing.JMenuBar;
+import javax.swing.JMenuItem;
 import javax.swing.JPanel;
+import javax.swing.JOptionPane;
+import javax.swing.JRadioButtonMenuItem;
+import javax.swing.JScrollPane;
 import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
-import javax.swing.event.ChangeListener;
 import java.awt.BorderLayout;
 import java.awt.Color;
+import java.awt.Cursor;
 import java.awt.Dimension;
 import java.awt.Font;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Insets;
 import java.awt.RenderingHints;
+import java.awt.Transparency;
 import java.awt.event.ActionListener;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
 import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -47,9 +66,32 @@ public class CalculatorView extends JFrame {
     private static final Insets BUTTON_INSETS = new Insets(4, 4, 4, 4);
     private static final int BUTTON_CORNER_RADIUS = 12;
 
+    // 精度菜单提供的可选位数，第一个为默认值。
+    private static final int[] PRECISION_CHOICES = {16, 32, 64, 1_000, 10_000, 100_000};
+
     private final JLabel historyLabel = buildHistoryLabel();
     private final JLabel mainDisplayLabel = buildMainDisplayLabel();
     private final Map<String, JButton> buttonMap = new LinkedHashMap<>();
+    private final ButtonGroup precisionGroup = new ButtonGroup();
+    private final JMenu precisionMenu = buildPrecisionMenu();
+    private final JMenuItem graphMenuItem = new JMenuItem("Graph\u2026");
+    private final JMenuItem historyMenuItem = new JMenuItem("History\u2026");
+    private final JMenuItem programmerMenuItem = new JMenuItem("Programmer\u2026");
+    private final JCheckBoxMenuItem exactModeItem = new JCheckBoxMenuItem("Exact fractions");
+    private final JMenu editMenu = new JMenu("Edit");
+    private final JMenuItem undoMenuItem = new JMenuItem("Undo");
+    private final JMenuItem redoMenuItem = new JMenuItem("Redo");
+    private final JMenuItem copyMenuItem = new JMenuItem("Copy full result");
+    private final JMenu macroMenu = new JMenu("Macro");
+    private final JCheckBoxMenuItem recordMacroItem = new JCheckBoxMenuItem("Record");
+    private final JMenuItem playMacroItem = new JMenuItem("Play");
+    private final JMenuItem saveMacroItem = new JMenuItem("Save\u2026");
+    private final JMenuItem loadMacroItem = new JMenuItem("Load\u2026");
+    private final JFileChooser macroChooser = new JFileChooser();
+    private final JMenu statisticsMenu = new JMenu("Statistics");
+    private final JMenuItem pasteStatisticsItem = new JMenuItem("Add values from clipboard");
+    private final JMenuItem loadStatisticsItem = new JMenuItem("Add values from file\u2026");
+    private final JFileChooser statisticsChooser = new JFileChooser();
 
     private enum ButtonCategory {
         DIGIT,
@@ -62,7 +104,36 @@ public class CalculatorView extends JFrame {
         super("Windows Style Calculator");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setResizable(true);
-        setMinimumSize(new Dimension(360, 520));
+        setMinimumSize(new Dimension(360, 700));
+
+        JMenuBar menuBar = new JMenuBar();
+        undoMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, InputEvent.CTRL_DOWN_MASK));
+        redoMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, InputEvent.CTRL_DOWN_MASK));
+        editMenu.add(undoMenuItem);
+        editMenu.add(redoMenuItem);
+        editMenu.addSeparator();
+        copyMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_C, InputEvent.CTRL_DOWN_MASK));
+        editMenu.add(copyMenuItem);
+        menuBar.add(editMenu);
+        menuBar.add(precisionMenu);
+        JMenu modeMenu = new JMenu("Mode");
+        modeMenu.add(exactModeItem);
+        menuBar.add(modeMenu);
+        JMenu viewMenu = new JMenu("View");
+        viewMenu.add(historyMenuItem);
+        viewMenu.add(graphMenuItem);
+        viewMenu.add(programmerMenuItem);
+        menuBar.add(viewMenu);
+        macroMenu.add(recordMacroItem);
+        macroMenu.add(playMacroItem);
+        macroMenu.addSeparator();
+        macroMenu.add(saveMacroItem);
+        macroMenu.add(loadMacroItem);
+        setMacroAvailable(false);
+        menuBar.add(macroMenu);
+        buildStatisticsMenu();
+        menuBar.add(statisticsMenu);
+        setJMenuBar(menuBar);
 
         // 主内容面板使用 BorderLayout + 统一内边距，背景色与按钮色分离。
         JPanel content = new JPanel(new BorderLayout(16, 16));
@@ -76,7 +147,21 @@ public class CalculatorView extends JFrame {
     }
 
     public void setDisplays(String history, String current) {
+        setHistoryDisplay(history);
+        setCurrentDisplay(current);
+    }
+
+    /**
+     * 单独更新历史区，供只有一行发生变化的刷新使用。
+     */
+    public void setHistoryDisplay(String history) {
         historyLabel.setText(history == null ? "" : history);
+    }
+
+    /**
+     * 单独更新主显示区。
+     */
+    public void setCurrentDisplay(String current) {
         mainDisplayLabel.setText(current == null ? "0" : current);
     }
 
@@ -84,6 +169,217 @@ public class CalculatorView extends JFrame {
         buttonMap.values().forEach(button -> button.addActionListener(listener));
     }
 
+    /**
+     * 精度菜单的监听入口：action command 为所选的有效位数（十进制字符串）。
+     */
+    public void addPrecisionListener(ActionListener listener) {
+        for (int i = 0; i < precisionMenu.getItemCount(); i++) {
+            precisionMenu.getItem(i).addActionListener(listener);
+        }
+    }
+
+    /**
+     * 选中与 digits 对应的精度菜单项而不触发监听器，供控制器在拒绝切换时恢复显示。
+     */
+    public void setSelectedPrecision(int digits) {
+        String command = String.valueOf(digits);
+        for (int i = 0; i < precisionMenu.getItemCount(); i++) {
+            JMenuItem item = precisionMenu.getItem(i);
+            if (command.equals(item.getActionCommand())) {
+                precisionGroup.setSelected(item.getModel(), true);
+            }
+        }
+    }
+
+    /**
+     * “Mode → Exact fractions” 的监听入口，当前勾选状态见 {@link #isExactModeSelected()}。
+     */
+    public void addExactModeListener(ActionListener listener) {
+        exactModeItem.addActionListener(listener);
+    }
+
+    public boolean isExactModeSelected() {
+        return exactModeItem.isSelected();
+    }
+
+    /**
+     * 设置勾选状态而不触发监听器，供控制器在拒绝切换时恢复显示。
+     */
+    public void setExactModeSelected(boolean selected) {
+        exactModeItem.setSelected(selected);
+    }
+
+    /**
+     * “Edit → Undo”（Ctrl+Z）的监听入口。
+     */
+    public void addUndoListener(ActionListener listener) {
+        undoMenuItem.addActionListener(listener);
+    }
+
+    /**
+     * “Edit → Redo”（Ctrl+Y）的监听入口。
+     */
+    public void addRedoListener(ActionListener listener) {
+        redoMenuItem.addActionListener(listener);
+    }
+
+    /**
+     * “Edit → Copy full result”（Ctrl+C）的监听入口：复制不受显示宽度限制的完整结果。
+     */
+    public void addCopyListener(ActionListener listener) {
+        copyMenuItem.addActionListener(listener);
+    }
+
+    /**
+     * 撤销/重做菜单项（及其快捷键）的可用状态，由控制器在状态变化后更新。
+     */
+    public void setUndoRedoEnabled(boolean canUndo, boolean canRedo) {
+        undoMenuItem.setEnabled(canUndo);
+        redoMenuItem.setEnabled(canRedo);
+    }
+
+    /**
+     * “View → History…” 菜单项的监听入口。
+     */
+    public void addHistoryListener(ActionListener listener) {
+        historyMenuItem.addActionListener(listener);
+    }
+
+    /**
+     * 以列表对话框展示历史纸带中最近的记录（每行一条，已格式化）。
+     */
+    public void showHistory(List<String> lines) {
+        JList<String> list = new JList<>(lines.toArray(new String[0]));
+        list.setVisibleRowCount(Math.min(20, Math.max(5, lines.size())));
+        list.ensureIndexIsVisible(lines.size() - 1);
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setPreferredSize(new Dimension(420, 360));
+        JOptionPane.showMessageDialog(this, lines.isEmpty() ? "No calculations yet" : scrollPane,
+                "History", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    /**
+     * “View → Graph…” 菜单项的监听入口。
+     */
+    public void addGraphListener(ActionListener listener) {
+        graphMenuItem.addActionListener(listener);
+    }
+
+    /**
+     * “View → Programmer…” 的监听入口。
+     */
+    public void addProgrammerListener(ActionListener listener) {
+        programmerMenuItem.addActionListener(listener);
+    }
+
+    /**
+     * “Macro → Record” 的监听入口，当前勾选状态见 {@link #isRecordMacroSelected()}。
+     */
+    public void addRecordMacroListener(ActionListener listener) {
+        recordMacroItem.addActionListener(listener);
+    }
+
+    public boolean isRecordMacroSelected() {
+        return recordMacroItem.isSelected();
+    }
+
+    /**
+     * “Macro → Play” 的监听入口。
+     */
+    public void addPlayMacroListener(ActionListener listener) {
+        playMacroItem.addActionListener(listener);
+    }
+
+    /**
+     * “Macro → Save…” 的监听入口。
+     */
+    public void addSaveMacroListener(ActionListener listener) {
+        saveMacroItem.addActionListener(listener);
+    }
+
+    /**
+     * “Macro → Load…” 的监听入口。
+     */
+    public void addLoadMacroListener(ActionListener listener) {
+        loadMacroItem.addActionListener(listener);
+    }
+
+    /**
+     * 是否有可回放/保存的宏；录制期间同样禁用回放与读写，由控制器更新。
+     */
+    public void setMacroAvailable(boolean available) {
+        boolean recording = recordMacroItem.isSelected();
+        playMacroItem.setEnabled(available && !recording);
+        saveMacroItem.setEnabled(available && !recording);
+        loadMacroItem.setEnabled(!recording);
+    }
+
+    /**
+     * 弹出文件对话框选择宏文件；取消时返回 null。
+     */
+    public Path chooseMacroFile(boolean save) {
+        int choice = save ? macroChooser.showSaveDialog(this) : macroChooser.showOpenDialog(this);
+        return choice == JFileChooser.APPROVE_OPTION ? macroChooser.getSelectedFile().toPath() : null;
+    }
+
+    /**
+     * “Statistics” 菜单中对应命令的菜单项（Σ+、各统计量、CAD）的监听入口，
+     * action command 与按钮一样是 {@link CalculatorCommands} 中的命令名。
+     */
+    public void addStatisticsCommandListener(ActionListener listener) {
+        for (int i = 0; i < statisticsMenu.getItemCount(); i++) {
+            JMenuItem item = statisticsMenu.getItem(i);
+            if (item != null && item != pasteStatisticsItem && item != loadStatisticsItem) {
+                item.addActionListener(listener);
+            }
+        }
+    }
+
+    /**
+     * “Statistics → Add values from clipboard” 的监听入口。
+     */
+    public void addPasteStatisticsListener(ActionListener listener) {
+        pasteStatisticsItem.addActionListener(listener);
+    }
+
+    /**
+     * “Statistics → Add values from file…” 的监听入口。
+     */
+    public void addLoadStatisticsListener(ActionListener listener) {
+        loadStatisticsItem.addActionListener(listener);
+    }
+
+    /**
+     * 弹出文件对话框选择数据文件；取消时返回 null。
+     */
+    public Path chooseStatisticsFile() {
+        int choice = statisticsChooser.showOpenDialog(this);
+        return choice == JFileChooser.APPROVE_OPTION ? statisticsChooser.getSelectedFile().toPath() : null;
+    }
+
+    public void showError(String title, String message) {
+        JOptionPane.showMessageDialog(this, message, title, JOptionPane.ERROR_MESSAGE);
+    }
+
+    /**
+     * 后台运算期间的忙碌状态：历史区显示进度文字，主显示区变暗，鼠标变为等待光标；
+     * 计算期间禁止切换精度与精确模式。
+     */
+    public void setBusy(boolean busy, String status) {
+        precisionMenu.setEnabled(!busy);
+        editMenu.setEnabled(!busy);
+        macroMenu.setEnabled(!busy);
+        statisticsMenu.setEnabled(!busy);
+        exactModeItem.setEnabled(!busy);
+        mainDisplayLabel.setForeground(busy ? DISPLAY_SECONDARY_TEXT : DISPLAY_PRIMARY_TEXT);
+        getContentPane().setCursor(busy
+                ? Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)
+                : Cursor.getDefaultCursor());
+        if (busy) {
+            historyLabel.setText(status);
+        }
+    }
+
     public JButton getButton(String command) {
         return buttonMap.get(command);
     }
@@ -125,38 +421,97 @@ public class CalculatorView extends JFrame {
         JPanel panel = new JPanel(new GridBagLayout());
         panel.setOpaque(false);
 
-        addButton(panel, "%", ButtonCategory.FUNCTION, 0, 0, 1, 1);
-        addButton(panel, "CE", ButtonCategory.FUNCTION, 1, 0, 1, 1);
-        addButton(panel, "C", ButtonCategory.FUNCTION, 2, 0, 1, 1);
-        addButton(panel, "\u2190", ButtonCategory.FUNCTION, 3, 0, 1, 1);
+        // 科学函数区：三角函数按弧度计算，^ 与 nCr 和四则运算一样是二元运算符。
+        addButton(panel, "sin", ButtonCategory.FUNCTION, 0, 0, 1, 1);
+        addButton(panel, "cos", ButtonCategory.FUNCTION, 1, 0, 1, 1);
+        addButton(panel, "tan", ButtonCategory.FUNCTION, 2, 0, 1, 1);
+        addButton(panel, "^", ButtonCategory.OPERATOR, 3, 0, 1, 1);
+
+        addButton(panel, "ln", ButtonCategory.FUNCTION, 0, 1, 1, 1);
+        addButton(panel, "log", ButtonCategory.FUNCTION, 1, 1, 1, 1);
+        addButton(panel, "exp", ButtonCategory.FUNCTION, 2, 1, 2, 1);
+
+        addButton(panel, "n!", ButtonCategory.FUNCTION, 0, 2, 2, 1);
+        addButton(panel, "nCr", ButtonCategory.OPERATOR, 2, 2, 2, 1);
 
-        addButton(panel, "1/x", ButtonCategory.FUNCTION, 0, 1, 1, 1);
-        addButton(panel, "\u221a", ButtonCategory.FUNCTION, 1, 1, 1, 1);
-        addButton(panel, "+/-", ButtonCategory.FUNCTION, 2, 1, 1, 1);
-        addButton(panel, "\u00f7", ButtonCategory.OPERATOR, 3, 1, 1, 1);
+        addButton(panel, "%", ButtonCategory.FUNCTION, 0, 3, 1, 1);
+        addButton(panel, "CE", ButtonCategory.FUNCTION, 1, 3, 1, 1);
+        addButton(panel, "C", ButtonCategory.FUNCTION, 2, 3, 1, 1);
+        addButton(panel, "\u2190", ButtonCategory.FUNCTION, 3, 3, 1, 1);
 
-        addButton(panel, "7", ButtonCategory.DIGIT, 0, 2, 1, 1);
-        addButton(panel, "8", ButtonCategory.DIGIT, 1, 2, 1, 1);
-        addButton(panel, "9", ButtonCategory.DIGIT, 2, 2, 1, 1);
-        addButton(panel, "\u00d7", ButtonCategory.OPERATOR, 3, 2, 1, 1);
+        addButton(panel, "1/x", ButtonCategory.FUNCTION, 0, 4, 1, 1);
+        addButton(panel, "\u221a", ButtonCategory.FUNCTION, 1, 4, 1, 1);
+        addButton(panel, "+/-", ButtonCategory.FUNCTION, 2, 4, 1, 1);
+        addButton(panel, "\u00f7", ButtonCategory.OPERATOR, 3, 4, 1, 1);
 
-        addButton(panel, "4", ButtonCategory.DIGIT, 0, 3, 1, 1);
-        addButton(panel, "5", ButtonCategory.DIGIT, 1, 3, 1, 1);
-        addButton(panel, "6", ButtonCategory.DIGIT, 2, 3, 1, 1);
-        addButton(panel, "-", ButtonCategory.OPERATOR, 3, 3, 1, 1);
+        addButton(panel, "7", ButtonCategory.DIGIT, 0, 5, 1, 1);
+        addButton(panel, "8", ButtonCategory.DIGIT, 1, 5, 1, 1);
+        addButton(panel, "9", ButtonCategory.DIGIT, 2, 5, 1, 1);
+        addButton(panel, "\u00d7", ButtonCategory.OPERATOR, 3, 5, 1, 1);
 
-        addButton(panel, "1", ButtonCategory.DIGIT, 0, 4, 1, 1);
-        addButton(panel, "2", ButtonCategory.DIGIT, 1, 4, 1, 1);
-        addButton(panel, "3", ButtonCategory.DIGIT, 2, 4, 1, 1);
-        addButton(panel, "+", ButtonCategory.OPERATOR, 3, 4, 1, 1);
+        addButton(panel, "4", ButtonCategory.DIGIT, 0, 6, 1, 1);
+        addButton(panel, "5", ButtonCategory.DIGIT, 1, 6, 1, 1);
+        addButton(panel, "6", ButtonCategory.DIGIT, 2, 6, 1, 1);
+        addButton(panel, "-", ButtonCategory.OPERATOR, 3, 6, 1, 1);
 
-        addButton(panel, "0", ButtonCategory.DIGIT, 0, 5, 2, 1);
-        addButton(panel, ".", ButtonCategory.DIGIT, 2, 5, 1, 1);
-        addButton(panel, "=", ButtonCategory.EQUALS, 3, 5, 1, 2);
+        addButton(panel, "1", ButtonCategory.DIGIT, 0, 7, 1, 1);
+        addButton(panel, "2", ButtonCategory.DIGIT, 1, 7, 1, 1);
+        addButton(panel, "3", ButtonCategory.DIGIT, 2, 7, 1, 1);
+        addButton(panel, "+", ButtonCategory.OPERATOR, 3, 7, 1, 1);
+
+        addButton(panel, "0", ButtonCategory.DIGIT, 0, 8, 2, 1);
+        addButton(panel, ".", ButtonCategory.DIGIT, 2, 8, 1, 1);
+        addButton(panel, "=", ButtonCategory.EQUALS, 3, 8, 1, 2);
 
         return panel;
     }
 
+    /**
+     * 统计菜单：输入数据、调出统计量与清空数据，命令项的 action command 即命令名。
+     */
+    private void buildStatisticsMenu() {
+        JMenuItem addItem = statisticsCommandItem("Add value (\u03a3+)", "\u03a3+");
+        addItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, InputEvent.CTRL_DOWN_MASK));
+        statisticsMenu.add(addItem);
+        pasteStatisticsItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_V,
+                InputEvent.CTRL_DOWN_MASK | InputEvent.SHIFT_DOWN_MASK));
+        statisticsMenu.add(pasteStatisticsItem);
+        statisticsMenu.add(loadStatisticsItem);
+        statisticsMenu.addSeparator();
+        statisticsMenu.add(statisticsCommandItem("Count (n)", CalculatorModel.Statistic.COUNT));
+        statisticsMenu.add(statisticsCommandItem("Sum (\u03a3x)", CalculatorModel.Statistic.SUM));
+        statisticsMenu.add(statisticsCommandItem("Mean (x\u0304)", CalculatorModel.Statistic.MEAN));
+        statisticsMenu.add(statisticsCommandItem("Variance (s\u00b2)", CalculatorModel.Statistic.VARIANCE));
+        statisticsMenu.add(statisticsCommandItem("Standard deviation (s)",
+                CalculatorModel.Statistic.STANDARD_DEVIATION));
+        statisticsMenu.add(statisticsCommandItem("Minimum", CalculatorModel.Statistic.MIN));
+        statisticsMenu.add(statisticsCommandItem("Maximum", CalculatorModel.Statistic.MAX));
+        statisticsMenu.addSeparator();
+        statisticsMenu.add(statisticsCommandItem("Clear data (CAD)", "CAD"));
+    }
+
+    private static JMenuItem statisticsCommandItem(String text, CalculatorModel.Statistic statistic) {
+        return statisticsCommandItem(text, statistic.getLabel());
+    }
+
+    private static JMenuItem statisticsCommandItem(String text, String command) {
+        JMenuItem item = new JMenuItem(text);
+        item.setActionCommand(command);
+        return item;
+    }
+
+    private JMenu buildPrecisionMenu() {
+        JMenu menu = new JMenu("Precision");
+        for (int i = 0; i < PRECISION_CHOICES.length; i++) {
+            int digits = PRECISION_CHOICES[i];
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(String.format("%,d digits", digits), i == 0);
+            item.setActionCommand(String.valueOf(digits));
+            precisionGroup.add(item);
+            menu.add(item);
+        }
+        return menu;
+    }
+
     private JLabel buildHistoryLabel() {
         JLabel label = new JLabel("", SwingConstants.RIGHT);
         label.setForeground(DISPLAY_SECONDARY_TEXT);
@@ -245,8 +600,22 @@ public class CalculatorView extends JFrame {
 
     /**
      * 圆角按钮控件，使用透明背景、悬停/按下颜色。
+     * 圆角背景按（尺寸、圆角、颜色、屏幕缩放）预先光栅化成兼容图像并在所有按钮之间共享，
+     * 绘制时只需贴一张图；尺寸变化后自然换用新键，旧图像按 LRU 淘汰。
+     * 按钮模型只在影响外观的状态变化时通知监听器，悬停进出、按下抬起之外的模型变化不再触发重绘。
      */
-    private static class RoundedButton extends JButton {
+    static class RoundedButton extends JButton {
+        // 背景缓存的条目上限：三种状态 × 几种按钮尺寸 × 几种底色，窗口缩放时旧尺寸逐步被淘汰。
+        private static final int MAX_CACHED_BACKGROUNDS = 64;
+        // 只在 EDT 上访问。
+        private static final Map<BackgroundKey, BufferedImage> BACKGROUNDS =
+                new LinkedHashMap<BackgroundKey, BufferedImage>(16, 0.75f, true) {
+                    @Override
+                    protected boolean removeEldestEntry(Map.Entry<BackgroundKey, BufferedImage> eldest) {
+                        return size() > MAX_CACHED_BACKGROUNDS;
+                    }
+                };
+
         private final int radius;
         private Color baseColor;
         private Color hoverColor;
@@ -255,18 +624,21 @@ public class CalculatorView extends JFrame {
         RoundedButton(String text, int radius) {
             super(text);
             this.radius = radius;
+            setModel(new VisualStateButtonModel());
             setFocusPainted(false);
             setContentAreaFilled(false);
             setOpaque(false);
             setBorder(BorderFactory.createEmptyBorder(14, 18, 14, 18));
         }
 
+        /**
+         * 设置三种状态的底色；重绘由按钮模型的状态变化驱动，这里不再额外挂监听器。
+         */
         void setColors(Color base, Color hover, Color pressed) {
             this.baseColor = base;
             this.hoverColor = hover;
             this.pressedColor = pressed;
-            ChangeListener listener = e -> repaint();
-            getModel().addChangeListener(listener);
+            repaint();
         }
 
         @Override
@@ -278,13 +650,113 @@ public class CalculatorView extends JFrame {
             } else if (model.isRollover()) {
                 fill = hoverColor;
             }
-            // 使用抗锯齿绘制圆角矩形，营造 Fluent 风格的柔和高光。
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-            g2.setColor(fill);
-            g2.fillRoundRect(0, 0, getWidth(), getHeight(), radius, radius);
-            g2.dispose();
+            int width = getWidth();
+            int height = getHeight();
+            if (fill != null && width > 0 && height > 0) {
+                g.drawImage(background(fill, width, height), 0, 0, width, height, null);
+            }
             super.paintComponent(g);
         }
+
+        /**
+         * 取（必要时生成）指定尺寸与颜色的圆角背景。HiDPI 屏幕上按设备像素生成，贴图时正好一比一。
+         */
+        private BufferedImage background(Color fill, int width, int height) {
+            GraphicsConfiguration configuration = getGraphicsConfiguration();
+            double scaleX = 1;
+            double scaleY = 1;
+            if (configuration != null) {
+                AffineTransform transform = configuration.getDefaultTransform();
+                scaleX = transform.getScaleX();
+                scaleY = transform.getScaleY();
+            }
+            BackgroundKey key = new BackgroundKey(width, height, radius, fill.getRGB(), scaleX, scaleY);
+            BufferedImage image = BACKGROUNDS.get(key);
+            if (image == null) {
+                int pixelWidth = (int) Math.ceil(width * scaleX);
+                int pixelHeight = (int) Math.ceil(height * scaleY);
+                image = configuration != null
+                        ? configuration.createCompatibleImage(pixelWidth, pixelHeight, Transparency.TRANSLUCENT)
+                        : new BufferedImage(pixelWidth, pixelHeight, BufferedImage.TYPE_INT_ARGB);
+                // 使用抗锯齿绘制圆角矩形，营造 Fluent 风格的柔和高光。
+                Graphics2D g2 = image.createGraphics();
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+                g2.scale(scaleX, scaleY);
+                g2.setColor(fill);
+                g2.fillRoundRect(0, 0, width, height, radius, radius);
+                g2.dispose();
+                BACKGROUNDS.put(key, image);
+            }
+            return image;
+        }
+    }
+
+    /**
+     * 只在外观相关的状态（按下、悬停、可用，以及决定文字按下偏移的 armed+pressed）变化时才通知监听器。
+     * DefaultButtonModel 对 armed 的每次切换都会发事件，而按钮外观并不随之改变。
+     */
+    private static class VisualStateButtonModel extends DefaultButtonModel {
+        private int notifiedState = visualState();
+
+        @Override
+        protected void fireStateChanged() {
+            int state = visualState();
+            if (state == notifiedState) {
+                return;
+            }
+            notifiedState = state;
+            super.fireStateChanged();
+        }
+
+        private int visualState() {
+            return (isPressed() ? 1 : 0)
+                    | (isRollover() ? 2 : 0)
+                    | (isEnabled() ? 4 : 0)
+                    | (isArmed() && isPressed() ? 8 : 0);
+        }
+    }
+
+    /**
+     * 背景缓存的键。
+     */
+    private static final class BackgroundKey {
+        private final int width;
+        private final int height;
+        private final int radius;
+        private final int rgb;
+        private final double scaleX;
+        private final double scaleY;
+
+        BackgroundKey(int width, int height, int radius, int rgb, double scaleX, double scaleY) {
+            this.width = width;
+            this.height = height;
+            this.radius = radius;
+            this.rgb = rgb;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BackgroundKey)) {
+                return false;
+            }
+            BackgroundKey other = (BackgroundKey) o;
+            return width == other.width && height == other.height && radius == other.radius && rgb == other.rgb
+                    && scaleX == other.scaleX && scaleY == other.scaleY;
+        }
+
+        @Override
+        public int hashCode() {
+            int h = width;
+            h = 31 * h + height;
+            h = 31 * h + radius;
+            h = 31 * h + rgb;
+            h = 31 * h + Double.hashCode(scaleX);
+            return 31 * h + Double.hashCode(scaleY);
+        }
     }
 }
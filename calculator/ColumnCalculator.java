@@ -0,0 +1,868 @@
+package calculator;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.stream.IntStream;
+
+/**
+ * 列模式：把一条单变量表达式（或“运算符 + 操作数”）逐元素应用到整列数字上，
+ * 例如给两千万个价格 “+ 7.5%”。按键回放每个元素要走一遍模型，这里改为“按列解释”：
+ * - 列被切成 {@link #BLOCK_SIZE} 个元素一块，各块在 fork-join 线程池上并行；
+ * - 块内按 {@link CompiledExpression} 的后缀指令逐条执行，每条指令是一个紧凑的基本类型循环
+ *   （double[] 或 long[]），循环体没有分支和对象分配，便于 JIT 自动向量化；
+ * - 近似列使用 double 内核；精确列使用定点 long 内核（同一块内对齐到相同 scale），
+ *   结果超过 16 位有效数字、需要舍入的除法/开方等情况才对该块回退到
+ *   {@link CalculatorModel#computeBinaryOperation} 的 BigDecimal 规则，结果与按键链路逐值一致。
+ * 运行方式：
+ * java -cp out calculator.ColumnCalculator [--column 列号] [--header] [--exact] [--precision 位数]
+ *      [--output 文件] (表达式 | --apply "运算符 操作数") CSV文件
+ * 例如 --apply "+ 7.5%" 等价于表达式 "x + (x × 7.5%)"，与按键 "+ 7.5 % =" 的规则相同。
+ */
+public final class ColumnCalculator {
+
+    static final int BLOCK_SIZE = 4096;
+    private static final MathContext DEFAULT_CONTEXT = new MathContext(CalculatorModel.MIN_PRECISION,
+            RoundingMode.HALF_UP);
+    // 定点快速路径的 scale 上限：对齐因子 10^18 仍在 long 范围内。
+    private static final int MAX_LONG_SCALE = 18;
+    private static final long[] POWERS_OF_TEN = new long[MAX_LONG_SCALE + 1];
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private ColumnCalculator() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        int column = 0;
+        boolean header = false;
+        boolean exact = false;
+        int precision = CalculatorModel.MIN_PRECISION;
+        String output = null;
+        String apply = null;
+        String expression = null;
+        String input = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--column":
+                    column = Integer.parseInt(args[++i]);
+                    break;
+                case "--header":
+                    header = true;
+                    break;
+                case "--exact":
+                    exact = true;
+                    break;
+                case "--precision":
+                    precision = Integer.parseInt(args[++i]);
+                    break;
+                case "--output":
+                    output = args[++i];
+                    break;
+                case "--apply":
+                    apply = args[++i];
+                    break;
+                default:
+                    if (expression == null && apply == null && i < args.length - 1) {
+                        expression = args[i];
+                    } else {
+                        input = args[i];
+                    }
+            }
+        }
+        if (input == null || (expression == null) == (apply == null)) {
+            System.err.println("Usage: ColumnCalculator [--column N] [--header] [--exact] [--precision P]"
+                    + " [--output FILE] (EXPRESSION | --apply \"OPERATOR OPERAND\") CSV_FILE");
+            System.exit(2);
+            return;
+        }
+        if (apply != null) {
+            String[] parts = apply.trim().split("\\s+", 2);
+            expression = operatorExpression(parts[0], parts.length > 1 ? parts[1] : "");
+        }
+
+        long start = System.nanoTime();
+        NumericColumn values = NumericColumn.readCsv(Paths.get(input), column, header, exact);
+        long loaded = System.nanoTime();
+        NumericColumn result = apply(ExpressionCompiler.shared().compile(expression), values,
+                new MathContext(precision, RoundingMode.HALF_UP));
+        long computed = System.nanoTime();
+        try (OutputStream out = output == null
+                ? new BufferedOutputStream(System.out, 1 << 16)
+                : Files.newOutputStream(Paths.get(output))) {
+            result.writeTo(out);
+        }
+        long written = System.nanoTime();
+        System.err.printf(Locale.ROOT, "%d rows (%s): read %.0f ms, compute %.0f ms, write %.0f ms%n",
+                result.size(), exact ? "exact" : "double", (loaded - start) / 1e6, (computed - loaded) / 1e6,
+                (written - computed) / 1e6);
+    }
+
+    /**
+     * 以默认的 16 位精度计算，见 {@link #apply(CompiledExpression, NumericColumn, MathContext)}。
+     */
+    public static NumericColumn apply(CompiledExpression expression, NumericColumn column) {
+        return apply(expression, column, DEFAULT_CONTEXT);
+    }
+
+    /**
+     * 把表达式逐元素应用到整列：表达式至多含一个变量，代表列中的每个元素（不含变量时结果是常数列）。
+     * 近似列得到近似列（IEEE 754，除零得到无穷大）；精确列得到精确列，规则与精度同按键链路，
+     * 除零、负数开方以 ArithmeticException 抛出，消息中带有出错的行号（从 1 开始）。
+     */
+    public static NumericColumn apply(CompiledExpression expression, NumericColumn column, MathContext mathContext) {
+        if (expression == null || column == null || mathContext == null) {
+            throw new IllegalArgumentException("Expression, column and MathContext cannot be null");
+        }
+        if (expression.getVariables().size() > 1) {
+            throw new IllegalArgumentException("Column expressions can use at most one variable, found "
+                    + expression.getVariables());
+        }
+        int blocks = (column.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        if (!column.isExact()) {
+            double[] result = new double[column.size()];
+            ThreadLocal<DoubleKernel> kernels = ThreadLocal.withInitial(() -> new DoubleKernel(expression));
+            IntStream.range(0, blocks).parallel().forEach(block ->
+                    kernels.get().run(column.doubles(), block * BLOCK_SIZE,
+                            Math.min(BLOCK_SIZE, column.size() - block * BLOCK_SIZE), result));
+            return NumericColumn.of(result);
+        }
+        ExactResult result = new ExactResult(column.size());
+        ThreadLocal<ExactKernel> kernels = ThreadLocal.withInitial(() -> new ExactKernel(expression, mathContext));
+        try {
+            IntStream.range(0, blocks).parallel().forEach(block ->
+                    kernels.get().run(column, block * BLOCK_SIZE,
+                            Math.min(BLOCK_SIZE, column.size() - block * BLOCK_SIZE), result));
+        } catch (ArithmeticException ex) {
+            // 从工作线程转抛时 fork-join 会重建异常对象并丢掉消息，原始异常在 cause 中。
+            if (ex.getMessage() == null && ex.getCause() instanceof ArithmeticException) {
+                throw (ArithmeticException) ex.getCause();
+            }
+            throw ex;
+        }
+        return NumericColumn.exact(result.unscaled, result.scales, result.spill);
+    }
+
+    /**
+     * 单个运算符作用于整列，例如 ("+", "7.5%") 或 ("×", "1.2")，默认 16 位精度。
+     */
+    public static NumericColumn apply(String operator, String operand, NumericColumn column) {
+        return apply(ExpressionCompiler.shared().compile(operatorExpression(operator, operand)), column);
+    }
+
+    /**
+     * 把“运算符 + 操作数”翻译成单变量表达式。操作数以 % 结尾时采用模型中有待执行运算符时的百分号规则：
+     * x op y% 即 x op (x × y ÷ 100)，所以 "+ 7.5%" 是加价 7.5%。
+     */
+    static String operatorExpression(String operator, String operand) {
+        String symbol = CalculatorCommands.canonicalCommand(operator == null ? "" : operator.trim());
+        switch (symbol) {
+            case "+":
+            case "-":
+            case "\u00d7":
+            case "\u00f7":
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown operator " + operator);
+        }
+        String value = operand == null ? "" : operand.trim();
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Operand cannot be blank");
+        }
+        if (value.endsWith("%")) {
+            return "x " + symbol + " (x \u00d7 " + value + ")";
+        }
+        return "x " + symbol + " (" + value + ")";
+    }
+
+    private static String operatorSymbol(int opcode) {
+        switch (opcode) {
+            case CompiledExpression.ADD:
+                return "+";
+            case CompiledExpression.SUBTRACT:
+                return "-";
+            case CompiledExpression.MULTIPLY:
+                return "\u00d7";
+            default:
+                return "\u00f7";
+        }
+    }
+
+    /**
+     * double 内核：每个栈槽要么是标量，要么是一段数组（输入列本身或该槽自己的缓冲区），
+     * 每条指令对整块执行一次。每个线程一份，缓冲区在所有块之间复用。
+     */
+    private static final class DoubleKernel {
+        private final int[] code;
+        private final double[] constants;
+        private final boolean[] scalar;
+        private final double[] scalars;
+        private final double[][] arrays;
+        private final int[] offsets;
+        private final double[][] buffers;
+
+        DoubleKernel(CompiledExpression expression) {
+            this.code = expression.code();
+            this.constants = expression.approximateConstants();
+            int depth = expression.maxStackDepth();
+            this.scalar = new boolean[depth];
+            this.scalars = new double[depth];
+            this.arrays = new double[depth][];
+            this.offsets = new int[depth];
+            this.buffers = new double[depth][BLOCK_SIZE];
+        }
+
+        void run(double[] input, int start, int length, double[] output) {
+            int top = -1;
+            for (int pc = 0; pc < code.length; pc++) {
+                int op = code[pc];
+                // 最后一条指令直接写入结果数组，省掉一次拷贝。
+                boolean last = pc == code.length - 1;
+                switch (op) {
+                    case CompiledExpression.PUSH_CONSTANT:
+                        top++;
+                        scalar[top] = true;
+                        scalars[top] = constants[code[++pc]];
+                        break;
+                    case CompiledExpression.LOAD_VARIABLE:
+                        pc++;
+                        top++;
+                        scalar[top] = false;
+                        arrays[top] = input;
+                        offsets[top] = start;
+                        break;
+                    case CompiledExpression.NEGATE:
+                    case CompiledExpression.PERCENT:
+                    case CompiledExpression.SQUARE_ROOT:
+                        if (scalar[top]) {
+                            scalars[top] = unary(op, scalars[top]);
+                        } else {
+                            double[] out = last ? output : buffers[top];
+                            int outOffset = last ? start : 0;
+                            unary(op, arrays[top], offsets[top], out, outOffset, length);
+                            arrays[top] = out;
+                            offsets[top] = outOffset;
+                        }
+                        break;
+                    default:
+                        top--;
+                        binary(op, top, last ? output : buffers[top], last ? start : 0, length);
+                        break;
+                }
+            }
+            if (scalar[0]) {
+                Arrays.fill(output, start, start + length, scalars[0]);
+            } else if (arrays[0] != output) {
+                System.arraycopy(arrays[0], offsets[0], output, start, length);
+            }
+        }
+
+        private void binary(int op, int left, double[] out, int outOffset, int length) {
+            int right = left + 1;
+            if (scalar[left] && scalar[right]) {
+                scalars[left] = binary(op, scalars[left], scalars[right]);
+                return;
+            }
+            if (scalar[right]) {
+                binaryScalarRight(op, arrays[left], offsets[left], scalars[right], out, outOffset, length);
+            } else if (scalar[left]) {
+                binaryScalarLeft(op, scalars[left], arrays[right], offsets[right], out, outOffset, length);
+            } else {
+                binaryVectors(op, arrays[left], offsets[left], arrays[right], offsets[right], out, outOffset, length);
+            }
+            scalar[left] = false;
+            arrays[left] = out;
+            offsets[left] = outOffset;
+        }
+
+        private static double unary(int op, double value) {
+            switch (op) {
+                case CompiledExpression.NEGATE:
+                    return -value;
+                case CompiledExpression.PERCENT:
+                    return value / 100;
+                default:
+                    return Math.sqrt(value);
+            }
+        }
+
+        private static double binary(int op, double left, double right) {
+            switch (op) {
+                case CompiledExpression.ADD:
+                    return left + right;
+                case CompiledExpression.SUBTRACT:
+                    return left - right;
+                case CompiledExpression.MULTIPLY:
+                    return left * right;
+                default:
+                    return left / right;
+            }
+        }
+
+        // 以下内核每个 case 都是一个无分支的计数循环，便于 C2 的 SuperWord 向量化。
+
+        private static void unary(int op, double[] a, int ao, double[] out, int oo, int n) {
+            switch (op) {
+                case CompiledExpression.NEGATE:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = -a[ao + i];
+                    }
+                    break;
+                case CompiledExpression.PERCENT:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] / 100;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = Math.sqrt(a[ao + i]);
+                    }
+                    break;
+            }
+        }
+
+        private static void binaryVectors(int op, double[] a, int ao, double[] b, int bo, double[] out, int oo, int n) {
+            switch (op) {
+                case CompiledExpression.ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] + b[bo + i];
+                    }
+                    break;
+                case CompiledExpression.SUBTRACT:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] - b[bo + i];
+                    }
+                    break;
+                case CompiledExpression.MULTIPLY:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] * b[bo + i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] / b[bo + i];
+                    }
+                    break;
+            }
+        }
+
+        private static void binaryScalarRight(int op, double[] a, int ao, double c, double[] out, int oo, int n) {
+            switch (op) {
+                case CompiledExpression.ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] + c;
+                    }
+                    break;
+                case CompiledExpression.SUBTRACT:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] - c;
+                    }
+                    break;
+                case CompiledExpression.MULTIPLY:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] * c;
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = a[ao + i] / c;
+                    }
+                    break;
+            }
+        }
+
+        private static void binaryScalarLeft(int op, double c, double[] b, int bo, double[] out, int oo, int n) {
+            switch (op) {
+                case CompiledExpression.ADD:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = c + b[bo + i];
+                    }
+                    break;
+                case CompiledExpression.SUBTRACT:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = c - b[bo + i];
+                    }
+                    break;
+                case CompiledExpression.MULTIPLY:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = c * b[bo + i];
+                    }
+                    break;
+                default:
+                    for (int i = 0; i < n; i++) {
+                        out[oo + i] = c / b[bo + i];
+                    }
+                    break;
+            }
+        }
+    }
+
+    /**
+     * 精确结果的存储；spill 数组只有在出现放不进 long/byte 的结果时才分配（各块并发写入不同下标）。
+     */
+    private static final class ExactResult {
+        final long[] unscaled;
+        final byte[] scales;
+        volatile BigDecimal[] spill;
+
+        ExactResult(int size) {
+            unscaled = new long[size];
+            scales = new byte[size];
+        }
+
+        void store(int index, BigDecimal value) {
+            int scale = value.scale();
+            if (value.precision() <= MAX_LONG_SCALE && scale >= Byte.MIN_VALUE && scale <= Byte.MAX_VALUE) {
+                unscaled[index] = value.unscaledValue().longValue();
+                scales[index] = (byte) scale;
+            } else {
+                spillArray()[index] = value;
+            }
+        }
+
+        private BigDecimal[] spillArray() {
+            BigDecimal[] array = spill;
+            if (array == null) {
+                synchronized (this) {
+                    array = spill;
+                    if (array == null) {
+                        array = new BigDecimal[unscaled.length];
+                        spill = array;
+                    }
+                }
+            }
+            return array;
+        }
+    }
+
+    /**
+     * 精确内核。每个栈槽是以下三种之一：
+     * - 标量：BigDecimal 常量（能打包时同时保存 unscaled/scale）；
+     * - 定点块：long 数组的一段，整块共用一个 scale，并记录 |unscaled| 的上界；
+     * - 十进制块：BigDecimal 数组，定点路径无法保证结果精确时使用。
+     * 定点运算只在“上界证明结果不超过精度位数”时执行，此时与 BigDecimal 规则的结果数值相同。
+     */
+    private static final class ExactKernel {
+        private static final int SCALAR = 0;
+        private static final int FIXED = 1;
+        private static final int DECIMAL = 2;
+
+        private final int[] code;
+        private final BigDecimal[] constants;
+        private final MathContext mathContext;
+        // 定点结果允许的最大 |unscaled|：不超过精度位数时 BigDecimal 运算不会舍入。
+        private final long maxUnscaled;
+
+        private final int[] kind;
+        private final BigDecimal[] scalars;
+        // 可打包标量的 unscaled 值，由 fixedOperand 填写。
+        private final long[] scalarValues;
+        private final long[][] arrays;
+        private final int[] offsets;
+        private final int[] scales;
+        private final long[] bounds;
+        private final long[][] fixedBuffers;
+        private final BigDecimal[][] decimals;
+        private final BigDecimal[][] decimalBuffers;
+
+        // 当前块的输入只解码一次，表达式中多次出现的变量共用这份结果。
+        private int inputKind = -1;
+        private long[] inputArray;
+        private int inputOffset;
+        private int inputScale;
+        private long inputBound;
+        private final long[] inputFixed = new long[BLOCK_SIZE];
+        private final BigDecimal[] inputDecimals = new BigDecimal[BLOCK_SIZE];
+
+        ExactKernel(CompiledExpression expression, MathContext mathContext) {
+            this.code = expression.code();
+            this.constants = expression.constants();
+            this.mathContext = mathContext;
+            int precision = mathContext.getPrecision();
+            this.maxUnscaled = precision == 0 || precision >= ScaledLongArithmetic.MAX_DIGITS
+                    ? POWERS_OF_TEN[ScaledLongArithmetic.MAX_DIGITS] - 1
+                    : POWERS_OF_TEN[precision] - 1;
+            int depth = expression.maxStackDepth();
+            this.kind = new int[depth];
+            this.scalars = new BigDecimal[depth];
+            this.scalarValues = new long[depth];
+            this.arrays = new long[depth][];
+            this.offsets = new int[depth];
+            this.scales = new int[depth];
+            this.bounds = new long[depth];
+            this.fixedBuffers = new long[depth][BLOCK_SIZE];
+            this.decimals = new BigDecimal[depth][];
+            this.decimalBuffers = new BigDecimal[depth][BLOCK_SIZE];
+        }
+
+        void run(NumericColumn column, int start, int length, ExactResult result) {
+            inputKind = -1;
+            int top = -1;
+            for (int pc = 0; pc < code.length; pc++) {
+                int op = code[pc];
+                switch (op) {
+                    case CompiledExpression.PUSH_CONSTANT:
+                        top++;
+                        kind[top] = SCALAR;
+                        scalars[top] = constants[code[++pc]];
+                        break;
+                    case CompiledExpression.LOAD_VARIABLE:
+                        pc++;
+                        top++;
+                        load(top, column, start, length);
+                        break;
+                    case CompiledExpression.NEGATE:
+                    case CompiledExpression.PERCENT:
+                    case CompiledExpression.SQUARE_ROOT:
+                        unary(op, top, start, length);
+                        break;
+                    default:
+                        top--;
+                        binary(op, top, start, length);
+                        break;
+                }
+            }
+            store(start, length, result);
+        }
+
+        /**
+         * 解码当前块的输入：所有元素都能对齐到同一个不超过 18 的 scale、且不超过精度位数时用定点块；
+         * 已经是统一 scale 的块（最常见的情况）直接引用列的数组，不做拷贝。
+         */
+        private void load(int slot, NumericColumn column, int start, int length) {
+            if (inputKind < 0) {
+                decodeInput(column, start, length);
+            }
+            kind[slot] = inputKind;
+            if (inputKind == FIXED) {
+                arrays[slot] = inputArray;
+                offsets[slot] = inputOffset;
+                scales[slot] = inputScale;
+                bounds[slot] = inputBound;
+            } else {
+                decimals[slot] = inputDecimals;
+            }
+        }
+
+        private void decodeInput(NumericColumn column, int start, int length) {
+            long[] unscaled = column.unscaled();
+            byte[] columnScales = column.scales();
+            BigDecimal[] spill = column.spill();
+            boolean fixed = !hasSpill(spill, start, length);
+            int minScale = Integer.MAX_VALUE;
+            int maxScale = Integer.MIN_VALUE;
+            long bound = 0;
+            if (fixed) {
+                for (int i = start; i < start + length; i++) {
+                    minScale = Math.min(minScale, columnScales[i]);
+                    maxScale = Math.max(maxScale, columnScales[i]);
+                    bound = Math.max(bound, Math.abs(unscaled[i]));
+                }
+                int target = Math.max(maxScale, 0);
+                fixed = target <= MAX_LONG_SCALE && target - minScale <= MAX_LONG_SCALE
+                        && bound <= maxUnscaled && bound >= 0;
+                if (fixed && minScale == maxScale && target == maxScale) {
+                    inputKind = FIXED;
+                    inputArray = unscaled;
+                    inputOffset = start;
+                    inputScale = target;
+                    inputBound = bound;
+                    return;
+                }
+                if (fixed) {
+                    // scale 不统一（如 19.9 与 19.99 混排）：逐个放大到最大的 scale。
+                    long alignedBound = 0;
+                    for (int i = 0; i < length && fixed; i++) {
+                        long factor = POWERS_OF_TEN[target - columnScales[start + i]];
+                        long magnitude = Math.abs(unscaled[start + i]);
+                        if (magnitude > maxUnscaled / factor) {
+                            fixed = false;
+                        } else {
+                            inputFixed[i] = unscaled[start + i] * factor;
+                            alignedBound = Math.max(alignedBound, magnitude * factor);
+                        }
+                    }
+                    if (fixed) {
+                        inputKind = FIXED;
+                        inputArray = inputFixed;
+                        inputOffset = 0;
+                        inputScale = target;
+                        inputBound = alignedBound;
+                        return;
+                    }
+                }
+            }
+            inputKind = DECIMAL;
+            for (int i = 0; i < length; i++) {
+                int index = start + i;
+                inputDecimals[i] = spill != null && spill[index] != null
+                        ? spill[index]
+                        : BigDecimal.valueOf(unscaled[index], columnScales[index]);
+            }
+        }
+
+        private static boolean hasSpill(BigDecimal[] spill, int start, int length) {
+            if (spill == null) {
+                return false;
+            }
+            for (int i = start; i < start + length; i++) {
+                if (spill[i] != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void unary(int op, int slot, int start, int length) {
+            if (kind[slot] == SCALAR) {
+                scalars[slot] = unary(op, scalars[slot], start);
+                return;
+            }
+            if (kind[slot] == FIXED) {
+                if (op == CompiledExpression.PERCENT && scales[slot] + 2 <= MAX_LONG_SCALE) {
+                    // 除以 100 只是 scale + 2，数组原样共享。
+                    scales[slot] += 2;
+                    return;
+                }
+                if (op == CompiledExpression.NEGATE) {
+                    long[] out = fixedBuffers[slot];
+                    affine(arrays[slot], offsets[slot], -1, 0, out, length);
+                    arrays[slot] = out;
+                    offsets[slot] = 0;
+                    return;
+                }
+                toDecimal(slot, length);
+            }
+            BigDecimal[] values = decimals[slot];
+            BigDecimal[] out = decimalBuffers[slot];
+            for (int i = 0; i < length; i++) {
+                out[i] = unary(op, values[i], start + i);
+            }
+            decimals[slot] = out;
+        }
+
+        private BigDecimal unary(int op, BigDecimal value, int row) {
+            try {
+                switch (op) {
+                    case CompiledExpression.NEGATE:
+                        return value.negate(mathContext);
+                    case CompiledExpression.PERCENT:
+                        return value.divide(ONE_HUNDRED, mathContext);
+                    default:
+                        return BigDecimalMath.sqrt(value, mathContext, null);
+                }
+            } catch (ArithmeticException ex) {
+                throw rowError(ex, row);
+            }
+        }
+
+        private void binary(int op, int left, int start, int length) {
+            int right = left + 1;
+            if (kind[left] == SCALAR && kind[right] == SCALAR) {
+                scalars[left] = compute(op, scalars[left], scalars[right], start);
+                return;
+            }
+            if (binaryFixed(op, left, right, length)) {
+                return;
+            }
+            BigDecimal[] out = decimalBuffers[left];
+            for (int i = 0; i < length; i++) {
+                out[i] = compute(op, decimalAt(left, i), decimalAt(right, i), start + i);
+            }
+            kind[left] = DECIMAL;
+            decimals[left] = out;
+        }
+
+        /**
+         * 定点路径：两侧都是定点块或可打包的标量，且上界证明结果不超过精度位数。返回 false 表示需要回退。
+         */
+        private boolean binaryFixed(int op, int left, int right, int length) {
+            if (op == CompiledExpression.DIVIDE || !fixedOperand(left) || !fixedOperand(right)) {
+                return false;
+            }
+            int leftScale = scales[left];
+            int rightScale = scales[right];
+            long leftBound = bounds[left];
+            long rightBound = bounds[right];
+            long[] out = fixedBuffers[left];
+            if (op == CompiledExpression.MULTIPLY) {
+                int scale = leftScale + rightScale;
+                if (scale > MAX_LONG_SCALE || !withinBound(leftBound, rightBound)) {
+                    return false;
+                }
+                if (kind[right] == SCALAR) {
+                    affine(arrays[left], offsets[left], scalarUnscaled(right), 0, out, length);
+                } else if (kind[left] == SCALAR) {
+                    affine(arrays[right], offsets[right], scalarUnscaled(left), 0, out, length);
+                } else {
+                    multiply(arrays[left], offsets[left], arrays[right], offsets[right], out, length);
+                }
+                setFixed(left, out, scale, leftBound * rightBound);
+                return true;
+            }
+            // 加减：先对齐到较大的 scale，上界按放大后的值相加。
+            int scale = Math.max(leftScale, rightScale);
+            long leftFactor = POWERS_OF_TEN[scale - leftScale];
+            long rightFactor = POWERS_OF_TEN[scale - rightScale];
+            if (!withinBound(leftBound, leftFactor) || !withinBound(rightBound, rightFactor)
+                    || leftBound * leftFactor > maxUnscaled - rightBound * rightFactor) {
+                return false;
+            }
+            long signedRightFactor = op == CompiledExpression.SUBTRACT ? -rightFactor : rightFactor;
+            if (kind[right] == SCALAR) {
+                affine(arrays[left], offsets[left], leftFactor, scalarUnscaled(right) * signedRightFactor, out, length);
+            } else if (kind[left] == SCALAR) {
+                affine(arrays[right], offsets[right], signedRightFactor, scalarUnscaled(left) * leftFactor, out, length);
+            } else if (leftFactor == 1 && rightFactor == 1) {
+                if (op == CompiledExpression.SUBTRACT) {
+                    subtract(arrays[left], offsets[left], arrays[right], offsets[right], out, length);
+                } else {
+                    add(arrays[left], offsets[left], arrays[right], offsets[right], out, length);
+                }
+            } else {
+                linear(arrays[left], offsets[left], leftFactor, arrays[right], offsets[right], signedRightFactor,
+                        out, length);
+            }
+            setFixed(left, out, scale, leftBound * leftFactor + rightBound * rightFactor);
+            return true;
+        }
+
+        /**
+         * 定点块本身可用；标量能打包为 unscaled/scale 时也可用（记录到对应槽位以便统一处理）。
+         */
+        private boolean fixedOperand(int slot) {
+            if (kind[slot] == FIXED) {
+                return true;
+            }
+            if (kind[slot] != SCALAR) {
+                return false;
+            }
+            long packed = ScaledLongArithmetic.fromBigDecimal(scalars[slot]);
+            if (packed == ScaledLongArithmetic.NOT_PACKED) {
+                return false;
+            }
+            int scale = ScaledLongArithmetic.scale(packed);
+            long value = ScaledLongArithmetic.unscaled(packed);
+            if (scale > MAX_LONG_SCALE || Math.abs(value) > maxUnscaled) {
+                return false;
+            }
+            scales[slot] = scale;
+            bounds[slot] = Math.abs(value);
+            scalarValues[slot] = value;
+            return true;
+        }
+
+        private long scalarUnscaled(int slot) {
+            return scalarValues[slot];
+        }
+
+        private boolean withinBound(long a, long b) {
+            return a == 0 || b <= maxUnscaled / a;
+        }
+
+        private void setFixed(int slot, long[] values, int scale, long bound) {
+            kind[slot] = FIXED;
+            arrays[slot] = values;
+            offsets[slot] = 0;
+            scales[slot] = scale;
+            bounds[slot] = bound;
+        }
+
+        private void toDecimal(int slot, int length) {
+            BigDecimal[] out = decimalBuffers[slot];
+            for (int i = 0; i < length; i++) {
+                out[i] = decimalAt(slot, i);
+            }
+            kind[slot] = DECIMAL;
+            decimals[slot] = out;
+        }
+
+        private BigDecimal decimalAt(int slot, int i) {
+            switch (kind[slot]) {
+                case SCALAR:
+                    return scalars[slot];
+                case FIXED:
+                    return BigDecimal.valueOf(arrays[slot][offsets[slot] + i], scales[slot]);
+                default:
+                    return decimals[slot][i];
+            }
+        }
+
+        private BigDecimal compute(int op, BigDecimal left, BigDecimal right, int row) {
+            try {
+                return CalculatorModel.computeBinaryOperation(left, right, operatorSymbol(op), mathContext);
+            } catch (ArithmeticException ex) {
+                throw rowError(ex, row);
+            }
+        }
+
+        private static ArithmeticException rowError(ArithmeticException ex, int row) {
+            return new ArithmeticException((ex.getMessage() == null ? "Math error" : ex.getMessage())
+                    + " at row " + (row + 1));
+        }
+
+        private void store(int start, int length, ExactResult result) {
+            switch (kind[0]) {
+                case SCALAR:
+                    for (int i = 0; i < length; i++) {
+                        result.store(start + i, scalars[0]);
+                    }
+                    break;
+                case FIXED:
+                    System.arraycopy(arrays[0], offsets[0], result.unscaled, start, length);
+                    Arrays.fill(result.scales, start, start + length, (byte) scales[0]);
+                    break;
+                default:
+                    for (int i = 0; i < length; i++) {
+                        result.store(start + i, decimals[0][i]);
+                    }
+                    break;
+            }
+        }
+
+        // 定点内核：同样是无分支的计数循环；溢出已由上界检查排除。
+
+        private static void affine(long[] a, int ao, long factor, long addend, long[] out, int n) {
+            for (int i = 0; i < n; i++) {
+                out[i] = a[ao + i] * factor + addend;
+            }
+        }
+
+        private static void add(long[] a, int ao, long[] b, int bo, long[] out, int n) {
+            for (int i = 0; i < n; i++) {
+                out[i] = a[ao + i] + b[bo + i];
+            }
+        }
+
+        private static void subtract(long[] a, int ao, long[] b, int bo, long[] out, int n) {
+            for (int i = 0; i < n; i++) {
+                out[i] = a[ao + i] - b[bo + i];
+            }
+        }
+
+        private static void multiply(long[] a, int ao, long[] b, int bo, long[] out, int n) {
+            for (int i = 0; i < n; i++) {
+                out[i] = a[ao + i] * b[bo + i];
+            }
+        }
+
+        private static void linear(long[] a, int ao, long fa, long[] b, int bo, long fb, long[] out, int n) {
+            for (int i = 0; i < n; i++) {
+                out[i] = a[ao + i] * fa + b[bo + i] * fb;
+            }
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的表达式：一段后缀（逆波兰）形式的指令序列，外加常量池与变量表。
+ * 实例不可变、可在多线程间共享；同一条公式模板可以反复代入不同的变量值求值，
+ * 无需再次解析文本。由 {@link ExpressionCompiler} 创建。
+ */
+public final class CompiledExpression {
+
+    // 指令集：PUSH_CONSTANT / LOAD_VARIABLE 后跟一个操作数（常量池/变量表下标），其余指令没有操作数。
+    static final int PUSH_CONSTANT = 0;
+    static final int LOAD_VARIABLE = 1;
+    static final int ADD = 2;
+    static final int SUBTRACT = 3;
+    static final int MULTIPLY = 4;
+    static final int DIVIDE = 5;
+    static final int NEGATE = 6;
+    static final int PERCENT = 7;
+    static final int SQUARE_ROOT = 8;
+
+    private static final BigDecimal ONE_HUNDRED = new BigDecimal("100");
+
+    private final String source;
+    private final int[] code;
+    private final BigDecimal[] constants;
+    // 常量的 double 近似，供 evaluateDouble 使用，避免每次求值都转换。
+    private final double[] approximateConstants;
+    private final List<String> variables;
+    private final int maxStackDepth;
+
+    CompiledExpression(String source, int[] code, BigDecimal[] constants, String[] variables, int maxStackDepth) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.approximateConstants = new double[constants.length];
+        for (int i = 0; i < constants.length; i++) {
+            approximateConstants[i] = constants[i].doubleValue();
+        }
+        this.variables = Collections.unmodifiableList(Arrays.asList(variables));
+        this.maxStackDepth = maxStackDepth;
+    }
+
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 表达式中出现的变量名，按首次出现的顺序排列；这也是 {@link #evaluate(MathContext, BigDecimal...)} 的参数顺序。
+     */
+    public List<String> getVariables() {
+        return variables;
+    }
+
+    // 以下访问器供列计算（{@link ColumnCalculator}）逐条解释指令，直接返回内部数组，调用方不得修改。
+
+    int[] code() {
+        return code;
+    }
+
+    BigDecimal[] constants() {
+        return constants;
+    }
+
+    double[] approximateConstants() {
+        return approximateConstants;
+    }
+
+    int maxStackDepth() {
+        return maxStackDepth;
+    }
+
+    /**
+     * 按位置代入变量求值，arguments 的个数必须与 {@link #getVariables()} 一致。
+     * 运算规则与按键链路相同（见 {@link CalculatorModel#computeBinaryOperation}），
+     * 除零、负数开方等错误以 ArithmeticException 抛出，消息与模型的错误显示一致。
+     */
+    public BigDecimal evaluate(MathContext mathContext, BigDecimal... arguments) {
+        if (mathContext == null) {
+            throw new IllegalArgumentException("MathContext cannot be null");
+        }
+        if (arguments.length != variables.size()) {
+            throw new IllegalArgumentException("Expected " + variables.size() + " arguments but got "
+                    + arguments.length);
+        }
+        for (BigDecimal argument : arguments) {
+            if (argument == null) {
+                throw new IllegalArgumentException("Arguments cannot be null");
+            }
+        }
+        return run(mathContext, arguments);
+    }
+
+    /**
+     * 按名称代入变量求值；缺少任何一个变量都会抛出 IllegalArgumentException。
+     */
+    public BigDecimal evaluate(MathContext mathContext, Map<String, ? extends BigDecimal> bindings) {
+        BigDecimal[] arguments = new BigDecimal[variables.size()];
+        for (int i = 0; i < arguments.length; i++) {
+            arguments[i] = bindings.get(variables.get(i));
+            if (arguments[i] == null) {
+                throw new IllegalArgumentException("Missing value for variable " + variables.get(i));
+            }
+        }
+        return evaluate(mathContext, arguments);
+    }
+
+    /**
+     * double 快速路径：同一段指令按 IEEE 754 语义执行，供绘图等只需要近似值的场景使用。
+     * 除零得到无穷大、负数开方得到 NaN，不抛异常；调用方负责保证参数个数正确。
+     */
+    double evaluateDouble(double... arguments) {
+        double[] stack = new double[maxStackDepth];
+        int top = -1;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case PUSH_CONSTANT:
+                    stack[++top] = approximateConstants[code[++pc]];
+                    break;
+                case LOAD_VARIABLE:
+                    stack[++top] = arguments[code[++pc]];
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] += stack[top + 1];
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] -= stack[top + 1];
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] *= stack[top + 1];
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] /= stack[top + 1];
+                    break;
+                case NEGATE:
+                    stack[top] = -stack[top];
+                    break;
+                case PERCENT:
+                    stack[top] /= 100;
+                    break;
+                case SQUARE_ROOT:
+                    stack[top] = Math.sqrt(stack[top]);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    /**
+     * 解释执行指令序列。操作数栈的深度在编译期已知，每次求值只分配这一个数组。
+     */
+    private BigDecimal run(MathContext mathContext, BigDecimal[] arguments) {
+        BigDecimal[] stack = new BigDecimal[maxStackDepth];
+        int top = -1;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case PUSH_CONSTANT:
+                    stack[++top] = constants[code[++pc]];
+                    break;
+                case LOAD_VARIABLE:
+                    stack[++top] = arguments[code[++pc]];
+                    break;
+                case ADD:
+                    top--;
+                    stack[top] = CalculatorModel.computeBinaryOperation(stack[top], stack[top + 1], "+", mathContext);
+                    break;
+                case SUBTRACT:
+                    top--;
+                    stack[top] = CalculatorModel.computeBinaryOperation(stack[top], stack[top + 1], "-", mathContext);
+                    break;
+                case MULTIPLY:
+                    top--;
+                    stack[top] = CalculatorModel.computeBinaryOperation(stack[top], stack[top + 1], "\u00d7",
+                            mathContext);
+                    break;
+                case DIVIDE:
+                    top--;
+                    stack[top] = CalculatorModel.computeBinaryOperation(stack[top], stack[top + 1], "\u00f7",
+                            mathContext);
+                    break;
+                case NEGATE:
+                    stack[top] = stack[top].negate(mathContext);
+                    break;
+                case PERCENT:
+                    // 与模型中“没有待执行运算符”时的百分号一致：直接除以 100。
+                    stack[top] = stack[top].divide(ONE_HUNDRED, mathContext);
+                    break;
+                case SQUARE_ROOT:
+                    stack[top] = BigDecimalMath.sqrt(stack[top], mathContext, null);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+}
@@ -0,0 +1,176 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * 显示格式化器：把 BigDecimal 转成显示屏上的文本。
+ * - 普通数值与原先一致：去掉末尾多余的 0，输出不带指数的普通写法；
+ * - 普通写法的宽度超过上限时，整数部分放得下的数把小数部分按剩余宽度四舍五入（高精度的 √2 显示为 1.4142…），
+ *   否则改用科学计数法（如 1.5e+25），尾数按剩余宽度四舍五入；
+ * - 完整精度的文本见 {@link #fullText}，供复制结果使用；
+ * - 宽度在生成字符串之前就计算好，任何情况下都不会为巨大指数构造百万位的字符串；
+ * - 缓存最近一次格式化的值，重复刷新同一个值时直接复用结果。
+ * 实例不是线程安全的，每个模型持有自己的格式化器。
+ */
+final class DisplayFormatter {
+
+    /**
+     * 默认最大显示宽度（字符数，含符号与小数点）。
+     */
+    static final int DEFAULT_MAX_WIDTH = 32;
+
+    // 科学计数法至少要容纳 “-d.de+N” 这样的最短形式。
+    private static final int MIN_WIDTH = 8;
+    // 完整文本中普通写法最多比有效数字多出的字符数（前导/末尾的 0），超过后改用科学计数法。
+    private static final int FULL_TEXT_PADDING = 64;
+
+    private int maxWidth;
+    private BigDecimal cachedValue;
+    private String cachedText;
+
+    DisplayFormatter() {
+        this(DEFAULT_MAX_WIDTH);
+    }
+
+    DisplayFormatter(int maxWidth) {
+        setMaxWidth(maxWidth);
+    }
+
+    int getMaxWidth() {
+        return maxWidth;
+    }
+
+    void setMaxWidth(int maxWidth) {
+        if (maxWidth < MIN_WIDTH) {
+            throw new IllegalArgumentException("Display width must be at least " + MIN_WIDTH);
+        }
+        this.maxWidth = maxWidth;
+        cachedValue = null;
+        cachedText = null;
+    }
+
+    String format(BigDecimal value) {
+        if (value == cachedValue || (cachedValue != null && value.equals(cachedValue))) {
+            return cachedText;
+        }
+        String text = formatUncached(value);
+        cachedValue = value;
+        cachedText = text;
+        return text;
+    }
+
+    private String formatUncached(BigDecimal value) {
+        if (value.signum() == 0) {
+            return "0";
+        }
+        BigDecimal normalized = value.stripTrailingZeros();
+        if (plainWidth(normalized) <= maxWidth) {
+            if (normalized.scale() < 0) {
+                normalized = normalized.setScale(0);
+            }
+            return normalized.toPlainString();
+        }
+        BigDecimal rounded = roundToPlainWidth(normalized);
+        if (rounded != null) {
+            return rounded.toPlainString();
+        }
+        return formatScientific(normalized);
+    }
+
+    /**
+     * 不限宽度的完整文本：普通写法只比有效数字长一点时用普通写法，
+     * 否则用科学计数法（不会为 1e+1000000 生成百万位的字符串）。
+     */
+    static String fullText(BigDecimal value) {
+        if (value.signum() == 0) {
+            return "0";
+        }
+        BigDecimal normalized = value.stripTrailingZeros();
+        if (plainWidth(normalized) <= normalized.precision() + FULL_TEXT_PADDING) {
+            if (normalized.scale() < 0) {
+                normalized = normalized.setScale(0);
+            }
+            return normalized.toPlainString();
+        }
+        return normalized.toString().replace('E', 'e');
+    }
+
+    /**
+     * 普通写法超宽时的另一种选择：小数点前的部分放得下、并且保留的有效数字不少于科学计数法时，
+     * 把小数部分按剩余宽度四舍五入；否则返回 null。
+     * 舍入可能进位（9.99… → 10），进位后多出的只是末尾的 0，去掉后仍然放得下。
+     */
+    private BigDecimal roundToPlainWidth(BigDecimal normalized) {
+        long exponent = exponentOf(normalized);
+        int sign = normalized.signum() < 0 ? 1 : 0;
+        // 小于 1 的数整数部分是 "0"；再扣掉小数点，剩下的都是小数位。
+        long fractionDigits = maxWidth - sign - Math.max(1, exponent + 1) - 1;
+        if (fractionDigits < 1) {
+            return null;
+        }
+        long significantDigits = exponent >= 0 ? exponent + 1 + fractionDigits : fractionDigits + exponent + 1;
+        if (significantDigits < scientificDigits(exponent, sign)) {
+            return null;
+        }
+        BigDecimal rounded = normalized.setScale((int) fractionDigits, RoundingMode.HALF_UP).stripTrailingZeros();
+        if (rounded.signum() == 0 || plainWidth(rounded) > maxWidth) {
+            return null;
+        }
+        return rounded.scale() < 0 ? rounded.setScale(0) : rounded;
+    }
+
+    /**
+     * 科学计数法在当前宽度下能保留的有效数字：总宽度扣掉符号、小数点与 "e±N"。
+     */
+    private int scientificDigits(long exponent, int sign) {
+        int overhead = sign + 1 + 2 + Long.toString(Math.abs(exponent)).length();
+        // 第一位数字已计入 overhead，剩余宽度再扣掉小数点就是可保留的小数位。
+        return 1 + Math.max(0, maxWidth - overhead - 1);
+    }
+
+    /**
+     * 不生成字符串，直接由 precision/scale 推算普通写法的长度（用 long 防止溢出）。
+     */
+    private static long plainWidth(BigDecimal normalized) {
+        long precision = normalized.precision();
+        long scale = normalized.scale();
+        long width;
+        if (scale <= 0) {
+            width = precision - scale;
+        } else if (scale >= precision) {
+            width = scale + 2;
+        } else {
+            width = precision + 1;
+        }
+        return normalized.signum() < 0 ? width + 1 : width;
+    }
+
+    /**
+     * 科学计数法：先按可用宽度对尾数四舍五入，再拼接 “d.ddd e±N”。
+     * 四舍五入可能进位（9.99 → 10.0），所以指数要在舍入之后重新计算。
+     */
+    private String formatScientific(BigDecimal normalized) {
+        long exponent = exponentOf(normalized);
+        int digits = scientificDigits(exponent, normalized.signum() < 0 ? 1 : 0);
+        BigDecimal rounded = normalized.round(new MathContext(digits, RoundingMode.HALF_UP)).stripTrailingZeros();
+        exponent = exponentOf(rounded);
+        String unscaled = rounded.unscaledValue().abs().toString();
+
+        StringBuilder builder = new StringBuilder(maxWidth + 2);
+        if (rounded.signum() < 0) {
+            builder.append('-');
+        }
+        builder.append(unscaled.charAt(0));
+        if (unscaled.length() > 1) {
+            builder.append('.').append(unscaled, 1, unscaled.length());
+        }
+        builder.append('e').append(exponent < 0 ? '-' : '+').append(Math.abs(exponent));
+        return builder.toString();
+    }
+
+    private static long exponentOf(BigDecimal value) {
+        return (long) value.precision() - value.scale() - 1;
+    }
+}
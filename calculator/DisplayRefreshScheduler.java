@@ -0,0 +1,96 @@
+package calculator;
+
+import javax.swing.Timer;
+
+/**
+ * 合并显示刷新：控制器每处理一条命令只调用 {@link #markDirty()}，
+ * 真正写入标签的频率不超过每帧（约 16 ms）一次。
+ * - 空闲时的第一次刷新立即执行，单次按键没有额外延迟；
+ * - 之后的一帧内再有改动只做标记，由定时器在帧末统一推送最新状态；
+ * - 与上一次写入的文本逐个比较，未变化的标签不调用 setText，省掉重新布局与重绘。
+ * 所有方法都只能在 EDT 上调用（javax.swing.Timer 也在 EDT 上回调）。
+ */
+final class DisplayRefreshScheduler {
+
+    static final int FRAME_MILLIS = 16;
+
+    private final CalculatorModel model;
+    private final CalculatorView view;
+    private final Timer timer;
+    private boolean dirty;
+    // 最近一次写入标签的文本；null 表示未知（需要强制写入）。
+    private String renderedHistory;
+    private String renderedCurrent;
+
+    DisplayRefreshScheduler(CalculatorModel model, CalculatorView view) {
+        this.model = model;
+        this.view = view;
+        this.timer = new Timer(FRAME_MILLIS, e -> onFrame());
+        this.timer.setCoalesce(true);
+    }
+
+    /**
+     * 模型状态已改变：空闲时立即刷新并开始一帧的冷却期，冷却期内只做标记。
+     */
+    void markDirty() {
+        if (timer.isRunning()) {
+            dirty = true;
+            return;
+        }
+        render();
+        timer.start();
+    }
+
+    /**
+     * 立即刷新并清除待处理的标记，用于初始化与后台运算结束等需要马上看到结果的场合。
+     */
+    void flush() {
+        timer.stop();
+        dirty = false;
+        render();
+    }
+
+    /**
+     * 标签被其他途径改写过（例如忙碌状态文字），下一次刷新必须重新写入两个标签。
+     */
+    void invalidate() {
+        renderedHistory = null;
+        renderedCurrent = null;
+    }
+
+    private void onFrame() {
+        if (dirty) {
+            dirty = false;
+            render();
+        } else {
+            // 一整帧没有新的改动，回到空闲状态，下一次改动会立即刷新。
+            timer.stop();
+        }
+    }
+
+    /**
+     * 把模型的显示内容写入标签；挂有运行指标时记录实际写入标签的耗时。
+     */
+    private void render() {
+        String history = model.getHistoryDisplay();
+        String current = model.getCurrentDisplay();
+        boolean historyChanged = !history.equals(renderedHistory);
+        boolean currentChanged = !current.equals(renderedCurrent);
+        if (!historyChanged && !currentChanged) {
+            return;
+        }
+        long start = System.nanoTime();
+        if (historyChanged) {
+            view.setHistoryDisplay(history);
+            renderedHistory = history;
+        }
+        if (currentChanged) {
+            view.setCurrentDisplay(current);
+            renderedCurrent = current;
+        }
+        CalculatorMetrics metrics = model.getMetrics();
+        if (metrics != null) {
+            metrics.recordDisplayUpdate(System.nanoTime() - start);
+        }
+    }
+}
@@ -0,0 +1,308 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把表达式文本（例如 "(3+4)×2÷7"）编译成 {@link CompiledExpression}，并按源文本缓存编译结果。
+ * 语法（优先级从低到高）：
+ * <pre>
+ * expression := term (('+' | '-') term)*
+ * term       := unary (('×' | '*' | '÷' | '/') unary)*
+ * unary      := ('-' | '+' | '√') unary | postfix
+ * postfix    := primary '%'*
+ * primary    := number | '(' expression ')' | 'sqrt' '(' expression ')' | variable
+ * </pre>
+ * 数字支持小数与科学计数法（与显示区的 "1.5e+20" 写法一致），变量名由字母、数字和下划线组成。
+ * 缓存是按访问顺序淘汰的 LRU，多线程共享安全；同一条公式模板只在第一次使用时解析。
+ */
+public final class ExpressionCompiler {
+
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private static final ExpressionCompiler SHARED = new ExpressionCompiler();
+    // 括号与一元运算符的最大嵌套层数：解析器是递归的，粘贴进来的超长 "((((…" 或 "----…" 不能耗尽线程栈。
+    private static final int MAX_NESTING = 1000;
+
+    private final Map<String, CompiledExpression> cache;
+
+    public ExpressionCompiler() {
+        this(DEFAULT_CACHE_SIZE);
+    }
+
+    public ExpressionCompiler(int cacheSize) {
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("Cache size cannot be negative");
+        }
+        this.cache = new LinkedHashMap<String, CompiledExpression>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 进程内共享的编译器，模型与批处理都使用它，公式缓存因此在所有调用方之间复用。
+     */
+    public static ExpressionCompiler shared() {
+        return SHARED;
+    }
+
+    /**
+     * 编译表达式；命中缓存时直接返回之前的结果。
+     * 解析在锁外进行，并发编译同一条新公式最多只是重复解析一次，结果等价。
+     *
+     * @throws IllegalArgumentException 表达式为空或存在语法错误
+     */
+    public CompiledExpression compile(String source) {
+        if (source == null || source.trim().isEmpty()) {
+            throw new IllegalArgumentException("Expression cannot be blank");
+        }
+        CompiledExpression compiled;
+        synchronized (cache) {
+            compiled = cache.get(source);
+        }
+        if (compiled == null) {
+            compiled = new Parser(source).parse();
+            synchronized (cache) {
+                cache.put(source, compiled);
+            }
+        }
+        return compiled;
+    }
+
+    /**
+     * 当前缓存的公式数量。
+     */
+    public int cachedCount() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    /**
+     * 递归下降解析器：边解析边输出后缀指令，同时统计操作数栈的最大深度。
+     */
+    private static final class Parser {
+        private final String source;
+        private int position;
+        private int[] code = new int[16];
+        private int codeLength;
+        private final List<BigDecimal> constants = new ArrayList<>();
+        private final List<String> variables = new ArrayList<>();
+        private int depth;
+        private int maxDepth;
+        // 当前递归层数，每进入一层括号或一元运算符加一。
+        private int nesting;
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        CompiledExpression parse() {
+            parseExpression();
+            skipWhitespace();
+            if (position < source.length()) {
+                throw unexpected();
+            }
+            return new CompiledExpression(source, Arrays.copyOf(code, codeLength),
+                    constants.toArray(new BigDecimal[0]), variables.toArray(new String[0]), maxDepth);
+        }
+
+        private void parseExpression() {
+            parseTerm();
+            while (true) {
+                if (accept('+')) {
+                    parseTerm();
+                    emitBinary(CompiledExpression.ADD);
+                } else if (accept('-') || accept('\u2212')) {
+                    parseTerm();
+                    emitBinary(CompiledExpression.SUBTRACT);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private void parseTerm() {
+            parseUnary();
+            while (true) {
+                if (accept('\u00d7') || accept('*')) {
+                    parseUnary();
+                    emitBinary(CompiledExpression.MULTIPLY);
+                } else if (accept('\u00f7') || accept('/')) {
+                    parseUnary();
+                    emitBinary(CompiledExpression.DIVIDE);
+                } else {
+                    return;
+                }
+            }
+        }
+
+        /**
+         * 所有递归（括号、sqrt(…)、一元运算符）都经过这里，因此只在这里检查嵌套层数。
+         */
+        private void parseUnary() {
+            if (++nesting > MAX_NESTING) {
+                throw new IllegalArgumentException("Expression too deeply nested");
+            }
+            if (accept('-') || accept('\u2212')) {
+                parseUnary();
+                emit(CompiledExpression.NEGATE);
+            } else if (accept('+')) {
+                parseUnary();
+            } else if (accept('\u221a')) {
+                parseUnary();
+                emit(CompiledExpression.SQUARE_ROOT);
+            } else {
+                parsePostfix();
+            }
+            nesting--;
+        }
+
+        private void parsePostfix() {
+            parsePrimary();
+            while (accept('%')) {
+                emit(CompiledExpression.PERCENT);
+            }
+        }
+
+        private void parsePrimary() {
+            skipWhitespace();
+            if (position >= source.length()) {
+                throw new IllegalArgumentException("Unexpected end of expression");
+            }
+            char c = source.charAt(position);
+            if (accept('(')) {
+                parseExpression();
+                expect(')');
+            } else if (isDigit(c) || c == '.') {
+                parseNumber();
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = position;
+                while (position < source.length()
+                        && (Character.isLetterOrDigit(source.charAt(position)) || source.charAt(position) == '_')) {
+                    position++;
+                }
+                String name = source.substring(start, position);
+                if (peek('(')) {
+                    if (!"sqrt".equals(name)) {
+                        throw new IllegalArgumentException("Unknown function " + name + " at position " + start);
+                    }
+                    accept('(');
+                    parseExpression();
+                    expect(')');
+                    emit(CompiledExpression.SQUARE_ROOT);
+                } else {
+                    int index = variables.indexOf(name);
+                    if (index < 0) {
+                        index = variables.size();
+                        variables.add(name);
+                    }
+                    emitPush(CompiledExpression.LOAD_VARIABLE, index);
+                }
+            } else {
+                throw unexpected();
+            }
+        }
+
+        /**
+         * 数字字面量：123、0.5、.5、1.5e+20。指数部分只有在 e 后面确实跟着数字时才算，
+         * 否则 e 留给变量名。常量按原样精确保存，与按键输入一样不做舍入。
+         */
+        private void parseNumber() {
+            int start = position;
+            while (position < source.length() && isDigit(source.charAt(position))) {
+                position++;
+            }
+            if (position < source.length() && source.charAt(position) == '.') {
+                position++;
+                while (position < source.length() && isDigit(source.charAt(position))) {
+                    position++;
+                }
+            }
+            if (position < source.length() && (source.charAt(position) == 'e' || source.charAt(position) == 'E')) {
+                int exponent = position + 1;
+                if (exponent < source.length() && (source.charAt(exponent) == '+' || source.charAt(exponent) == '-')) {
+                    exponent++;
+                }
+                if (exponent < source.length() && isDigit(source.charAt(exponent))) {
+                    position = exponent;
+                    while (position < source.length() && isDigit(source.charAt(position))) {
+                        position++;
+                    }
+                }
+            }
+            BigDecimal value;
+            try {
+                value = new BigDecimal(source.substring(start, position));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid number at position " + start);
+            }
+            constants.add(value);
+            emitPush(CompiledExpression.PUSH_CONSTANT, constants.size() - 1);
+        }
+
+        private void emitPush(int opcode, int operand) {
+            emit(opcode);
+            emit(operand);
+            if (++depth > maxDepth) {
+                maxDepth = depth;
+            }
+        }
+
+        private void emitBinary(int opcode) {
+            emit(opcode);
+            depth--;
+        }
+
+        private void emit(int value) {
+            if (codeLength == code.length) {
+                code = Arrays.copyOf(code, codeLength * 2);
+            }
+            code[codeLength++] = value;
+        }
+
+        private boolean accept(char expected) {
+            if (peek(expected)) {
+                position++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean peek(char expected) {
+            skipWhitespace();
+            return position < source.length() && source.charAt(position) == expected;
+        }
+
+        private void expect(char expected) {
+            if (!accept(expected)) {
+                if (position >= source.length()) {
+                    throw new IllegalArgumentException("Missing '" + expected + "'");
+                }
+                throw unexpected();
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+        }
+
+        private IllegalArgumentException unexpected() {
+            return new IllegalArgumentException("Unexpected '" + source.charAt(position)
+                    + "' at position " + position);
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+    }
+}
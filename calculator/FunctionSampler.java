@@ -0,0 +1,146 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * 绘图用的函数采样器：在工作线程上把 f(x) 采样成固定大小的块。
+ * - 采样点落在网格 x = k × step 上，step = 2^level，不同缩放级别的网格点精确重合，
+ *   因此缩放后可以直接复用另一个级别已经算好的值；
+ * - 每个点先走 {@link CompiledExpression#evaluateDouble} 快速路径；
+ * - 相邻两点的跳变明显大于周围变化时，改用 BigDecimal 在区间内二分细化，
+ *   区分“陡峭但连续”与“真正的间断（极点）”，后者在绘制时断开折线。
+ * 实例不可变，可被多个工作线程同时使用。
+ */
+final class FunctionSampler {
+
+    static final int CHUNK_SIZE = 128;
+
+    // 跳变超过相邻差值的这个倍数才视为可疑，需要细化。
+    private static final double JUMP_RATIO = 16;
+    // 二分细化的最大层数：2^-12 的区间宽度已远小于一个像素。
+    private static final int MAX_REFINEMENTS = 12;
+    private static final MathContext REFINE_CONTEXT = new MathContext(34, RoundingMode.HALF_EVEN);
+
+    private final CompiledExpression expression;
+
+    /**
+     * @param expression 最多含一个变量的表达式；不含变量时视为常函数
+     */
+    FunctionSampler(CompiledExpression expression) {
+        if (expression.getVariables().size() > 1) {
+            throw new IllegalArgumentException("Expression must have at most one variable");
+        }
+        this.expression = expression;
+    }
+
+    static double gridX(int level, long k) {
+        return Math.scalb((double) k, level);
+    }
+
+    /**
+     * 采样一个块：覆盖网格下标 [chunkIndex × CHUNK_SIZE, (chunkIndex + 1) × CHUNK_SIZE)。
+     * values/known 由调用方预先填入可复用的值（known[i] 为 true 的位置不再计算）。
+     *
+     * @return breakAfter[i] 为 true 表示第 i 点与下一点之间是间断，不应连线
+     */
+    boolean[] sample(int level, long chunkIndex, double[] values, boolean[] known) {
+        long first = chunkIndex * CHUNK_SIZE;
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            if (!known[i]) {
+                values[i] = evaluate(gridX(level, first + i));
+            }
+        }
+        // 块两侧各多算一个点，保证块边界上的线段也能做间断判断。
+        double before = evaluate(gridX(level, first - 1));
+        double after = evaluate(gridX(level, first + CHUNK_SIZE));
+        double afterNext = evaluate(gridX(level, first + CHUNK_SIZE + 1));
+
+        boolean[] breakAfter = new boolean[CHUNK_SIZE];
+        for (int i = 0; i < CHUNK_SIZE; i++) {
+            double y0 = values[i];
+            double y1 = i + 1 < CHUNK_SIZE ? values[i + 1] : after;
+            if (!Double.isFinite(y0) || !Double.isFinite(y1)) {
+                breakAfter[i] = true;
+                continue;
+            }
+            double left = i > 0 ? values[i - 1] : before;
+            double right = i + 2 < CHUNK_SIZE ? values[i + 2] : (i + 2 == CHUNK_SIZE ? after : afterNext);
+            if (isSuspicious(y0, y1, left, right)) {
+                breakAfter[i] = isDiscontinuous(gridX(level, first + i), gridX(level, first + i + 1));
+            }
+        }
+        return breakAfter;
+    }
+
+    double evaluate(double x) {
+        return expression.evaluateDouble(x);
+    }
+
+    /**
+     * 两种情况需要细化：
+     * - 跳变明显大于两侧的变化量（可能是极点，也可能只是函数在这里很陡）；
+     * - 这一段的走向与两侧都相反，例如 1/(x-c) 的极点落在两个采样点之间，
+     *   两侧都在下降而这一段“跳”了上去；光滑函数的极值点只会让一侧反向。
+     */
+    private static boolean isSuspicious(double y0, double y1, double left, double right) {
+        double jump = y1 - y0;
+        if (jump == 0) {
+            return false;
+        }
+        double leftStep = Double.isFinite(left) ? y0 - left : 0;
+        double rightStep = Double.isFinite(right) ? right - y1 : 0;
+        if (Math.abs(jump) > JUMP_RATIO * Math.max(Math.abs(leftStep), Math.abs(rightStep))) {
+            return true;
+        }
+        return Math.signum(leftStep) == -Math.signum(jump) && Math.signum(rightStep) == -Math.signum(jump);
+    }
+
+    /**
+     * 在 [x0, x1] 上用 BigDecimal 二分：连续函数的中点值必然落在两端值之间，
+     * 并且跳变会随区间缩小；极点附近中点值会越界或跳变始终不缩小。
+     * BigDecimal 避免了 double 在极点附近因抵消误差给出的假象。
+     */
+    private boolean isDiscontinuous(double x0, double x1) {
+        BigDecimal a = new BigDecimal(x0);
+        BigDecimal b = new BigDecimal(x1);
+        BigDecimal ya = evaluateExact(a);
+        BigDecimal yb = evaluateExact(b);
+        if (ya == null || yb == null) {
+            return true;
+        }
+        BigDecimal initialJump = yb.subtract(ya).abs();
+        BigDecimal two = BigDecimal.valueOf(2);
+        for (int i = 0; i < MAX_REFINEMENTS; i++) {
+            BigDecimal mid = a.add(b).divide(two, REFINE_CONTEXT);
+            BigDecimal ym = evaluateExact(mid);
+            if (ym == null || ym.compareTo(ya.min(yb)) < 0 || ym.compareTo(ya.max(yb)) > 0) {
+                return true;
+            }
+            // 继续细化跳变较大的一半。
+            if (ym.subtract(ya).abs().compareTo(yb.subtract(ym).abs()) >= 0) {
+                b = mid;
+                yb = ym;
+            } else {
+                a = mid;
+                ya = ym;
+            }
+        }
+        // 连续函数经过多次二分后跳变已经很小；仍保留一半以上说明是跳跃间断。
+        return yb.subtract(ya).abs().multiply(two).compareTo(initialJump) >= 0;
+    }
+
+    /**
+     * 高精度求值；定义域之外（除零、负数开方）返回 null。
+     */
+    private BigDecimal evaluateExact(BigDecimal x) {
+        try {
+            return expression.getVariables().isEmpty()
+                    ? expression.evaluate(REFINE_CONTEXT)
+                    : expression.evaluate(REFINE_CONTEXT, x);
+        } catch (ArithmeticException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package calculator;
+
+import javax.swing.JComponent;
+import javax.swing.SwingUtilities;
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * 函数图像面板：拖动平移、滚轮缩放（以鼠标位置为中心，每格 2 倍）。
+ * - 绘制只读取已缓存的采样块，缺失的块交给 fork-join 线程池计算，完成后再重绘，EDT 永远不会等待计算；
+ * - 采样块按 (缩放级别, 块下标) 缓存：平移只会请求新露出的块，缩放时新块中与相邻级别重合的点直接复用；
+ * - 缓存、待计算集合与视图状态都只在 EDT 上读写，工作线程只拿到自己那一块的数组。
+ */
+public class GraphPanel extends JComponent {
+
+    private static final Color BACKGROUND = new Color(0x181818);
+    private static final Color GRID_COLOR = new Color(0x2a2a2a);
+    private static final Color AXIS_COLOR = new Color(0x6a6a6a);
+    private static final Color LABEL_COLOR = new Color(0xbfbfbf);
+    private static final Color CURVE_COLOR = new Color(0x2196f3);
+    private static final Font LABEL_FONT = new Font("Segoe UI", Font.PLAIN, 11);
+    private static final MathContext TICK_CONTEXT = new MathContext(6);
+
+    // 每个像素两个采样点，折线足够平滑。
+    private static final int SAMPLES_PER_PIXEL = 2;
+    // 初始级别：采样间距 2^-6，每像素 2^-5 个单位，600 像素宽约显示 19 个单位。
+    private static final int DEFAULT_LEVEL = -6;
+    private static final int MIN_LEVEL = -40;
+    private static final int MAX_LEVEL = 40;
+    // 最多缓存的块数（每块 128 个 double），约 2 MB。
+    private static final int MAX_CACHED_CHUNKS = 2048;
+    // 绘制时把远离可见区域的纵坐标截断，避免 Java2D 处理极大坐标。
+    private static final double MAX_PIXEL_OVERSHOOT = 10_000;
+    private static final int MAX_GRID_LINES = 200;
+
+    private static final ForkJoinPool SAMPLING_POOL =
+            new ForkJoinPool(Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+
+    private final Map<Long, Chunk> cache = new LinkedHashMap<Long, Chunk>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Chunk> eldest) {
+            return size() > MAX_CACHED_CHUNKS;
+        }
+    };
+    private final Set<Long> pending = new HashSet<>();
+    private final Path2D.Double path = new Path2D.Double();
+    private final Line2D.Double line = new Line2D.Double();
+
+    private FunctionSampler sampler;
+    // 更换表达式时递增，工作线程据此丢弃过期的结果。
+    private volatile int generation;
+    // 当前缩放级别，工作线程据此跳过已经看不到的级别。
+    private volatile int level = DEFAULT_LEVEL;
+    // 视图中心的世界坐标，窗口尺寸变化时中心保持不变。
+    private double centerX;
+    private double centerY;
+
+    public GraphPanel() {
+        setPreferredSize(new Dimension(640, 480));
+        setOpaque(true);
+        MouseAdapter navigation = new MouseAdapter() {
+            private int lastX;
+            private int lastY;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                lastX = e.getX();
+                lastY = e.getY();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                double unitsPerPixel = unitsPerPixel();
+                centerX -= (e.getX() - lastX) * unitsPerPixel;
+                centerY += (e.getY() - lastY) * unitsPerPixel;
+                lastX = e.getX();
+                lastY = e.getY();
+                repaint();
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    resetView();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(e.getWheelRotation(), e.getX(), e.getY());
+            }
+        };
+        addMouseListener(navigation);
+        addMouseMotionListener(navigation);
+        addMouseWheelListener(navigation);
+    }
+
+    /**
+     * 绘制新的表达式：清空缓存并丢弃所有在途计算。
+     *
+     * @throws IllegalArgumentException 表达式含有多于一个变量
+     */
+    public void setExpression(CompiledExpression expression) {
+        sampler = expression == null ? null : new FunctionSampler(expression);
+        generation++;
+        cache.clear();
+        pending.clear();
+        repaint();
+    }
+
+    /**
+     * 回到以原点为中心的默认缩放。
+     */
+    public void resetView() {
+        level = DEFAULT_LEVEL;
+        centerX = 0;
+        centerY = 0;
+        repaint();
+    }
+
+    /**
+     * 以 (pixelX, pixelY) 处的点为中心缩放，缩放后该点仍在鼠标下方。
+     */
+    private void zoom(int notches, int pixelX, int pixelY) {
+        int newLevel = Math.max(MIN_LEVEL, Math.min(MAX_LEVEL, level + notches));
+        if (newLevel == level) {
+            return;
+        }
+        double offsetX = pixelX - getWidth() / 2.0;
+        double offsetY = pixelY - getHeight() / 2.0;
+        double worldX = centerX + offsetX * unitsPerPixel();
+        double worldY = centerY - offsetY * unitsPerPixel();
+        level = newLevel;
+        centerX = worldX - offsetX * unitsPerPixel();
+        centerY = worldY + offsetY * unitsPerPixel();
+        repaint();
+    }
+
+    private double unitsPerPixel() {
+        return Math.scalb((double) SAMPLES_PER_PIXEL, level);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            g2.setColor(BACKGROUND);
+            g2.fillRect(0, 0, getWidth(), getHeight());
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            paintGrid(g2);
+            if (sampler != null) {
+                paintCurve(g2);
+            }
+        } finally {
+            g2.dispose();
+        }
+    }
+
+    /**
+     * 网格间距取 1/2/5 × 10^n 中大约 80 像素的那个，坐标轴加粗并标注刻度。
+     */
+    private void paintGrid(Graphics2D g2) {
+        int width = getWidth();
+        int height = getHeight();
+        double unitsPerPixel = unitsPerPixel();
+        double spacing = niceSpacing(unitsPerPixel * 80);
+        double left = centerX - width / 2.0 * unitsPerPixel;
+        double top = centerY + height / 2.0 * unitsPerPixel;
+        double originPixelX = -left / unitsPerPixel;
+        double originPixelY = top / unitsPerPixel;
+
+        g2.setFont(LABEL_FONT);
+        // 用整数下标而不是累加浮点数，远离原点放大时也保证循环会结束。
+        long firstColumn = (long) Math.ceil(left / spacing);
+        for (long i = firstColumn; i < firstColumn + MAX_GRID_LINES; i++) {
+            double x = i * spacing;
+            if (x >= left + width * unitsPerPixel) {
+                break;
+            }
+            double px = (x - left) / unitsPerPixel;
+            g2.setColor(GRID_COLOR);
+            line.setLine(px, 0, px, height);
+            g2.draw(line);
+            if (Math.abs(x) > spacing / 2) {
+                g2.setColor(LABEL_COLOR);
+                g2.drawString(formatTick(x), (float) px + 3,
+                        (float) Math.max(12, Math.min(height - 4, originPixelY + 14)));
+            }
+        }
+        long firstRow = (long) Math.floor(top / spacing);
+        for (long i = firstRow; i > firstRow - MAX_GRID_LINES; i--) {
+            double y = i * spacing;
+            if (y <= top - height * unitsPerPixel) {
+                break;
+            }
+            double py = (top - y) / unitsPerPixel;
+            g2.setColor(GRID_COLOR);
+            line.setLine(0, py, width, py);
+            g2.draw(line);
+            if (Math.abs(y) > spacing / 2) {
+                g2.setColor(LABEL_COLOR);
+                g2.drawString(formatTick(y), (float) Math.max(3, Math.min(width - 60, originPixelX + 4)),
+                        (float) py - 3);
+            }
+        }
+        g2.setColor(AXIS_COLOR);
+        line.setLine(originPixelX, 0, originPixelX, height);
+        g2.draw(line);
+        line.setLine(0, originPixelY, width, originPixelY);
+        g2.draw(line);
+    }
+
+    /**
+     * 只遍历可见范围内的网格点；缺失的块发起计算并在此处断开折线，
+     * 可见区域两侧各预取一个块，让拖动时新露出的部分多半已经就绪。
+     */
+    private void paintCurve(Graphics2D g2) {
+        int width = getWidth();
+        int height = getHeight();
+        double unitsPerPixel = unitsPerPixel();
+        double left = centerX - width / 2.0 * unitsPerPixel;
+        double top = centerY + height / 2.0 * unitsPerPixel;
+        double step = FunctionSampler.gridX(level, 1);
+        long firstIndex = (long) Math.floor(left / step) - 1;
+        long lastIndex = (long) Math.ceil((left + width * unitsPerPixel) / step) + 1;
+        long firstChunk = Math.floorDiv(firstIndex, FunctionSampler.CHUNK_SIZE);
+        long lastChunk = Math.floorDiv(lastIndex, FunctionSampler.CHUNK_SIZE);
+
+        path.reset();
+        boolean penDown = false;
+        for (long chunkIndex = firstChunk; chunkIndex <= lastChunk; chunkIndex++) {
+            Chunk chunk = cache.get(key(level, chunkIndex));
+            if (chunk == null) {
+                requestChunk(level, chunkIndex);
+                penDown = false;
+                continue;
+            }
+            long chunkStart = chunkIndex * FunctionSampler.CHUNK_SIZE;
+            int from = (int) Math.max(0, firstIndex - chunkStart);
+            int to = (int) Math.min(FunctionSampler.CHUNK_SIZE - 1, lastIndex - chunkStart);
+            for (int i = from; i <= to; i++) {
+                double y = chunk.values[i];
+                if (!Double.isFinite(y)) {
+                    penDown = false;
+                    continue;
+                }
+                double px = (FunctionSampler.gridX(level, chunkStart + i) - left) / unitsPerPixel;
+                double py = Math.max(-MAX_PIXEL_OVERSHOOT,
+                        Math.min(height + MAX_PIXEL_OVERSHOOT, (top - y) / unitsPerPixel));
+                if (penDown) {
+                    path.lineTo(px, py);
+                } else {
+                    path.moveTo(px, py);
+                }
+                penDown = !chunk.breakAfter[i];
+            }
+        }
+        requestChunk(level, firstChunk - 1);
+        requestChunk(level, lastChunk + 1);
+
+        g2.setColor(CURVE_COLOR);
+        g2.setStroke(new BasicStroke(2f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+        g2.draw(path);
+    }
+
+    /**
+     * 提交一个块的计算。新块中与相邻级别重合的网格点先从缓存复制：
+     * 放大一级时一半的点来自上一级，缩小一级时全部的点来自下一级。
+     */
+    private void requestChunk(int chunkLevel, long chunkIndex) {
+        long key = key(chunkLevel, chunkIndex);
+        if (cache.containsKey(key) || !pending.add(key)) {
+            return;
+        }
+        double[] values = new double[FunctionSampler.CHUNK_SIZE];
+        boolean[] known = new boolean[FunctionSampler.CHUNK_SIZE];
+        long first = chunkIndex * FunctionSampler.CHUNK_SIZE;
+        for (int i = 0; i < FunctionSampler.CHUNK_SIZE; i++) {
+            long k = first + i;
+            Chunk finer = cache.get(key(chunkLevel - 1, Math.floorDiv(2 * k, FunctionSampler.CHUNK_SIZE)));
+            if (finer != null) {
+                values[i] = finer.values[chunkOffset(2 * k)];
+                known[i] = true;
+            } else if ((k & 1) == 0) {
+                Chunk coarser = cache.get(key(chunkLevel + 1, Math.floorDiv(k / 2, FunctionSampler.CHUNK_SIZE)));
+                if (coarser != null) {
+                    values[i] = coarser.values[chunkOffset(k / 2)];
+                    known[i] = true;
+                }
+            }
+        }
+
+        FunctionSampler chunkSampler = sampler;
+        int chunkGeneration = generation;
+        SAMPLING_POOL.execute(() -> {
+            Chunk chunk = null;
+            // 已经换了表达式或缩放到别的级别，这个块不会再被画出，直接放弃。
+            if (chunkGeneration == generation && chunkLevel == level) {
+                try {
+                    chunk = new Chunk(values, chunkSampler.sample(chunkLevel, chunkIndex, values, known));
+                } catch (RuntimeException ignored) {
+                    // 采样失败时该块保持空白，下次进入视野会重新请求。
+                }
+            }
+            Chunk result = chunk;
+            SwingUtilities.invokeLater(() -> deliver(chunkGeneration, key, result));
+        });
+    }
+
+    private void deliver(int chunkGeneration, long key, Chunk chunk) {
+        if (chunkGeneration != generation) {
+            return;
+        }
+        pending.remove(key);
+        if (chunk != null) {
+            cache.put(key, chunk);
+            repaint();
+        }
+    }
+
+    /**
+     * 采样下标在所属分块内的位置，即 floorMod(index, CHUNK_SIZE)：CHUNK_SIZE 是 2 的幂，负下标同样适用。
+     * Java 8 只有返回 long 的 floorMod(long, long)，这里直接取低位，项目仍能以 Java 8 为目标编译。
+     */
+    private static int chunkOffset(long index) {
+        return (int) index & (FunctionSampler.CHUNK_SIZE - 1);
+    }
+
+    private static long key(int chunkLevel, long chunkIndex) {
+        // 块下标用低 48 位（足够覆盖任何实际的平移距离），级别放在高 16 位。
+        return ((long) chunkLevel << 48) ^ (chunkIndex & 0xFFFF_FFFF_FFFFL);
+    }
+
+    private static double niceSpacing(double rough) {
+        double magnitude = Math.pow(10, Math.floor(Math.log10(rough)));
+        double fraction = rough / magnitude;
+        if (fraction < 1.5) {
+            return magnitude;
+        }
+        if (fraction < 3.5) {
+            return 2 * magnitude;
+        }
+        if (fraction < 7.5) {
+            return 5 * magnitude;
+        }
+        return 10 * magnitude;
+    }
+
+    private static String formatTick(double value) {
+        double magnitude = Math.abs(value);
+        if (magnitude >= 1e6 || magnitude < 1e-3) {
+            return String.format("%.1e", value);
+        }
+        return new BigDecimal(value).round(TICK_CONTEXT).stripTrailingZeros().toPlainString();
+    }
+
+    /**
+     * 一个采样块：CHUNK_SIZE 个 y 值与每个点之后是否断开折线。创建后不再修改。
+     */
+    private static final class Chunk {
+        private final double[] values;
+        private final boolean[] breakAfter;
+
+        Chunk(double[] values, boolean[] breakAfter) {
+            this.values = values;
+            this.breakAfter = breakAfter;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package calculator;
+
+import javax.swing.BorderFactory;
+import javax.swing.JFrame;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JTextField;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.event.ActionListener;
+
+/**
+ * 函数图像窗口：上方输入 f(x)，中间是 {@link GraphPanel}，下方显示操作提示或错误。
+ * 与主窗口一样只负责布局，表达式的编译由控制器完成。
+ */
+public class GraphView extends JFrame {
+
+    private static final Color WINDOW_BACKGROUND = new Color(0x1f1f1f);
+    private static final Color TEXT_COLOR = new Color(0xf5f5f5);
+    private static final Color HINT_COLOR = new Color(0xbfbfbf);
+    private static final Color ERROR_COLOR = new Color(0xef5350);
+    private static final Font INPUT_FONT = new Font("Segoe UI", Font.PLAIN, 18);
+    private static final String HINT = "Drag to pan, scroll to zoom, double-click to reset";
+
+    private final JTextField expressionField = new JTextField("x", 24);
+    private final JLabel statusLabel = new JLabel(HINT);
+    private final GraphPanel graphPanel = new GraphPanel();
+
+    public GraphView() {
+        super("Graph");
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+
+        JLabel prompt = new JLabel("f(x) =");
+        prompt.setForeground(TEXT_COLOR);
+        prompt.setFont(INPUT_FONT);
+        expressionField.setFont(INPUT_FONT);
+
+        JPanel inputPanel = new JPanel(new BorderLayout(8, 0));
+        inputPanel.setBackground(WINDOW_BACKGROUND);
+        inputPanel.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        inputPanel.add(prompt, BorderLayout.WEST);
+        inputPanel.add(expressionField, BorderLayout.CENTER);
+
+        statusLabel.setBorder(BorderFactory.createEmptyBorder(4, 8, 4, 8));
+        statusLabel.setForeground(HINT_COLOR);
+
+        JPanel content = new JPanel(new BorderLayout());
+        content.setBackground(WINDOW_BACKGROUND);
+        content.add(inputPanel, BorderLayout.NORTH);
+        content.add(graphPanel, BorderLayout.CENTER);
+        content.add(statusLabel, BorderLayout.SOUTH);
+        setContentPane(content);
+        pack();
+    }
+
+    /**
+     * 在输入框按 Enter 时触发，action command 为输入的表达式文本。
+     */
+    public void addExpressionListener(ActionListener listener) {
+        expressionField.addActionListener(listener);
+    }
+
+    public String getExpressionText() {
+        return expressionField.getText();
+    }
+
+    /**
+     * 绘制已编译的表达式，并把状态栏恢复为操作提示。
+     */
+    public void plot(CompiledExpression expression) {
+        graphPanel.setExpression(expression);
+        statusLabel.setForeground(HINT_COLOR);
+        statusLabel.setText(HINT);
+    }
+
+    /**
+     * 表达式无法绘制时在状态栏显示原因，保留之前的图像。
+     */
+    public void showError(String message) {
+        statusLabel.setForeground(ERROR_COLOR);
+        statusLabel.setText(message);
+    }
+}
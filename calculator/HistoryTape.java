@@ -0,0 +1,406 @@
+package calculator;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 持久化的计算历史纸带：每次完成的 “左操作数 运算符 右操作数 = 结果” 追加为一条定长二进制记录。
+ * 文件布局：
+ * <pre>
+ * 头部 64 字节：magic "CALCTAPE" | version | recordSize | 已提交记录数
+ * 记录 64 字节：时间戳 ms (8) | 运算符 (2) | 操作数标志 (2) | 保留 (4) | 左/右/结果 各 16 字节
+ * </pre>
+ * 操作数能放进 long 的直接内联（unscaled + scale），否则写入旁边的 “.values” 文件，槽位里只存偏移与长度。
+ * - 记录文件按 64 MB 分段内存映射，追加只是一次内存写入，先写记录再更新头部计数，中途崩溃不会留下半条记录；
+ * - 打开时只读取头部与最近 N 条记录（内存环形缓冲区，供界面显示），与文件大小无关；
+ * - 时间戳单调不减，按时间查找是对映射内存的二分查找，不需要把文件读进堆。
+ * 所有方法都是同步的，可被 EDT 与后台运算线程同时使用。
+ * 记录数与 .values 的大小缓存在内存中，因此同一时刻只允许一个实例（一个进程）打开纸带：
+ * 打开时对记录文件加排他锁，已被占用时抛出 IOException，调用方不带纸带继续运行。
+ */
+public final class HistoryTape implements AutoCloseable {
+
+    public static final int DEFAULT_RECENT_CAPACITY = 100;
+
+    private static final long MAGIC = 0x43414c4354415045L; // "CALCTAPE"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int RECORD_SIZE = 64;
+    private static final int COUNT_OFFSET = 16;
+    private static final int SEGMENT_RECORDS = 1 << 20;
+    private static final long SEGMENT_BYTES = (long) SEGMENT_RECORDS * RECORD_SIZE;
+
+    // 记录内各字段的偏移。
+    private static final int TIMESTAMP_OFFSET = 0;
+    private static final int OPERATOR_OFFSET = 8;
+    private static final int FLAGS_OFFSET = 10;
+    private static final int OPERANDS_OFFSET = 16;
+    private static final int OPERAND_SIZE = 16;
+
+    // 本进程内已打开的纸带。文件锁只在进程之间互斥，而且关闭同一文件的任何一个通道都会释放进程持有的锁，
+    // 所以同一进程内的重复打开在这里拒绝，根本不打开第二个通道。
+    private static final Set<Path> OPEN_FILES = ConcurrentHashMap.newKeySet();
+
+    private final Path lockKey;
+    private final FileChannel records;
+    private final FileChannel values;
+    private final MappedByteBuffer header;
+    private MappedByteBuffer[] segments = new MappedByteBuffer[0];
+    private long count;
+    private long valuesSize;
+    private long lastTimestamp;
+    // 最近的记录，recentStart 指向最旧的一条。
+    private final Entry[] recent;
+    private int recentStart;
+    private int recentSize;
+    private boolean closed;
+
+    private HistoryTape(Path file, int recentCapacity) throws IOException {
+        if (recentCapacity <= 0) {
+            throw new IllegalArgumentException("Recent capacity must be positive");
+        }
+        this.recent = new Entry[recentCapacity];
+        this.lockKey = file.toAbsolutePath().normalize();
+        if (!OPEN_FILES.add(lockKey)) {
+            throw new IOException("history tape in use: " + file);
+        }
+        FileChannel recordsChannel = null;
+        FileChannel valuesChannel = null;
+        try {
+            recordsChannel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            Path valuesFile = file.resolveSibling(file.getFileName() + ".values");
+            valuesChannel = FileChannel.open(valuesFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+        } catch (IOException | RuntimeException ex) {
+            if (recordsChannel != null) {
+                recordsChannel.close();
+            }
+            OPEN_FILES.remove(lockKey);
+            throw ex;
+        }
+        this.records = recordsChannel;
+        this.values = valuesChannel;
+        try {
+            // 两个进程的实例各自缓存 count 与 valuesSize，会互相覆盖记录槽位与 .values 中的数据；
+            // 锁随通道关闭释放。
+            if (records.tryLock() == null) {
+                throw new IOException("history tape in use: " + file);
+            }
+            boolean created = records.size() == 0;
+            header = records.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            if (created) {
+                header.putLong(0, MAGIC);
+                header.putInt(8, VERSION);
+                header.putInt(12, RECORD_SIZE);
+                header.putLong(COUNT_OFFSET, 0);
+            } else if (header.getLong(0) != MAGIC || header.getInt(8) != VERSION
+                    || header.getInt(12) != RECORD_SIZE) {
+                throw new IOException("Not a calculator history tape: " + file);
+            }
+            count = header.getLong(COUNT_OFFSET);
+            valuesSize = values.size();
+            if (count > 0) {
+                lastTimestamp = timestampAt(count - 1);
+            }
+            for (long i = Math.max(0, count - recentCapacity); i < count; i++) {
+                remember(read(i));
+            }
+        } catch (IOException | RuntimeException ex) {
+            records.close();
+            values.close();
+            OPEN_FILES.remove(lockKey);
+            throw ex;
+        }
+    }
+
+    /**
+     * 打开（或创建）历史纸带，内存中保留最近 {@link #DEFAULT_RECENT_CAPACITY} 条。
+     */
+    public static HistoryTape open(Path file) throws IOException {
+        return open(file, DEFAULT_RECENT_CAPACITY);
+    }
+
+    public static HistoryTape open(Path file, int recentCapacity) throws IOException {
+        return new HistoryTape(file, recentCapacity);
+    }
+
+    /**
+     * 追加一条记录；时间戳取当前时间，但不早于上一条，保证可以按时间二分查找。
+     */
+    public synchronized void append(BigDecimal left, String operator, BigDecimal right, BigDecimal result)
+            throws IOException {
+        if (closed) {
+            // 与磁盘错误同样处理：调用方（模型）只会放弃这一条记录。
+            throw new IOException("History tape is closed");
+        }
+        if (operator == null || operator.isEmpty()) {
+            throw new IllegalArgumentException("Operator cannot be blank");
+        }
+        long timestamp = Math.max(System.currentTimeMillis(), lastTimestamp);
+        ByteBuffer buffer = segmentFor(count);
+        int base = offsetInSegment(count);
+        BigDecimal[] operands = {left, right, result};
+        int flags = 0;
+        for (int i = 0; i < operands.length; i++) {
+            if (writeOperand(buffer, base + OPERANDS_OFFSET + i * OPERAND_SIZE, operands[i])) {
+                flags |= 1 << i;
+            }
+        }
+        buffer.putLong(base + TIMESTAMP_OFFSET, timestamp);
+        char code = operatorCode(operator);
+        buffer.putChar(base + OPERATOR_OFFSET, code);
+        buffer.putShort(base + FLAGS_OFFSET, (short) flags);
+        // 记录写完才推进计数：计数之外的字节在重新打开时会被忽略。
+        header.putLong(COUNT_OFFSET, count + 1);
+        count++;
+        lastTimestamp = timestamp;
+        remember(new Entry(timestamp, left, operatorName(code), right, result));
+    }
+
+    /**
+     * 记录里每个运算符只占一个字符：多字符的运算符映射到一个不会与其他运算符冲突的字符。
+     */
+    private static char operatorCode(String operator) {
+        return "nCr".equals(operator) ? 'C' : operator.charAt(0);
+    }
+
+    private static String operatorName(char code) {
+        return code == 'C' ? "nCr" : String.valueOf(code);
+    }
+
+    public synchronized long size() {
+        return count;
+    }
+
+    /**
+     * 最近的记录，按时间从旧到新排列。只读内存，不访问文件。
+     */
+    public synchronized List<Entry> recent() {
+        List<Entry> entries = new ArrayList<>(recentSize);
+        for (int i = 0; i < recentSize; i++) {
+            entries.add(recent[(recentStart + i) % recent.length]);
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * 按下标读取一条记录（0 为最早的一条）。
+     */
+    public synchronized Entry get(long index) throws IOException {
+        ensureOpen();
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of range [0, " + count + ")");
+        }
+        return read(index);
+    }
+
+    /**
+     * 第一条时间戳不早于 timestampMillis 的记录下标；都更早时返回 {@link #size()}。
+     * 只读取 O(log n) 条记录的时间戳。
+     */
+    public synchronized long indexAtOrAfter(long timestampMillis) {
+        ensureOpen();
+        long low = 0;
+        long high = count;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (timestampAt(mid) < timestampMillis) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 时间落在 [fromMillis, toMillis) 内的记录，最多返回 limit 条（从最早的开始）。
+     */
+    public synchronized List<Entry> range(long fromMillis, long toMillis, int limit) throws IOException {
+        ensureOpen();
+        List<Entry> entries = new ArrayList<>();
+        for (long i = indexAtOrAfter(fromMillis); i < count && entries.size() < limit; i++) {
+            if (timestampAt(i) >= toMillis) {
+                break;
+            }
+            entries.add(read(i));
+        }
+        return entries;
+    }
+
+    /**
+     * 把映射内存刷到磁盘并关闭文件。
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        header.force();
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+        try {
+            values.force(false);
+        } finally {
+            records.close();
+            values.close();
+            OPEN_FILES.remove(lockKey);
+        }
+    }
+
+    private Entry read(long index) throws IOException {
+        ByteBuffer buffer = segmentFor(index);
+        int base = offsetInSegment(index);
+        int flags = buffer.getShort(base + FLAGS_OFFSET);
+        BigDecimal[] operands = new BigDecimal[3];
+        for (int i = 0; i < operands.length; i++) {
+            operands[i] = readOperand(buffer, base + OPERANDS_OFFSET + i * OPERAND_SIZE, (flags & (1 << i)) != 0);
+        }
+        return new Entry(buffer.getLong(base + TIMESTAMP_OFFSET), operands[0],
+                operatorName(buffer.getChar(base + OPERATOR_OFFSET)), operands[1], operands[2]);
+    }
+
+    private long timestampAt(long index) {
+        try {
+            return segmentFor(index).getLong(offsetInSegment(index) + TIMESTAMP_OFFSET);
+        } catch (IOException ex) {
+            throw new IllegalStateException("History tape segment unavailable", ex);
+        }
+    }
+
+    /**
+     * 操作数槽位：能内联时写 unscaled(long) + scale(int)，返回 false；
+     * 否则把 scale、长度与 unscaled 的字节写入 .values 文件，槽位存偏移与长度，返回 true。
+     */
+    private boolean writeOperand(ByteBuffer buffer, int offset, BigDecimal value) throws IOException {
+        BigInteger unscaled = value.unscaledValue();
+        if (unscaled.bitLength() < Long.SIZE) {
+            buffer.putLong(offset, unscaled.longValue());
+            buffer.putInt(offset + 8, value.scale());
+            return false;
+        }
+        byte[] bytes = unscaled.toByteArray();
+        ByteBuffer blob = ByteBuffer.allocate(8 + bytes.length);
+        blob.putInt(value.scale()).putInt(bytes.length).put(bytes).flip();
+        long position = valuesSize;
+        while (blob.hasRemaining()) {
+            values.write(blob, position + blob.position());
+        }
+        valuesSize += 8 + bytes.length;
+        buffer.putLong(offset, position);
+        buffer.putInt(offset + 8, 8 + bytes.length);
+        return true;
+    }
+
+    private BigDecimal readOperand(ByteBuffer buffer, int offset, boolean external) throws IOException {
+        if (!external) {
+            return BigDecimal.valueOf(buffer.getLong(offset), buffer.getInt(offset + 8));
+        }
+        long position = buffer.getLong(offset);
+        ByteBuffer blob = ByteBuffer.allocate(buffer.getInt(offset + 8));
+        while (blob.hasRemaining()) {
+            if (values.read(blob, position + blob.position()) < 0) {
+                throw new IOException("History values file is truncated");
+            }
+        }
+        blob.flip();
+        int scale = blob.getInt();
+        byte[] bytes = new byte[blob.getInt()];
+        blob.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), scale);
+    }
+
+    /**
+     * 记录所在的映射分段；追加时按需映射新分段（文件随之扩展）。
+     */
+    private ByteBuffer segmentFor(long index) throws IOException {
+        int segment = (int) (index / SEGMENT_RECORDS);
+        if (segment >= segments.length) {
+            MappedByteBuffer[] grown = Arrays.copyOf(segments, segment + 1);
+            for (int i = segments.length; i <= segment; i++) {
+                grown[i] = records.map(FileChannel.MapMode.READ_WRITE, HEADER_SIZE + i * SEGMENT_BYTES,
+                        SEGMENT_BYTES);
+            }
+            segments = grown;
+        }
+        return segments[segment];
+    }
+
+    private static int offsetInSegment(long index) {
+        return (int) (index % SEGMENT_RECORDS) * RECORD_SIZE;
+    }
+
+    private void remember(Entry entry) {
+        if (recentSize < recent.length) {
+            recent[(recentStart + recentSize++) % recent.length] = entry;
+        } else {
+            recent[recentStart] = entry;
+            recentStart = (recentStart + 1) % recent.length;
+        }
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("History tape is closed");
+        }
+    }
+
+    /**
+     * 一条历史记录，不可变。
+     */
+    public static final class Entry {
+        private final long timestampMillis;
+        private final BigDecimal left;
+        private final String operator;
+        private final BigDecimal right;
+        private final BigDecimal result;
+
+        Entry(long timestampMillis, BigDecimal left, String operator, BigDecimal right, BigDecimal result) {
+            this.timestampMillis = timestampMillis;
+            this.left = left;
+            this.operator = operator;
+            this.right = right;
+            this.result = result;
+        }
+
+        public long getTimestampMillis() {
+            return timestampMillis;
+        }
+
+        public BigDecimal getLeft() {
+            return left;
+        }
+
+        public String getOperator() {
+            return operator;
+        }
+
+        public BigDecimal getRight() {
+            return right;
+        }
+
+        public BigDecimal getResult() {
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return left + " " + operator + " " + right + " = " + result;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+/**
+ * 主显示区“正在输入”的数字，同时维护文本与数值两种表示：
+ * - 文本保存在可复用的 char[] 中，供显示与退格使用；
+ * - 数值以 “绝对值 unscaled + scale + 符号” 的形式随每次按键增量更新，
+ *   取操作数时无需再解析字符串。
+ * 输入超过 long 能表示的位数时退化为按文本解析（与原先行为一致）；
+ * 来自运算结果的值直接保留 BigDecimal，不再经过“格式化 → 解析”的往返。
+ * 稳态下的数字/小数点/退格输入不产生任何对象分配。
+ * 撤销/重做需要的快照（{@link #snapshot()}）与缓冲区共享同一个 char[]：
+ * 已发布给快照的前缀不再原地改写，真正要改写时才复制（写时复制），因此取快照是 O(1) 的；
+ * 逐位输入只在前缀之后追加，通常不会触发复制。
+ */
+final class InputBuffer {
+
+    private static final int INITIAL_CAPACITY = 32;
+    private static final long MAX_BEFORE_APPEND = (Long.MAX_VALUE - 9) / 10;
+
+    private char[] text = new char[INITIAL_CAPACITY];
+    private int length;
+
+    // 数值表示：value = (negative ? -1 : 1) * magnitude * 10^-scale。
+    private long magnitude;
+    private int scale;
+    private boolean negative;
+    private boolean hasPoint;
+    // compact 为 false 表示 magnitude 已溢出，只能按文本解析。
+    private boolean compact = true;
+    // 非空表示当前内容是一次运算的结果，数值以它为准。
+    private BigDecimal resultValue;
+    // text[0, publishedLength) 可能被快照引用，改写这一段之前必须先换成新数组。
+    private int publishedLength;
+    // 上一次 snapshot() 的结果；任何修改都会清空它，内容未变时重复取快照得到同一个对象。
+    private Snapshot lastSnapshot;
+
+    InputBuffer() {
+        reset();
+    }
+
+    /**
+     * 回到初始的 "0"。
+     */
+    void reset() {
+        prepareWrite(0, 0);
+        text[0] = '0';
+        length = 1;
+        magnitude = 0;
+        scale = 0;
+        negative = false;
+        hasPoint = false;
+        compact = true;
+        resultValue = null;
+    }
+
+    /**
+     * 复制另一个缓冲区的全部内容（文本与数值表示）。
+     */
+    void copyFrom(InputBuffer source) {
+        ensureCapacity(source.length);
+        prepareWrite(0, 0);
+        System.arraycopy(source.text, 0, text, 0, source.length);
+        length = source.length;
+        magnitude = source.magnitude;
+        scale = source.scale;
+        negative = source.negative;
+        hasPoint = source.hasPoint;
+        compact = source.compact;
+        resultValue = source.resultValue;
+    }
+
+    /**
+     * 载入运算结果：显示文本由调用方格式化，数值直接保留原始 BigDecimal。
+     */
+    void load(BigDecimal value, String formatted) {
+        lastSnapshot = null;
+        setText(formatted);
+        resultValue = value;
+        hasPoint = indexOf('.') >= 0;
+        negative = length > 0 && text[0] == '-';
+    }
+
+    /**
+     * 追加一位数字；单独的 "0" 会被替换，避免形成 0123。
+     */
+    void appendDigit(int digit) {
+        lastSnapshot = null;
+        ensureTyped();
+        if (length == 1 && text[0] == '0') {
+            length = 0;
+        }
+        append((char) ('0' + digit));
+        if (compact) {
+            if (magnitude > MAX_BEFORE_APPEND) {
+                compact = false;
+            } else {
+                magnitude = magnitude * 10 + digit;
+            }
+        }
+        if (hasPoint) {
+            scale++;
+        }
+    }
+
+    /**
+     * 追加小数点；已经存在小数点时忽略。
+     */
+    void appendDecimalPoint() {
+        lastSnapshot = null;
+        ensureTyped();
+        if (!hasPoint) {
+            append('.');
+            hasPoint = true;
+        }
+    }
+
+    /**
+     * 删除最后一个字符；只剩一位数字（或 "-" 加一位数字）时回到 "0"。
+     */
+    void deleteLast() {
+        lastSnapshot = null;
+        ensureTyped();
+        if (length <= 1 || (length == 2 && text[0] == '-')) {
+            reset();
+            return;
+        }
+        char removed = text[--length];
+        if (removed == '.') {
+            hasPoint = false;
+        } else if (!compact) {
+            reparse();
+        } else {
+            magnitude /= 10;
+            if (hasPoint) {
+                scale--;
+            }
+        }
+    }
+
+    /**
+     * 就地取反：仅当文本已是规范形式（无末尾小数点/末尾 0、不超过 16 位有效数字）时成立，
+     * 此时结果与 “BigDecimal.negate + 格式化” 逐字符一致。返回 false 表示调用方需要走完整路径。
+     */
+    boolean negateInPlace() {
+        if (resultValue != null || !compact || magnitude == 0
+                || magnitude > 9_999_999_999_999_999L || text[length - 1] == '.'
+                || (hasPoint && text[length - 1] == '0') || hasLeadingZero()) {
+            return false;
+        }
+        prepareWrite(0, length);
+        if (negative) {
+            System.arraycopy(text, 1, text, 0, length - 1);
+            length--;
+        } else {
+            ensureCapacity(length + 1);
+            System.arraycopy(text, 0, text, 1, length);
+            text[0] = '-';
+            length++;
+        }
+        negative = !negative;
+        return true;
+    }
+
+    /**
+     * 当前内容的不可变快照，O(1)：不复制字符，只记录共享数组与长度。
+     */
+    Snapshot snapshot() {
+        if (lastSnapshot == null) {
+            lastSnapshot = new Snapshot(text, length, magnitude, scale, negative, hasPoint, compact, resultValue);
+            publishedLength = Math.max(publishedLength, length);
+        }
+        return lastSnapshot;
+    }
+
+    /**
+     * 回到某个快照的内容，同样不复制字符：直接接管快照的数组。
+     * 其他快照可能引用该数组更长的前缀，因此整个数组都视为已发布。
+     */
+    void restore(Snapshot snapshot) {
+        text = snapshot.text;
+        length = snapshot.length;
+        magnitude = snapshot.magnitude;
+        scale = snapshot.scale;
+        negative = snapshot.negative;
+        hasPoint = snapshot.hasPoint;
+        compact = snapshot.compact;
+        resultValue = snapshot.resultValue;
+        publishedLength = text.length;
+        lastSnapshot = snapshot;
+    }
+
+    /**
+     * 当前内容若是 {@link #load} 载入的运算结果则返回该值，逐位输入或编辑过则返回 null。
+     */
+    BigDecimal result() {
+        return resultValue;
+    }
+
+    boolean hasDecimalPoint() {
+        return hasPoint;
+    }
+
+    /**
+     * 当前输入的数值：结果直接返回，紧凑表示用 valueOf 构造，只有超长输入才解析文本。
+     */
+    BigDecimal value() {
+        if (resultValue != null) {
+            return resultValue;
+        }
+        if (compact) {
+            return BigDecimal.valueOf(negative ? -magnitude : magnitude, scale);
+        }
+        int start = negative ? 1 : 0;
+        int end = text[length - 1] == '.' ? length - 1 : length;
+        if (end <= start) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal parsed = new BigDecimal(text, start, end - start);
+        return negative ? parsed.negate() : parsed;
+    }
+
+    @Override
+    public String toString() {
+        return new String(text, 0, length);
+    }
+
+    /**
+     * 结果值被继续编辑（例如取反后再输入数字）时，先把文本还原成逐位输入的状态；
+     * 以科学计数法显示的结果无法逐位编辑，直接从 "0" 重新开始。
+     */
+    private void ensureTyped() {
+        if (resultValue != null) {
+            resultValue = null;
+            if (indexOf('e') >= 0) {
+                reset();
+            } else {
+                reparse();
+            }
+        }
+    }
+
+    /**
+     * 根据文本重新计算数值表示，只扫描 char[]，不分配对象。
+     */
+    private void reparse() {
+        magnitude = 0;
+        scale = 0;
+        compact = true;
+        hasPoint = false;
+        negative = length > 0 && text[0] == '-';
+        for (int i = negative ? 1 : 0; i < length; i++) {
+            char c = text[i];
+            if (c == '.') {
+                hasPoint = true;
+                continue;
+            }
+            if (compact) {
+                if (magnitude > MAX_BEFORE_APPEND) {
+                    compact = false;
+                } else {
+                    magnitude = magnitude * 10 + (c - '0');
+                }
+            }
+            if (hasPoint) {
+                scale++;
+            }
+        }
+    }
+
+    /**
+     * 形如 "-08" 的文本（退格到 "-0" 后继续输入）不是规范形式。
+     */
+    private boolean hasLeadingZero() {
+        int first = negative ? 1 : 0;
+        return length > first + 1 && text[first] == '0' && text[first + 1] != '.';
+    }
+
+    private int indexOf(char target) {
+        for (int i = 0; i < length; i++) {
+            if (text[i] == target) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void setText(String value) {
+        ensureCapacity(value.length());
+        prepareWrite(0, 0);
+        value.getChars(0, value.length(), text, 0);
+        length = value.length();
+    }
+
+    private void append(char c) {
+        ensureCapacity(length + 1);
+        prepareWrite(length, length);
+        text[length++] = c;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > text.length) {
+            text = Arrays.copyOf(text, Math.max(capacity, text.length * 2));
+            publishedLength = 0;
+        }
+    }
+
+    /**
+     * 即将从下标 index 起改写 text：若这一段已发布给快照，换成新数组并保留前 keep 个字符。
+     */
+    private void prepareWrite(int index, int keep) {
+        lastSnapshot = null;
+        if (index < publishedLength) {
+            char[] fresh = new char[text.length];
+            System.arraycopy(text, 0, fresh, 0, keep);
+            text = fresh;
+            publishedLength = 0;
+        }
+    }
+
+    /**
+     * 输入内容的不可变快照。字符数组与缓冲区或其他快照共享，但 [0, length) 这一段保证不会再被改写，
+     * 因此可以安全地交给其他线程读取。
+     */
+    static final class Snapshot {
+        private final char[] text;
+        private final int length;
+        private final long magnitude;
+        private final int scale;
+        private final boolean negative;
+        private final boolean hasPoint;
+        private final boolean compact;
+        private final BigDecimal resultValue;
+
+        private Snapshot(char[] text, int length, long magnitude, int scale, boolean negative,
+                         boolean hasPoint, boolean compact, BigDecimal resultValue) {
+            this.text = text;
+            this.length = length;
+            this.magnitude = magnitude;
+            this.scale = scale;
+            this.negative = negative;
+            this.hasPoint = hasPoint;
+            this.compact = compact;
+            this.resultValue = resultValue;
+        }
+
+        char[] sharedText() {
+            return text;
+        }
+
+        BigDecimal result() {
+            return resultValue;
+        }
+
+        @Override
+        public String toString() {
+            return new String(text, 0, length);
+        }
+    }
+}
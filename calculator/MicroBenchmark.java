@@ -0,0 +1,147 @@
+package calculator;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * 极简的微基准测试工具，方法学参照 JMH：
+ * - 先执行若干轮预热迭代，让 JIT 完成编译；
+ * - 再执行若干轮固定时长的测量迭代，报告吞吐量的均值与标准差；
+ * - 通过 HotSpot 的线程分配计数器统计每次操作分配的字节数（对应 JMH GC profiler 的 gc.alloc.rate.norm）；
+ * - 每次调用的返回值都会折叠进一个 volatile 字段，防止被 JIT 当作死代码消除。
+ * 不依赖任何第三方库，直接用 javac 编译即可运行。
+ */
+final class MicroBenchmark {
+
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long WARMUP_ITERATION_NANOS = 300_000_000L;
+    private static final long MEASUREMENT_ITERATION_NANOS = 500_000_000L;
+    private static final int MAX_BATCH = 64;
+    private static final long BATCH_GROWTH_NANOS = 1_000_000L;
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // “黑洞”：所有结果的哈希都写到这里。
+    private static volatile int sink;
+
+    private MicroBenchmark() {
+    }
+
+    /**
+     * 运行一个基准：operation 每被调用一次计为一次操作。
+     */
+    static Result run(String name, Supplier<?> operation) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation, WARMUP_ITERATION_NANOS);
+        }
+        double[] opsPerSecond = new double[MEASUREMENT_ITERATIONS];
+        long totalOps = 0;
+        long allocatedBefore = allocatedBytes();
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long start = System.nanoTime();
+            long ops = iterate(operation, MEASUREMENT_ITERATION_NANOS);
+            opsPerSecond[i] = ops / ((System.nanoTime() - start) / 1e9);
+            totalOps += ops;
+        }
+        long allocatedAfter = allocatedBytes();
+        double bytesPerOp = allocatedBefore < 0 ? Double.NaN : (allocatedAfter - allocatedBefore) / (double) totalOps;
+        return new Result(name, mean(opsPerSecond), standardDeviation(opsPerSecond), bytesPerOp);
+    }
+
+    private static long iterate(Supplier<?> operation, long durationNanos) {
+        long now = System.nanoTime();
+        long end = now + durationNanos;
+        long ops = 0;
+        int hash = 0;
+        int batch = 1;
+        do {
+            // 快操作按批次调用、每批只读一次时钟，降低计时本身的干扰；
+            // 批次只在耗时很短时才翻倍，避免慢操作（如万位开方）大幅超出迭代时长。
+            long batchStart = now;
+            for (int i = 0; i < batch; i++) {
+                Object result = operation.get();
+                hash += result == null ? 0 : result.hashCode();
+            }
+            ops += batch;
+            now = System.nanoTime();
+            if (batch < MAX_BATCH && now - batchStart < BATCH_GROWTH_NANOS) {
+                batch <<= 1;
+            }
+        } while (now < end);
+        sink += hash;
+        return ops;
+    }
+
+    /**
+     * 当前线程累计分配的字节数；JVM 不支持时返回 -1。
+     */
+    private static long allocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) THREADS;
+            if (hotspot.isThreadAllocatedMemorySupported() && hotspot.isThreadAllocatedMemoryEnabled()) {
+                return hotspot.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    private static double mean(double[] values) {
+        double sum = 0;
+        for (double value : values) {
+            sum += value;
+        }
+        return sum / values.length;
+    }
+
+    private static double standardDeviation(double[] values) {
+        double mean = mean(values);
+        double sum = 0;
+        for (double value : values) {
+            sum += (value - mean) * (value - mean);
+        }
+        return Math.sqrt(sum / Math.max(1, values.length - 1));
+    }
+
+    static String header() {
+        return String.format("%-44s %16s %10s %12s", "benchmark", "ops/s", "error", "B/op");
+    }
+
+    /**
+     * 单个基准的测量结果。
+     */
+    static final class Result {
+        private final String name;
+        private final double opsPerSecond;
+        private final double error;
+        private final double bytesPerOp;
+
+        Result(String name, double opsPerSecond, double error, double bytesPerOp) {
+            this.name = name;
+            this.opsPerSecond = opsPerSecond;
+            this.error = error;
+            this.bytesPerOp = bytesPerOp;
+        }
+
+        double getOpsPerSecond() {
+            return opsPerSecond;
+        }
+
+        /**
+         * 与 {@link #header()} 对齐的表格行。
+         */
+        @Override
+        public String toString() {
+            return String.format("%-44s %16.1f %10.1f %12.1f", name, opsPerSecond, error, bytesPerOp);
+        }
+
+        /**
+         * CSV 行，便于保存为基线并与后续结果对比。
+         */
+        String toCsv() {
+            return String.format(Locale.ROOT, "\"%s\",%.1f,%.1f,%.1f", name, opsPerSecond, error, bytesPerOp);
+        }
+    }
+}
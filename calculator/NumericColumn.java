@@ -0,0 +1,487 @@
+package calculator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 列计算（{@link ColumnCalculator}）使用的一列数值，有两种存储方式：
+ * - 近似列：double[]，按 IEEE 754 运算；
+ * - 精确列：每个元素是 unscaled × 10^-scale，unscaled 存在 long[]、scale 存在 byte[]，
+ *   位数超出 long 或 scale 超出 byte 范围的少数元素另存为 BigDecimal（spill 数组，按需分配）。
+ * 两种方式都是基本类型数组，两千万行的价格列只占几百 MB，而不是每个元素一个对象。
+ * 读取 CSV 时直接在字节上解析数字，常见的定点小数既不经过 String 也不经过 BigDecimal。
+ * 实例创建后不再修改，可以在多线程间共享；工厂方法接收的数组不会复制，调用方之后不应再修改它们。
+ */
+public final class NumericColumn {
+
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+    private static final int MAX_FAST_LINE = 192;
+    // 快速解析最多累积 18 位数字，保证 unscaled 不会溢出 long。
+    private static final int MAX_FAST_DIGITS = 18;
+    // 2^53 以内的整数与 10^22 以内的 10 的幂都能精确表示为 double，二者相除只舍入一次。
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final double[] DOUBLE_POWERS_OF_TEN = new double[23];
+
+    static {
+        DOUBLE_POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < DOUBLE_POWERS_OF_TEN.length; i++) {
+            DOUBLE_POWERS_OF_TEN[i] = DOUBLE_POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final int size;
+    private final double[] doubles;
+    private final long[] unscaled;
+    private final byte[] scales;
+    private final BigDecimal[] spill;
+
+    private NumericColumn(int size, double[] doubles, long[] unscaled, byte[] scales, BigDecimal[] spill) {
+        this.size = size;
+        this.doubles = doubles;
+        this.unscaled = unscaled;
+        this.scales = scales;
+        this.spill = spill;
+    }
+
+    /**
+     * 近似列，直接使用传入的数组。
+     */
+    public static NumericColumn of(double... values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values cannot be null");
+        }
+        return new NumericColumn(values.length, values, null, null, null);
+    }
+
+    /**
+     * 精确列：把每个 BigDecimal 拆成 unscaled/scale 存放，放不下的保留原对象。
+     */
+    public static NumericColumn ofExact(BigDecimal... values) {
+        if (values == null) {
+            throw new IllegalArgumentException("Values cannot be null");
+        }
+        ExactBuilder builder = new ExactBuilder(values.length);
+        for (BigDecimal value : values) {
+            if (value == null) {
+                throw new IllegalArgumentException("Values cannot be null");
+            }
+            builder.add(value);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 由列计算直接填好的精确列；spill 可以为 null。
+     */
+    static NumericColumn exact(long[] unscaled, byte[] scales, BigDecimal[] spill) {
+        return new NumericColumn(unscaled.length, null, unscaled, scales, spill);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isExact() {
+        return doubles == null;
+    }
+
+    /**
+     * 第 index 个元素的 double 值；精确列按最接近的 double 换算。
+     */
+    public double getDouble(int index) {
+        checkIndex(index);
+        if (doubles != null) {
+            return doubles[index];
+        }
+        if (spill != null && spill[index] != null) {
+            return spill[index].doubleValue();
+        }
+        return toDouble(unscaled[index], scales[index]);
+    }
+
+    /**
+     * 第 index 个元素的十进制值；近似列按 {@link BigDecimal#valueOf(double)} 换算，
+     * NaN 与无穷大没有十进制表示，会抛出 NumberFormatException。
+     */
+    public BigDecimal get(int index) {
+        checkIndex(index);
+        if (doubles != null) {
+            return BigDecimal.valueOf(doubles[index]);
+        }
+        if (spill != null && spill[index] != null) {
+            return spill[index];
+        }
+        return BigDecimal.valueOf(unscaled[index], scales[index]);
+    }
+
+    // 以下访问器供列计算内核直接读取底层数组。
+
+    double[] doubles() {
+        return doubles;
+    }
+
+    long[] unscaled() {
+        return unscaled;
+    }
+
+    byte[] scales() {
+        return scales;
+    }
+
+    BigDecimal[] spill() {
+        return spill;
+    }
+
+    /**
+     * 从 CSV 文件读取一列数字（列号从 0 开始）。
+     * 支持逗号分隔、双引号包裹的字段与 "\r\n" 行尾；空行被跳过。
+     * exact 为 true 时得到精确列，否则得到近似列。
+     *
+     * @throws IllegalArgumentException 某一行缺少该列或不是数字，消息中带有行号
+     */
+    public static NumericColumn readCsv(Path file, int column, boolean skipHeader, boolean exact)
+            throws IOException {
+        if (column < 0) {
+            throw new IllegalArgumentException("Column index cannot be negative");
+        }
+        CsvColumnParser parser = new CsvColumnParser(column, skipHeader, exact);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                parser.accept(buffer.array(), buffer.limit());
+                buffer.clear();
+            }
+        }
+        return parser.finish();
+    }
+
+    /**
+     * 每行写出一个元素：精确列写成不带多余尾随 0 的普通小数，近似列使用 Java 的 double 文本形式。
+     * 输出缓冲区在整个写出过程中复用。
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        byte[] buffer = new byte[WRITE_BUFFER_SIZE];
+        byte[] digits = new byte[20];
+        int position = 0;
+        for (int i = 0; i < size; i++) {
+            // |scale| 不超过 127，快速路径写出的一行不会超过 MAX_FAST_LINE 字节。
+            if (position > WRITE_BUFFER_SIZE - MAX_FAST_LINE) {
+                out.write(buffer, 0, position);
+                position = 0;
+            }
+            String text = null;
+            if (doubles != null) {
+                text = formatDouble(doubles[i]);
+            } else if ((spill != null && spill[i] != null) || unscaled[i] == Long.MIN_VALUE) {
+                text = get(i).stripTrailingZeros().toPlainString();
+            } else {
+                position = appendDecimal(buffer, position, unscaled[i], scales[i], digits);
+            }
+            if (text != null) {
+                byte[] bytes = text.getBytes(StandardCharsets.US_ASCII);
+                if (position + bytes.length + 1 > buffer.length) {
+                    out.write(buffer, 0, position);
+                    position = 0;
+                }
+                if (bytes.length + 1 > buffer.length) {
+                    out.write(bytes);
+                } else {
+                    System.arraycopy(bytes, 0, buffer, position, bytes.length);
+                    position += bytes.length;
+                }
+            }
+            buffer[position++] = '\n';
+        }
+        out.write(buffer, 0, position);
+        out.flush();
+    }
+
+    @Override
+    public String toString() {
+        return "NumericColumn[" + size + (isExact() ? ", exact]" : ", double]");
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for size " + size);
+        }
+    }
+
+    static double toDouble(long unscaled, int scale) {
+        if (scale >= 0 && scale < DOUBLE_POWERS_OF_TEN.length
+                && unscaled > -MAX_EXACT_DOUBLE && unscaled < MAX_EXACT_DOUBLE) {
+            return unscaled / DOUBLE_POWERS_OF_TEN[scale];
+        }
+        return BigDecimal.valueOf(unscaled, scale).doubleValue();
+    }
+
+    private static String formatDouble(double value) {
+        String text = Double.toString(value);
+        return text.endsWith(".0") ? text.substring(0, text.length() - 2) : text;
+    }
+
+    /**
+     * 把 unscaled × 10^-scale 写成普通小数（去掉小数部分的尾随 0），不创建任何对象。
+     * 负 scale 的值（如 1E+3）补足末尾的 0，|scale| 不超过 byte 范围，输出长度有界。
+     */
+    private static int appendDecimal(byte[] out, int position, long unscaled, int scale, byte[] digits) {
+        while (scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        if (unscaled < 0) {
+            out[position++] = '-';
+            unscaled = -unscaled;
+        }
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + unscaled % 10);
+            unscaled /= 10;
+        } while (unscaled != 0);
+        if (scale <= 0) {
+            for (int i = count - 1; i >= 0; i--) {
+                out[position++] = digits[i];
+            }
+            if (count > 1 || digits[0] != '0') {
+                for (int i = 0; i < -scale; i++) {
+                    out[position++] = '0';
+                }
+            }
+            return position;
+        }
+        if (count <= scale) {
+            out[position++] = '0';
+            out[position++] = '.';
+            for (int i = count; i < scale; i++) {
+                out[position++] = '0';
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                out[position++] = digits[i];
+            }
+            return position;
+        }
+        for (int i = count - 1; i >= 0; i--) {
+            out[position++] = digits[i];
+            if (i == scale) {
+                out[position++] = '.';
+            }
+        }
+        return position;
+    }
+
+    /**
+     * 逐个追加元素构造精确列，容量按需翻倍。
+     */
+    private static final class ExactBuilder {
+        private long[] unscaled;
+        private byte[] scales;
+        private BigDecimal[] spill;
+        private int size;
+
+        ExactBuilder(int capacity) {
+            unscaled = new long[Math.max(capacity, 1)];
+            scales = new byte[unscaled.length];
+        }
+
+        void add(long value, int scale) {
+            if (scale < Byte.MIN_VALUE || scale > Byte.MAX_VALUE) {
+                add(BigDecimal.valueOf(value, scale));
+                return;
+            }
+            ensureCapacity();
+            unscaled[size] = value;
+            scales[size] = (byte) scale;
+            size++;
+        }
+
+        void add(BigDecimal value) {
+            int scale = value.scale();
+            if (value.precision() <= MAX_FAST_DIGITS && scale >= Byte.MIN_VALUE && scale <= Byte.MAX_VALUE) {
+                add(value.unscaledValue().longValue(), scale);
+                return;
+            }
+            ensureCapacity();
+            if (spill == null) {
+                spill = new BigDecimal[unscaled.length];
+            }
+            spill[size++] = value;
+        }
+
+        NumericColumn build() {
+            if (size != unscaled.length) {
+                unscaled = Arrays.copyOf(unscaled, size);
+                scales = Arrays.copyOf(scales, size);
+                if (spill != null) {
+                    spill = Arrays.copyOf(spill, size);
+                }
+            }
+            return exact(unscaled, scales, spill);
+        }
+
+        private void ensureCapacity() {
+            if (size == unscaled.length) {
+                int capacity = unscaled.length * 2;
+                unscaled = Arrays.copyOf(unscaled, capacity);
+                scales = Arrays.copyOf(scales, capacity);
+                if (spill != null) {
+                    spill = Arrays.copyOf(spill, capacity);
+                }
+            }
+        }
+    }
+
+    /**
+     * 逐字节解析 CSV，只收集目标列；数字在字节上直接累积成 unscaled/scale，
+     * 超过 18 位或带指数的少数值才构造 String 走通用解析。
+     */
+    private static final class CsvColumnParser {
+        private final int column;
+        private final boolean exact;
+        private boolean skipLine;
+        private long line = 1;
+        private int fieldIndex;
+        private boolean inQuotes;
+        private boolean lineHasContent;
+        private byte[] field = new byte[32];
+        private int fieldLength;
+
+        private final ExactBuilder exactValues;
+        private double[] doubleValues;
+        private int doubleCount;
+
+        CsvColumnParser(int column, boolean skipHeader, boolean exact) {
+            this.column = column;
+            this.exact = exact;
+            this.skipLine = skipHeader;
+            this.exactValues = exact ? new ExactBuilder(INITIAL_CAPACITY) : null;
+            this.doubleValues = exact ? null : new double[INITIAL_CAPACITY];
+        }
+
+        void accept(byte[] bytes, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = bytes[i];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                    lineHasContent = true;
+                } else if (b == '\n' && !inQuotes) {
+                    endLine();
+                } else if (b == ',' && !inQuotes) {
+                    fieldIndex++;
+                    lineHasContent = true;
+                } else {
+                    if (b != '\r' && b != ' ' && b != '\t') {
+                        lineHasContent = true;
+                        if (fieldIndex == column) {
+                            appendFieldByte(b);
+                        }
+                    }
+                }
+            }
+        }
+
+        NumericColumn finish() {
+            if (lineHasContent) {
+                endLine();
+            }
+            if (exact) {
+                return exactValues.build();
+            }
+            return of(doubleCount == doubleValues.length ? doubleValues : Arrays.copyOf(doubleValues, doubleCount));
+        }
+
+        private void appendFieldByte(byte b) {
+            if (fieldLength == field.length) {
+                field = Arrays.copyOf(field, field.length * 2);
+            }
+            field[fieldLength++] = b;
+        }
+
+        private void endLine() {
+            if (lineHasContent && !skipLine) {
+                if (fieldIndex < column) {
+                    throw new IllegalArgumentException("Missing column " + column + " at line " + line);
+                }
+                parseField();
+            }
+            if (lineHasContent) {
+                skipLine = false;
+            }
+            line++;
+            fieldIndex = 0;
+            fieldLength = 0;
+            lineHasContent = false;
+        }
+
+        private void parseField() {
+            int position = 0;
+            boolean negative = false;
+            if (fieldLength > 0 && (field[0] == '-' || field[0] == '+')) {
+                negative = field[0] == '-';
+                position++;
+            }
+            long value = 0;
+            int scale = 0;
+            int digits = 0;
+            boolean sawDigit = false;
+            boolean point = false;
+            boolean fast = true;
+            for (; position < fieldLength && fast; position++) {
+                byte b = field[position];
+                if (b >= '0' && b <= '9') {
+                    sawDigit = true;
+                    if (digits == MAX_FAST_DIGITS) {
+                        fast = false;
+                    } else {
+                        value = value * 10 + (b - '0');
+                        if (value != 0) {
+                            digits++;
+                        }
+                        if (point) {
+                            scale++;
+                        }
+                    }
+                } else if (b == '.' && !point) {
+                    point = true;
+                } else {
+                    fast = false;
+                }
+            }
+            if (fast && sawDigit) {
+                long signed = negative ? -value : value;
+                if (exact) {
+                    exactValues.add(signed, scale);
+                } else {
+                    addDouble(toDouble(signed, scale));
+                }
+                return;
+            }
+            String text = new String(field, 0, fieldLength, StandardCharsets.US_ASCII);
+            try {
+                if (exact) {
+                    exactValues.add(new BigDecimal(text));
+                } else {
+                    addDouble(new BigDecimal(text).doubleValue());
+                }
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Invalid number '" + text + "' at line " + line);
+            }
+        }
+
+        private void addDouble(double value) {
+            if (doubleCount == doubleValues.length) {
+                doubleValues = Arrays.copyOf(doubleValues, doubleValues.length * 2);
+            }
+            doubleValues[doubleCount++] = value;
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 高精度运算结果的记忆缓存，键是（运算、操作数、MathContext）：
+ * - 按键的哈希分成若干段，每段一个按访问顺序淘汰的 LinkedHashMap 和一把锁，
+ *   多线程批处理共享同一个实例时很少争用同一段；
+ * - 容量按估算字节数而不是条目数限制：10 万位精度下一个结果就有几十 KB；
+ * - 运算在锁外执行，并发计算同一个新键最多只是重复算一次，结果相同；抛出异常的运算不缓存；
+ * - 命中、未命中与淘汰次数用 LongAdder 累计，供调整容量时参考。
+ * 只有精度高于 {@link #MIN_PRECISION} 的运算才值得查缓存，低精度下运算本身比计算键的哈希还快。
+ */
+public final class OperationCache {
+
+    public static final int MIN_PRECISION = 64;
+    public static final long DEFAULT_MAX_BYTES = 64L << 20;
+    private static final int DEFAULT_STRIPES = 16;
+    // 每个条目除三个 BigDecimal 的数字外的固定开销：键、链表节点、BigDecimal/BigInteger 对象头。
+    private static final long ENTRY_BYTES = 200;
+
+    private static final OperationCache SHARED = new OperationCache(DEFAULT_MAX_BYTES);
+
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public OperationCache(long maxBytes) {
+        this(maxBytes, DEFAULT_STRIPES);
+    }
+
+    /**
+     * stripes 会向上取整为 2 的幂；每段的上限是 maxBytes / stripes。
+     */
+    public OperationCache(long maxBytes, int stripes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("Stripe count must be positive");
+        }
+        int count = 1;
+        while (count < stripes) {
+            count <<= 1;
+        }
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(Math.max(1, maxBytes / count));
+        }
+    }
+
+    /**
+     * 进程内共享的缓存：模型默认使用它，批处理中各线程的模型因此共享同一批结果。
+     */
+    public static OperationCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * 查缓存，未命中时调用 compute 计算并记下结果。
+     * 一元运算的 right 传 null。
+     */
+    BigDecimal compute(String operation, BigDecimal left, BigDecimal right, MathContext mathContext,
+                       Supplier<BigDecimal> compute) {
+        Key key = new Key(operation, left, right, mathContext);
+        Segment segment = segments[key.hash & (segments.length - 1)];
+        BigDecimal result = segment.get(key);
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        misses.increment();
+        result = compute.get();
+        evictions.add(segment.put(key, result));
+        return result;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 当前缓存条目的估算内存占用。
+     */
+    public long usedBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.usedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * 清空条目并把计数器归零。
+     */
+    public void clear() {
+        for (Segment segment : segments) {
+            segment.clear();
+        }
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+    }
+
+    @Override
+    public String toString() {
+        long hitCount = hits();
+        long total = hitCount + misses();
+        return String.format("hits=%d misses=%d hitRate=%.1f%% evictions=%d entries=%d bytes=%d",
+                hitCount, total - hitCount, total == 0 ? 0.0 : 100.0 * hitCount / total, evictions(), size(),
+                usedBytes());
+    }
+
+    private static long bytesOf(BigDecimal value) {
+        return value == null ? 0 : value.unscaledValue().bitLength() / 8 + 1;
+    }
+
+    /**
+     * 缓存的一段：只在自己的锁内读写，淘汰也只在段内进行。
+     */
+    private static final class Segment {
+        private final long maxBytes;
+        private final LinkedHashMap<Key, BigDecimal> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long usedBytes;
+
+        Segment(long maxBytes) {
+            this.maxBytes = maxBytes;
+        }
+
+        synchronized BigDecimal get(Key key) {
+            return entries.get(key);
+        }
+
+        /**
+         * 放入结果并按字节数淘汰最久未用的条目，返回淘汰的条目数。
+         * 单个结果就超过整段上限时不缓存。
+         */
+        synchronized int put(Key key, BigDecimal result) {
+            long bytes = key.bytes + bytesOf(result);
+            if (bytes > maxBytes) {
+                return 0;
+            }
+            BigDecimal previous = entries.put(key, result);
+            if (previous != null) {
+                usedBytes -= key.bytes + bytesOf(previous);
+            }
+            usedBytes += bytes;
+            int evicted = 0;
+            Iterator<Map.Entry<Key, BigDecimal>> eldest = entries.entrySet().iterator();
+            while (usedBytes > maxBytes) {
+                Map.Entry<Key, BigDecimal> entry = eldest.next();
+                usedBytes -= entry.getKey().bytes + bytesOf(entry.getValue());
+                eldest.remove();
+                evicted++;
+            }
+            return evicted;
+        }
+
+        synchronized int size() {
+            return entries.size();
+        }
+
+        synchronized long usedBytes() {
+            return usedBytes;
+        }
+
+        synchronized void clear() {
+            entries.clear();
+            usedBytes = 0;
+        }
+    }
+
+    /**
+     * 不可变的缓存键。操作数按 BigDecimal.equals 比较（区分 scale），
+     * 按键回放时同一个操作数的文本与 scale 总是相同的。哈希在构造时算一次。
+     */
+    private static final class Key {
+        final String operation;
+        final BigDecimal left;
+        final BigDecimal right;
+        final MathContext mathContext;
+        final int hash;
+        final long bytes;
+
+        Key(String operation, BigDecimal left, BigDecimal right, MathContext mathContext) {
+            this.operation = operation;
+            this.left = left;
+            this.right = right;
+            this.mathContext = mathContext;
+            int h = operation.hashCode();
+            h = 31 * h + left.hashCode();
+            h = 31 * h + (right == null ? 0 : right.hashCode());
+            h = 31 * h + mathContext.hashCode();
+            // 混合高位，段号取的是低位。
+            this.hash = h ^ (h >>> 16);
+            this.bytes = ENTRY_BYTES + bytesOf(left) + bytesOf(right);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash
+                    && operation.equals(other.operation)
+                    && mathContext.equals(other.mathContext)
+                    && left.equals(other.left)
+                    && (right == null ? other.right == null : right.equals(other.right));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
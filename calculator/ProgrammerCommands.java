@@ -0,0 +1,73 @@
+package calculator;
+
+/**
+ * 程序员模式的命令分派：按钮/键盘的命令字符串 → {@link ProgrammerModel} 方法，
+ * 与 {@link CalculatorCommands} 的约定相同（命令即按钮文字，无法识别的命令被忽略）。
+ * 数字命令是 "0"-"9" 与 "A"-"F"，因此全部清除用 "CLR" 而不是 "C"；"HEX"/"DEC"/"OCT"/"BIN" 切换进制。
+ */
+public final class ProgrammerCommands {
+
+    public static final String CLEAR_ALL = "CLR";
+
+    private ProgrammerCommands() {
+    }
+
+    /**
+     * @return 命令是否被识别
+     */
+    public static boolean dispatch(ProgrammerModel model, String command) {
+        if (command == null || command.isEmpty()) {
+            return false;
+        }
+        if (command.length() == 1) {
+            char c = command.charAt(0);
+            if (c >= '0' && c <= '9') {
+                model.inputDigit(c - '0');
+                return true;
+            }
+            if (c >= 'A' && c <= 'F') {
+                model.inputDigit(c - 'A' + 10);
+                return true;
+            }
+        }
+        ProgrammerModel.Operator operator = ProgrammerModel.Operator.fromLabel(command);
+        if (operator != null) {
+            model.applyOperator(operator);
+            return true;
+        }
+        switch (command) {
+            case "=":
+                model.evaluate();
+                return true;
+            case "NOT":
+                model.not();
+                return true;
+            case "+/-":
+                model.negate();
+                return true;
+            case "CE":
+                model.clearEntry();
+                return true;
+            case CLEAR_ALL:
+                model.clearAll();
+                return true;
+            case "\u2190":
+                model.backspace();
+                return true;
+            case "HEX":
+                model.setRadix(ProgrammerModel.Radix.HEX);
+                return true;
+            case "DEC":
+                model.setRadix(ProgrammerModel.Radix.DEC);
+                return true;
+            case "OCT":
+                model.setRadix(ProgrammerModel.Radix.OCT);
+                return true;
+            case "BIN":
+                model.setRadix(ProgrammerModel.Radix.BIN);
+                return true;
+            default:
+                return false;
+        }
+    }
+}
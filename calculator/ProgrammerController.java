@@ -0,0 +1,91 @@
+package calculator;
+
+import javax.swing.AbstractAction;
+import javax.swing.KeyStroke;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+
+/**
+ * 程序员模式的控制器：按键经 {@link ProgrammerCommands} 分派给模型后立即刷新显示。
+ * 模型的显示是可复用缓冲区的视图，视图把内容复制进自己的缓冲区，整个往返不分配对象，
+ * 因此不需要主窗口那样的帧合并刷新。
+ */
+public class ProgrammerController implements ActionListener {
+
+    private final ProgrammerModel model;
+    private final ProgrammerView view;
+
+    public ProgrammerController(ProgrammerModel model, ProgrammerView view) {
+        this.model = model;
+        this.view = view;
+        this.view.addButtonListener(this);
+        this.view.addRadixListener(this);
+        registerKeyboardShortcuts();
+        refresh();
+    }
+
+    @Override
+    public void actionPerformed(ActionEvent e) {
+        handleCommand(e.getActionCommand());
+    }
+
+    private void handleCommand(String command) {
+        if (ProgrammerCommands.dispatch(model, command)) {
+            refresh();
+        }
+    }
+
+    private void refresh() {
+        view.setDisplays(model.getHistoryDisplay(), model.getDisplay());
+        for (ProgrammerModel.Radix radix : ProgrammerModel.Radix.values()) {
+            view.setRadixDisplay(radix, model.getDisplay(radix));
+        }
+        view.setRadix(model.getRadix());
+    }
+
+    /**
+     * 0-9、A-F（大小写均可）、运算符键与 C 语言写法一致（& | ^ ~ % < >），F5-F8 切换 HEX/DEC/OCT/BIN。
+     */
+    private void registerKeyboardShortcuts() {
+        for (char digit = '0'; digit <= '9'; digit++) {
+            registerKeyAction("DIGIT_" + digit, KeyStroke.getKeyStroke(digit), String.valueOf(digit));
+        }
+        for (char digit = 'A'; digit <= 'F'; digit++) {
+            String command = String.valueOf(digit);
+            registerKeyAction("DIGIT_" + digit, KeyStroke.getKeyStroke(digit), command);
+            registerKeyAction("DIGIT_LOWER_" + digit, KeyStroke.getKeyStroke(Character.toLowerCase(digit)), command);
+        }
+        registerKeyAction("ADD_KEY", KeyStroke.getKeyStroke('+'), "+");
+        registerKeyAction("SUBTRACT_KEY", KeyStroke.getKeyStroke('-'), "-");
+        registerKeyAction("MULTIPLY_KEY", KeyStroke.getKeyStroke('*'), "\u00d7");
+        registerKeyAction("DIVIDE_KEY", KeyStroke.getKeyStroke('/'), "\u00f7");
+        registerKeyAction("MODULO_KEY", KeyStroke.getKeyStroke('%'), "mod");
+        registerKeyAction("AND_KEY", KeyStroke.getKeyStroke('&'), "AND");
+        registerKeyAction("OR_KEY", KeyStroke.getKeyStroke('|'), "OR");
+        registerKeyAction("XOR_KEY", KeyStroke.getKeyStroke('^'), "XOR");
+        registerKeyAction("NOT_KEY", KeyStroke.getKeyStroke('~'), "NOT");
+        registerKeyAction("SHIFT_LEFT_KEY", KeyStroke.getKeyStroke('<'), "<<");
+        registerKeyAction("SHIFT_RIGHT_KEY", KeyStroke.getKeyStroke('>'), ">>");
+
+        registerKeyAction("ENTER", KeyStroke.getKeyStroke(KeyEvent.VK_ENTER, 0), "=");
+        registerKeyAction("EQUALS", KeyStroke.getKeyStroke('='), "=");
+        registerKeyAction("BACKSPACE", KeyStroke.getKeyStroke(KeyEvent.VK_BACK_SPACE, 0), "\u2190");
+        registerKeyAction("ESCAPE", KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), ProgrammerCommands.CLEAR_ALL);
+        registerKeyAction("DELETE", KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0), "CE");
+
+        registerKeyAction("RADIX_HEX", KeyStroke.getKeyStroke(KeyEvent.VK_F5, 0), "HEX");
+        registerKeyAction("RADIX_DEC", KeyStroke.getKeyStroke(KeyEvent.VK_F6, 0), "DEC");
+        registerKeyAction("RADIX_OCT", KeyStroke.getKeyStroke(KeyEvent.VK_F7, 0), "OCT");
+        registerKeyAction("RADIX_BIN", KeyStroke.getKeyStroke(KeyEvent.VK_F8, 0), "BIN");
+    }
+
+    private void registerKeyAction(String name, KeyStroke stroke, String command) {
+        view.registerKeyAction(name, stroke, new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                handleCommand(command);
+            }
+        });
+    }
+}
@@ -0,0 +1,480 @@
+package calculator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 程序员模式的模型：值是 64 位 long，运算与显示都不经过 BigDecimal。
+ * - 加减乘按 64 位补码回绕，除法与取模按有符号整数截断，另有按位与/或/异或/取反、移位与循环移位；
+ * - 十进制按有符号数显示，十六/八/二进制按补码的无符号位模式显示，并按 4 位（八进制 3 位）分组；
+ * - 显示文本由 {@link Radix#format} 从低位向高位写进模型持有的 char[]，读取时格式化，
+ *   返回的 {@link Display} 是这块缓冲区的只读视图，不创建 String，下一次读取时内容会被覆盖。
+ * 除首次构造外，输入、运算与格式化都不分配对象。与 {@link CalculatorModel} 一样只在 EDT 上使用。
+ */
+public class ProgrammerModel {
+
+    /**
+     * 显示进制。十六、八、二进制按位移与掩码逐位换算，十进制按常数除法逐位换算。
+     */
+    public enum Radix {
+        HEX(16, 4, 4, ' '),
+        DEC(10, 0, 3, ','),
+        OCT(8, 3, 3, ' '),
+        BIN(2, 1, 4, ' ');
+
+        private static final char[] DIGITS = "0123456789ABCDEF".toCharArray();
+
+        private final int radix;
+        // 每位数字对应的比特数；十进制为 0。
+        private final int bitsPerDigit;
+        private final int groupSize;
+        private final char separator;
+        // 无符号输入时，追加一位前允许的最大值与该值下允许的最大数字，避免超出 64 位。
+        private final long inputLimit;
+        private final int lastDigit;
+
+        Radix(int radix, int bitsPerDigit, int groupSize, char separator) {
+            this.radix = radix;
+            this.bitsPerDigit = bitsPerDigit;
+            this.groupSize = groupSize;
+            this.separator = separator;
+            this.inputLimit = Long.divideUnsigned(-1L, radix);
+            this.lastDigit = (int) Long.remainderUnsigned(-1L, radix);
+        }
+
+        public int getRadix() {
+            return radix;
+        }
+
+        /**
+         * 把 value 写在 buffer[.., end) 的末尾（从低位向高位），返回起始下标。
+         * buffer 在 end 之前至少要有 {@link #MAX_LENGTH} 个字符的空间。
+         */
+        public int format(long value, char[] buffer, int end) {
+            int position = end;
+            int digits = 0;
+            if (bitsPerDigit == 0) {
+                // 在负数区间内逐位取余，Long.MIN_VALUE 也不会溢出。
+                long remaining = value < 0 ? value : -value;
+                do {
+                    if (digits > 0 && digits % groupSize == 0) {
+                        buffer[--position] = separator;
+                    }
+                    long quotient = remaining / 10;
+                    buffer[--position] = DIGITS[(int) (quotient * 10 - remaining)];
+                    remaining = quotient;
+                    digits++;
+                } while (remaining != 0);
+                if (value < 0) {
+                    buffer[--position] = '-';
+                }
+                return position;
+            }
+            long mask = radix - 1;
+            long remaining = value;
+            do {
+                if (digits > 0 && digits % groupSize == 0) {
+                    buffer[--position] = separator;
+                }
+                buffer[--position] = DIGITS[(int) (remaining & mask)];
+                remaining >>>= bitsPerDigit;
+                digits++;
+            } while (remaining != 0);
+            return position;
+        }
+    }
+
+    /**
+     * 二元运算符，label 即按钮上的文字与命令名。
+     */
+    public enum Operator {
+        ADD("+"),
+        SUBTRACT("-"),
+        MULTIPLY("\u00d7"),
+        DIVIDE("\u00f7"),
+        MODULO("mod"),
+        AND("AND"),
+        OR("OR"),
+        XOR("XOR"),
+        SHIFT_LEFT("<<"),
+        SHIFT_RIGHT(">>"),
+        SHIFT_RIGHT_UNSIGNED(">>>"),
+        ROTATE_LEFT("RoL"),
+        ROTATE_RIGHT("RoR");
+
+        private static final Map<String, Operator> BY_LABEL = new HashMap<>();
+
+        static {
+            for (Operator operator : values()) {
+                BY_LABEL.put(operator.label, operator);
+            }
+        }
+
+        private final String label;
+
+        Operator(String label) {
+            this.label = label;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        /**
+         * 按钮文字 → 运算符；无法识别时返回 null。
+         */
+        public static Operator fromLabel(String label) {
+            return BY_LABEL.get(label);
+        }
+
+        /**
+         * 移位次数必须非负：左移与无符号右移 64 位及以上得到 0，有符号右移得到符号位，
+         * 而不是像 Java 的移位运算那样只取低 6 位；循环移位按 64 取模。
+         *
+         * @throws ArithmeticException 除数为 0，或移位次数为负，消息与 {@link CalculatorModel} 的错误显示一致
+         */
+        long apply(long left, long right) {
+            switch (this) {
+                case ADD:
+                    return left + right;
+                case SUBTRACT:
+                    return left - right;
+                case MULTIPLY:
+                    return left * right;
+                case DIVIDE:
+                    if (right == 0) {
+                        throw new ArithmeticException("Cannot divide by zero");
+                    }
+                    return left / right;
+                case MODULO:
+                    if (right == 0) {
+                        throw new ArithmeticException("Cannot divide by zero");
+                    }
+                    return left % right;
+                case AND:
+                    return left & right;
+                case OR:
+                    return left | right;
+                case XOR:
+                    return left ^ right;
+                case SHIFT_LEFT:
+                    return right >= Long.SIZE ? 0 : left << shiftCount(right);
+                case SHIFT_RIGHT:
+                    return left >> Math.min(shiftCount(right), Long.SIZE - 1);
+                case SHIFT_RIGHT_UNSIGNED:
+                    return right >= Long.SIZE ? 0 : left >>> shiftCount(right);
+                case ROTATE_LEFT:
+                    return Long.rotateLeft(left, (int) (shiftCount(right) & (Long.SIZE - 1)));
+                case ROTATE_RIGHT:
+                    return Long.rotateRight(left, (int) (shiftCount(right) & (Long.SIZE - 1)));
+                default:
+                    throw new IllegalStateException("Unsupported operator: " + this);
+            }
+        }
+
+        private static long shiftCount(long count) {
+            if (count < 0) {
+                throw new ArithmeticException("Invalid input");
+            }
+            return count;
+        }
+    }
+
+    /**
+     * 模型内部 char[] 的只读视图，内容位于 [start, chars.length)。
+     * 视图本身可以长期持有，但内容只在下一次读取同一显示之前有效；需要保存时调用 toString()。
+     */
+    public static final class Display implements CharSequence {
+        private final char[] chars;
+        private int start;
+
+        Display(int capacity) {
+            chars = new char[capacity];
+            start = capacity;
+        }
+
+        @Override
+        public int length() {
+            return chars.length - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars[start + index];
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return new String(chars, start + from, to - from);
+        }
+
+        @Override
+        public String toString() {
+            return new String(chars, start, length());
+        }
+
+        private void clear() {
+            start = chars.length;
+        }
+
+        private void prepend(char c) {
+            chars[--start] = c;
+        }
+
+        private void prepend(String text) {
+            start -= text.length();
+            text.getChars(0, text.length(), chars, start);
+        }
+
+        private void prepend(long value, Radix radix) {
+            start = radix.format(value, chars, start);
+        }
+    }
+
+    /**
+     * 一个数的最长显示：64 位二进制加 15 个分组空格。
+     */
+    public static final int MAX_LENGTH = 80;
+
+    private Radix radix = Radix.DEC;
+    // value 即主显示区的数：正在输入的数或最近一次运算的结果。
+    private long value;
+    private long accumulator;
+    private Operator pendingOperator;
+    private boolean resetInputOnNextDigit = true;
+    private String errorMessage;
+    // 历史显示区的内容：按运算符后是 "左 op"，按等号后是 "左 op 右 ="。
+    private Operator historyOperator;
+    private long historyLeft;
+    private long historyRight;
+    private boolean historyEvaluated;
+
+    private final Display[] displays = new Display[Radix.values().length];
+    private final Display historyDisplay = new Display(2 * MAX_LENGTH + 16);
+
+    public ProgrammerModel() {
+        for (int i = 0; i < displays.length; i++) {
+            displays[i] = new Display(MAX_LENGTH);
+        }
+    }
+
+    /**
+     * 输入一位数字（0-15）；不小于当前进制的数字被忽略，追加后会超出 64 位的数字同样被忽略。
+     * 十进制输入的是有符号数，十六/八/二进制输入的是 64 位无符号位模式。
+     */
+    public void inputDigit(int digit) {
+        if (digit < 0 || digit > 15) {
+            throw new IllegalArgumentException("Digit must be between 0 and 15");
+        }
+        if (isErrorState() || digit >= radix.radix) {
+            return;
+        }
+        if (resetInputOnNextDigit) {
+            value = 0;
+            resetInputOnNextDigit = false;
+        }
+        if (radix == Radix.DEC) {
+            // 负数（先按 +/- 再继续输入）向负方向追加。
+            if (value >= 0 ? value > (Long.MAX_VALUE - digit) / 10 : value < (Long.MIN_VALUE + digit) / 10) {
+                return;
+            }
+            value = value >= 0 ? value * 10 + digit : value * 10 - digit;
+            return;
+        }
+        int compare = Long.compareUnsigned(value, radix.inputLimit);
+        if (compare > 0 || (compare == 0 && digit > radix.lastDigit)) {
+            return;
+        }
+        value = (value << radix.bitsPerDigit) | digit;
+    }
+
+    /**
+     * 应用二元运算符，规则与 {@link CalculatorModel#applyBinaryOperator} 相同（立即执行、连按只替换运算符）。
+     */
+    public void applyOperator(Operator operator) {
+        if (operator == null) {
+            throw new IllegalArgumentException("Operator cannot be null");
+        }
+        if (isErrorState()) {
+            return;
+        }
+        if (pendingOperator != null && !resetInputOnNextDigit) {
+            try {
+                accumulator = pendingOperator.apply(accumulator, value);
+            } catch (ArithmeticException ex) {
+                errorMessage = ex.getMessage();
+                return;
+            }
+            value = accumulator;
+        } else if (pendingOperator == null) {
+            accumulator = value;
+        }
+        pendingOperator = operator;
+        historyOperator = operator;
+        historyLeft = accumulator;
+        historyEvaluated = false;
+        resetInputOnNextDigit = true;
+    }
+
+    /**
+     * 按下等号：执行待执行的运算，没有运算符时只清除历史显示。
+     */
+    public void evaluate() {
+        if (isErrorState()) {
+            return;
+        }
+        if (pendingOperator == null) {
+            historyOperator = null;
+            return;
+        }
+        long result;
+        try {
+            result = pendingOperator.apply(accumulator, value);
+        } catch (ArithmeticException ex) {
+            errorMessage = ex.getMessage();
+            return;
+        }
+        historyOperator = pendingOperator;
+        historyLeft = accumulator;
+        historyRight = value;
+        historyEvaluated = true;
+        value = result;
+        accumulator = result;
+        pendingOperator = null;
+        resetInputOnNextDigit = true;
+    }
+
+    /**
+     * 按位取反。
+     */
+    public void not() {
+        if (isErrorState()) {
+            return;
+        }
+        value = ~value;
+        resetInputOnNextDigit = true;
+    }
+
+    /**
+     * 取相反数（补码），之后继续输入的数字接在负数后面。
+     */
+    public void negate() {
+        if (isErrorState()) {
+            return;
+        }
+        value = -value;
+        resetInputOnNextDigit = false;
+    }
+
+    /**
+     * CE：清空当前输入；错误状态下等同于全部清除。
+     */
+    public void clearEntry() {
+        if (isErrorState()) {
+            clearAll();
+            return;
+        }
+        value = 0;
+        resetInputOnNextDigit = false;
+    }
+
+    public void clearAll() {
+        value = 0;
+        accumulator = 0;
+        pendingOperator = null;
+        historyOperator = null;
+        errorMessage = null;
+        resetInputOnNextDigit = true;
+    }
+
+    /**
+     * 退格：去掉当前进制下的最后一位；刚执行完运算时回到 0。
+     */
+    public void backspace() {
+        if (isErrorState()) {
+            return;
+        }
+        if (resetInputOnNextDigit) {
+            value = 0;
+            resetInputOnNextDigit = false;
+            return;
+        }
+        value = radix == Radix.DEC ? value / 10 : value >>> radix.bitsPerDigit;
+    }
+
+    /**
+     * 切换显示与输入的进制，值保持不变；正在输入的数可以在新进制下继续追加数字。
+     */
+    public void setRadix(Radix radix) {
+        if (radix == null) {
+            throw new IllegalArgumentException("Radix cannot be null");
+        }
+        this.radix = radix;
+    }
+
+    public Radix getRadix() {
+        return radix;
+    }
+
+    public long getValue() {
+        return value;
+    }
+
+    /**
+     * 直接设置当前值（例如从剪贴板粘贴），之后输入数字会开始一个新的数。
+     */
+    public void setValue(long value) {
+        if (isErrorState()) {
+            return;
+        }
+        this.value = value;
+        resetInputOnNextDigit = true;
+    }
+
+    public boolean isErrorState() {
+        return errorMessage != null;
+    }
+
+    /**
+     * 主显示区：当前进制下的当前值，错误时是错误消息。
+     */
+    public Display getDisplay() {
+        if (isErrorState()) {
+            Display display = displays[radix.ordinal()];
+            display.clear();
+            display.prepend(errorMessage);
+            return display;
+        }
+        return getDisplay(radix);
+    }
+
+    /**
+     * 当前值在指定进制下的显示，供界面同时列出四种进制；错误状态下同样显示数值。
+     */
+    public Display getDisplay(Radix radix) {
+        Display display = displays[radix.ordinal()];
+        display.clear();
+        display.prepend(value, radix);
+        return display;
+    }
+
+    /**
+     * 历史显示区，数值按当前进制显示；错误时为空。
+     */
+    public Display getHistoryDisplay() {
+        Display display = historyDisplay;
+        display.clear();
+        if (isErrorState() || historyOperator == null) {
+            return display;
+        }
+        if (historyEvaluated) {
+            display.prepend(" =");
+            display.prepend(historyRight, radix);
+            display.prepend(' ');
+        }
+        display.prepend(historyOperator.label);
+        display.prepend(' ');
+        display.prepend(historyLeft, radix);
+        return display;
+    }
+}
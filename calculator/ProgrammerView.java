@@ -0,0 +1,318 @@
+package calculator;
+
+import javax.swing.Action;
+import javax.swing.BorderFactory;
+import javax.swing.JComponent;
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Cursor;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.GridLayout;
+import java.awt.Insets;
+import java.awt.RenderingHints;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 程序员模式窗口：历史行、主显示行、HEX/DEC/OCT/BIN 四行同时显示同一个值（点击切换进制），下方是按键区。
+ * 显示行把文字复制进自己的 char[] 后用 drawChars 绘制，刷新显示不创建 String。
+ * 与主窗口一样只负责布局与绘制，命令由 {@link ProgrammerController} 分派。
+ */
+public class ProgrammerView extends JFrame {
+
+    private static final Color WINDOW_BACKGROUND = new Color(0x1f1f1f);
+    private static final Color DISPLAY_BACKGROUND = new Color(0x181818);
+    private static final Color PRIMARY_TEXT = new Color(0xf5f5f5);
+    private static final Color SECONDARY_TEXT = new Color(0xbfbfbf);
+    private static final Color ACCENT_COLOR = new Color(0x2196f3);
+    private static final Color DIGIT_COLOR = new Color(0x2d2d2d);
+    private static final Color FUNCTION_COLOR = new Color(0x252525);
+    private static final Color OPERATOR_COLOR = new Color(0x3c3c3c);
+
+    private static final Font PRIMARY_DISPLAY_FONT = new Font(Font.MONOSPACED, Font.BOLD, 32);
+    private static final Font SECONDARY_DISPLAY_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 16);
+    private static final Font RADIX_FONT = new Font(Font.MONOSPACED, Font.PLAIN, 14);
+    private static final Font BUTTON_FONT = new Font("Segoe UI", Font.PLAIN, 16);
+    private static final Insets BUTTON_INSETS = new Insets(3, 3, 3, 3);
+    private static final int BUTTON_CORNER_RADIUS = 10;
+
+    private final DisplayLine historyLine = new DisplayLine(null, SECONDARY_DISPLAY_FONT, SECONDARY_TEXT);
+    private final DisplayLine mainLine = new DisplayLine(null, PRIMARY_DISPLAY_FONT, PRIMARY_TEXT);
+    private final Map<ProgrammerModel.Radix, DisplayLine> radixLines = new EnumMap<>(ProgrammerModel.Radix.class);
+    private final Map<String, CalculatorView.RoundedButton> buttonMap = new LinkedHashMap<>();
+    // 下标即数字值的 0-F 数字键，切换进制时按下标启用/禁用。
+    private final CalculatorView.RoundedButton[] digitButtons = new CalculatorView.RoundedButton[16];
+
+    public ProgrammerView() {
+        super("Programmer");
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+        setMinimumSize(new Dimension(560, 600));
+
+        JPanel display = new JPanel(new GridLayout(0, 1, 0, 2));
+        display.setBackground(DISPLAY_BACKGROUND);
+        display.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+        display.add(historyLine);
+        display.add(mainLine);
+        for (ProgrammerModel.Radix radix : ProgrammerModel.Radix.values()) {
+            DisplayLine line = new DisplayLine(radix.name(), RADIX_FONT, SECONDARY_TEXT);
+            line.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+            radixLines.put(radix, line);
+            display.add(line);
+        }
+
+        JPanel content = new JPanel(new BorderLayout(12, 12));
+        content.setBorder(BorderFactory.createEmptyBorder(12, 12, 12, 12));
+        content.setBackground(WINDOW_BACKGROUND);
+        content.add(display, BorderLayout.NORTH);
+        content.add(createButtonPanel(), BorderLayout.CENTER);
+        setContentPane(content);
+        pack();
+    }
+
+    /**
+     * 按键区的监听入口，action command 见 {@link ProgrammerCommands}。
+     */
+    public void addButtonListener(ActionListener listener) {
+        for (CalculatorView.RoundedButton button : buttonMap.values()) {
+            button.addActionListener(listener);
+        }
+    }
+
+    /**
+     * 点击某一进制行时触发，action command 为进制名（"HEX" 等）。
+     */
+    public void addRadixListener(ActionListener listener) {
+        for (DisplayLine line : radixLines.values()) {
+            line.addActionListener(listener);
+        }
+    }
+
+    public void setDisplays(CharSequence history, CharSequence current) {
+        historyLine.setText(history);
+        mainLine.setText(current);
+    }
+
+    public void setRadixDisplay(ProgrammerModel.Radix radix, CharSequence text) {
+        radixLines.get(radix).setText(text);
+    }
+
+    /**
+     * 高亮当前进制，并禁用该进制下不可用的数字键。
+     */
+    public void setRadix(ProgrammerModel.Radix radix) {
+        for (Map.Entry<ProgrammerModel.Radix, DisplayLine> entry : radixLines.entrySet()) {
+            entry.getValue().setSelected(entry.getKey() == radix);
+        }
+        for (int digit = 0; digit < digitButtons.length; digit++) {
+            digitButtons[digit].setEnabled(digit < radix.getRadix());
+        }
+    }
+
+    /**
+     * 与主窗口相同的快捷键注册方式：根窗体的 InputMap/ActionMap。
+     */
+    public void registerKeyAction(String actionName, KeyStroke keyStroke, Action action) {
+        JComponent root = getRootPane();
+        root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(keyStroke, actionName);
+        root.getActionMap().put(actionName, action);
+    }
+
+    /**
+     * 6 列按键：上两行是位运算与移位，左两列是十六进制数字，右侧与标准键盘相同。
+     */
+    private JPanel createButtonPanel() {
+        JPanel panel = new JPanel(new GridBagLayout());
+        panel.setOpaque(false);
+
+        addButton(panel, "AND", "AND", OPERATOR_COLOR, 0, 0, 1);
+        addButton(panel, "OR", "OR", OPERATOR_COLOR, 1, 0, 1);
+        addButton(panel, "XOR", "XOR", OPERATOR_COLOR, 2, 0, 1);
+        addButton(panel, "NOT", "NOT", FUNCTION_COLOR, 3, 0, 1);
+        addButton(panel, "<<", "<<", OPERATOR_COLOR, 4, 0, 1);
+        addButton(panel, ">>", ">>", OPERATOR_COLOR, 5, 0, 1);
+
+        addButton(panel, ">>>", ">>>", OPERATOR_COLOR, 0, 1, 1);
+        addButton(panel, "RoL", "RoL", OPERATOR_COLOR, 1, 1, 1);
+        addButton(panel, "RoR", "RoR", OPERATOR_COLOR, 2, 1, 1);
+        addButton(panel, "mod", "mod", OPERATOR_COLOR, 3, 1, 1);
+        addButton(panel, "CE", "CE", FUNCTION_COLOR, 4, 1, 1);
+        addButton(panel, "\u2190", "\u2190", FUNCTION_COLOR, 5, 1, 1);
+
+        addButton(panel, "A", "A", DIGIT_COLOR, 0, 2, 1);
+        addButton(panel, "B", "B", DIGIT_COLOR, 1, 2, 1);
+        addButton(panel, "7", "7", DIGIT_COLOR, 2, 2, 1);
+        addButton(panel, "8", "8", DIGIT_COLOR, 3, 2, 1);
+        addButton(panel, "9", "9", DIGIT_COLOR, 4, 2, 1);
+        addButton(panel, "\u00f7", "\u00f7", OPERATOR_COLOR, 5, 2, 1);
+
+        addButton(panel, "C", "C", DIGIT_COLOR, 0, 3, 1);
+        addButton(panel, "D", "D", DIGIT_COLOR, 1, 3, 1);
+        addButton(panel, "4", "4", DIGIT_COLOR, 2, 3, 1);
+        addButton(panel, "5", "5", DIGIT_COLOR, 3, 3, 1);
+        addButton(panel, "6", "6", DIGIT_COLOR, 4, 3, 1);
+        addButton(panel, "\u00d7", "\u00d7", OPERATOR_COLOR, 5, 3, 1);
+
+        addButton(panel, "E", "E", DIGIT_COLOR, 0, 4, 1);
+        addButton(panel, "F", "F", DIGIT_COLOR, 1, 4, 1);
+        addButton(panel, "1", "1", DIGIT_COLOR, 2, 4, 1);
+        addButton(panel, "2", "2", DIGIT_COLOR, 3, 4, 1);
+        addButton(panel, "3", "3", DIGIT_COLOR, 4, 4, 1);
+        addButton(panel, "-", "-", OPERATOR_COLOR, 5, 4, 1);
+
+        // "C" 已经是十六进制数字键，全部清除用 "CLR"。
+        addButton(panel, "CLR", ProgrammerCommands.CLEAR_ALL, FUNCTION_COLOR, 0, 5, 1);
+        addButton(panel, "+/-", "+/-", FUNCTION_COLOR, 1, 5, 1);
+        addButton(panel, "0", "0", DIGIT_COLOR, 2, 5, 2);
+        addButton(panel, "=", "=", ACCENT_COLOR, 4, 5, 1);
+        addButton(panel, "+", "+", OPERATOR_COLOR, 5, 5, 1);
+        return panel;
+    }
+
+    private void addButton(JPanel panel, String label, String command, Color base,
+                           int gridX, int gridY, int gridWidth) {
+        CalculatorView.RoundedButton button = new CalculatorView.RoundedButton(label, BUTTON_CORNER_RADIUS);
+        button.setFont(BUTTON_FONT);
+        button.setForeground(base == FUNCTION_COLOR ? SECONDARY_TEXT : Color.WHITE);
+        button.setColors(base, adjustColor(base, 12), adjustColor(base, -20));
+        button.setActionCommand(command);
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = gridX;
+        gbc.gridy = gridY;
+        gbc.gridwidth = gridWidth;
+        gbc.insets = BUTTON_INSETS;
+        gbc.fill = GridBagConstraints.BOTH;
+        gbc.weightx = gridWidth;
+        gbc.weighty = 1;
+        panel.add(button, gbc);
+        buttonMap.put(command, button);
+        int digit = command.length() == 1 ? Character.digit(command.charAt(0), 16) : -1;
+        if (digit >= 0) {
+            digitButtons[digit] = button;
+        }
+    }
+
+    private static Color adjustColor(Color color, int delta) {
+        return new Color(clamp(color.getRed() + delta), clamp(color.getGreen() + delta),
+                clamp(color.getBlue() + delta));
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    /**
+     * 一行右对齐的显示文字，可带左侧的进制标签；文字保存在复用的 char[] 中，直接用 drawChars 绘制。
+     * 文字放不下时（例如 64 位二进制）改用进制行的小字体，仍放不下则截去左侧。
+     * 带标签的行可以点击，点击时以标签为 action command 通知监听器。
+     */
+    private static final class DisplayLine extends JComponent {
+        private final String prefix;
+        private final Color textColor;
+        private char[] text = new char[ProgrammerModel.MAX_LENGTH];
+        private int length;
+        private boolean selected;
+        private ActionListener listeners;
+
+        DisplayLine(String prefix, Font font, Color textColor) {
+            this.prefix = prefix;
+            this.textColor = textColor;
+            setFont(font);
+            if (prefix != null) {
+                addMouseListener(new MouseAdapter() {
+                    @Override
+                    public void mouseClicked(MouseEvent e) {
+                        if (listeners != null) {
+                            listeners.actionPerformed(new ActionEvent(DisplayLine.this,
+                                    ActionEvent.ACTION_PERFORMED, DisplayLine.this.prefix));
+                        }
+                    }
+                });
+            }
+        }
+
+        void addActionListener(ActionListener listener) {
+            ActionListener previous = listeners;
+            listeners = previous == null ? listener : e -> {
+                previous.actionPerformed(e);
+                listener.actionPerformed(e);
+            };
+        }
+
+        /**
+         * 复制文字；与当前内容相同时不重绘。
+         */
+        void setText(CharSequence value) {
+            int newLength = value.length();
+            boolean changed = newLength != length;
+            if (newLength > text.length) {
+                text = new char[newLength];
+            }
+            for (int i = 0; i < newLength; i++) {
+                char c = value.charAt(i);
+                if (!changed && text[i] != c) {
+                    changed = true;
+                }
+                text[i] = c;
+            }
+            length = newLength;
+            if (changed) {
+                repaint();
+            }
+        }
+
+        void setSelected(boolean selected) {
+            if (this.selected != selected) {
+                this.selected = selected;
+                repaint();
+            }
+        }
+
+        /**
+         * 宽度按小字体容纳一个最长的数（带进制标签），高度按本行字体。
+         */
+        @Override
+        public Dimension getPreferredSize() {
+            FontMetrics compact = getFontMetrics(RADIX_FONT);
+            return new Dimension(compact.charWidth('0') * (ProgrammerModel.MAX_LENGTH + 6),
+                    getFontMetrics(getFont()).getHeight() + 4);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Graphics2D g2 = (Graphics2D) g;
+            g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+            FontMetrics metrics = g2.getFontMetrics(getFont());
+            int width = metrics.charsWidth(text, 0, length);
+            if (width > getWidth() && getFont() != RADIX_FONT) {
+                metrics = g2.getFontMetrics(RADIX_FONT);
+                width = metrics.charsWidth(text, 0, length);
+            }
+            g2.setFont(metrics.getFont());
+            int baseline = (getHeight() - metrics.getHeight()) / 2 + metrics.getAscent();
+            if (prefix != null) {
+                if (selected) {
+                    g2.setColor(ACCENT_COLOR);
+                    g2.fillRect(0, 2, 3, getHeight() - 4);
+                }
+                g2.setColor(selected ? PRIMARY_TEXT : SECONDARY_TEXT);
+                g2.drawString(prefix, 8, baseline);
+            }
+            g2.setColor(selected ? PRIMARY_TEXT : textColor);
+            g2.drawChars(text, 0, length, getWidth() - width, baseline);
+        }
+    }
+}
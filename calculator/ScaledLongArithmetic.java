@@ -0,0 +1,189 @@
+package calculator;
+
+import java.math.BigDecimal;
+
+/**
+ * 四则运算的“定点 long 快速路径”。
+ * 一个十进制数表示为 unscaled × 10^-scale，并打包进单个 long：
+ * 高 59 位存放带符号的 unscaled，低 5 位存放 scale（0..31）。
+ * 只要结果的有效位数不超过 16 位，它与 BigDecimal 在 16 位 MathContext 下的结果数值完全相同；
+ * 任何可能溢出或需要舍入的情况都返回 {@link #NOT_PACKED}，由调用方回退到 BigDecimal。
+ * 所有方法都只操作基本类型，不产生任何对象分配。
+ */
+final class ScaledLongArithmetic {
+
+    /**
+     * 表示“无法用快速路径精确表示”的哨兵值；合法的打包值绝不会等于它。
+     */
+    static final long NOT_PACKED = Long.MIN_VALUE;
+
+    /**
+     * 快速路径结果允许的最大有效位数，与计算器的默认显示精度一致。
+     */
+    static final int MAX_DIGITS = 16;
+
+    static final int MAX_SCALE = 31;
+
+    private static final int SCALE_BITS = 5;
+    private static final long SCALE_MASK = (1L << SCALE_BITS) - 1;
+    // 10^16 - 1：超过它就不再是 16 位以内的精确值。
+    private static final long MAX_UNSCALED = 9_999_999_999_999_999L;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L,
+            100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L,
+            1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L,
+            1_000_000_000_000_000_000L
+    };
+
+    private ScaledLongArithmetic() {
+    }
+
+    /**
+     * 打包 unscaled/scale：先去掉多余的尾随 0，再检查位数与 scale 范围。
+     */
+    static long pack(long unscaled, int scale) {
+        while ((scale > MAX_SCALE || unscaled > MAX_UNSCALED || unscaled < -MAX_UNSCALED)
+                && scale > 0 && unscaled % 10 == 0) {
+            unscaled /= 10;
+            scale--;
+        }
+        if (scale < 0) {
+            if (-scale >= POWERS_OF_TEN.length) {
+                return NOT_PACKED;
+            }
+            long factor = POWERS_OF_TEN[-scale];
+            if (Math.abs(unscaled) > MAX_UNSCALED / factor) {
+                return NOT_PACKED;
+            }
+            unscaled *= factor;
+            scale = 0;
+        }
+        if (scale > MAX_SCALE || unscaled > MAX_UNSCALED || unscaled < -MAX_UNSCALED) {
+            return NOT_PACKED;
+        }
+        return (unscaled << SCALE_BITS) | scale;
+    }
+
+    static long unscaled(long packed) {
+        return packed >> SCALE_BITS;
+    }
+
+    static int scale(long packed) {
+        return (int) (packed & SCALE_MASK);
+    }
+
+    /**
+     * BigDecimal → 打包值；有效位数过多或 scale 超界时返回 NOT_PACKED。
+     * scale 为 0 时 longValue() 直接读取内部紧凑值，不会分配对象。
+     */
+    static long fromBigDecimal(BigDecimal value) {
+        if (value.precision() > MAX_DIGITS) {
+            return NOT_PACKED;
+        }
+        long unscaled = value.scale() == 0 ? value.longValue() : value.unscaledValue().longValue();
+        return pack(unscaled, value.scale());
+    }
+
+    static BigDecimal toBigDecimal(long packed) {
+        return BigDecimal.valueOf(unscaled(packed), scale(packed));
+    }
+
+    static long add(long left, long right) {
+        int leftScale = scale(left);
+        int rightScale = scale(right);
+        int scale = Math.max(leftScale, rightScale);
+        long a = rescale(unscaled(left), scale - leftScale);
+        long b = rescale(unscaled(right), scale - rightScale);
+        if (a == NOT_PACKED || b == NOT_PACKED) {
+            return NOT_PACKED;
+        }
+        // 两个操作数都小于 2^60，和不会溢出 long。
+        return pack(a + b, scale);
+    }
+
+    static long subtract(long left, long right) {
+        return add(left, negate(right));
+    }
+
+    static long negate(long packed) {
+        return ((-unscaled(packed)) << SCALE_BITS) | scale(packed);
+    }
+
+    static long multiply(long left, long right) {
+        long a = unscaled(left);
+        long b = unscaled(right);
+        if (a != 0 && Math.abs(b) > Long.MAX_VALUE / Math.abs(a)) {
+            return NOT_PACKED;
+        }
+        return pack(a * b, scale(left) + scale(right));
+    }
+
+    /**
+     * 只有商是有限小数且不超过 16 位时才走快速路径：
+     * 约分后的分母只能含有因子 2 和 5，否则（如 1/3）直接回退。
+     * 调用方负责在此之前处理除数为 0 的情况。
+     */
+    static long divide(long left, long right) {
+        long a = unscaled(left);
+        long b = unscaled(right);
+        if (b == 0) {
+            return NOT_PACKED;
+        }
+        if (a == 0) {
+            return 0L;
+        }
+        long gcd = gcd(Math.abs(a), Math.abs(b));
+        long numerator = a / gcd;
+        long denominator = b / gcd;
+        if (denominator < 0) {
+            numerator = -numerator;
+            denominator = -denominator;
+        }
+        int twos = 0;
+        int fives = 0;
+        long rest = denominator;
+        while ((rest & 1) == 0) {
+            rest >>= 1;
+            twos++;
+        }
+        while (rest % 5 == 0) {
+            rest /= 5;
+            fives++;
+        }
+        if (rest != 1) {
+            return NOT_PACKED;
+        }
+        // numerator / (2^twos * 5^fives) = numerator * (10^k / denominator) / 10^k
+        int k = Math.max(twos, fives);
+        if (k >= POWERS_OF_TEN.length) {
+            return NOT_PACKED;
+        }
+        long multiplier = POWERS_OF_TEN[k] / denominator;
+        if (Math.abs(numerator) > Long.MAX_VALUE / multiplier) {
+            return NOT_PACKED;
+        }
+        return pack(numerator * multiplier, scale(left) - scale(right) + k);
+    }
+
+    private static long rescale(long unscaled, int extraScale) {
+        if (extraScale >= POWERS_OF_TEN.length) {
+            return NOT_PACKED;
+        }
+        long factor = POWERS_OF_TEN[extraScale];
+        if (Math.abs(unscaled) > Long.MAX_VALUE / 2 / factor) {
+            return NOT_PACKED;
+        }
+        return unscaled * factor;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,60 @@
+package calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.function.Supplier;
+
+/**
+ * 平方根基准测试：对比旧的“全精度牛顿迭代”与新的精度翻倍算法（{@link BigDecimalMath#sqrt}）。
+ * 运行方式：java -cp out calculator.SqrtBenchmark [被开方数]
+ * 对每个精度先预热再计时（见 {@link MicroBenchmark}），输出每次调用的平均耗时、加速比以及两种算法的结果是否一致。
+ */
+public final class SqrtBenchmark {
+
+    private static final int[] PRECISIONS = {16, 64, 256, 1_000, 4_000, 10_000};
+    // 旧算法可能在末位来回振荡，这里为基准测试加一个上限，避免永不结束。
+    private static final int LEGACY_MAX_ITERATIONS = 1_000;
+
+    private SqrtBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        BigDecimal value = new BigDecimal(args.length > 0 ? args[0] : "2");
+        System.out.printf("sqrt(%s)%n", value.toPlainString());
+        System.out.printf("%8s %14s %14s %9s %6s%n", "digits", "legacy ms/op", "doubling ms/op", "speedup", "same");
+        for (int digits : PRECISIONS) {
+            MathContext mc = new MathContext(digits, RoundingMode.HALF_UP);
+            double legacy = measure("legacy@" + digits, () -> legacySqrt(value, mc));
+            double doubling = measure("doubling@" + digits, () -> BigDecimalMath.sqrt(value, mc, null));
+            boolean same = legacySqrt(value, mc).compareTo(BigDecimalMath.sqrt(value, mc, null)) == 0;
+            System.out.printf("%8d %14.4f %14.4f %8.1fx %6s%n",
+                    digits, legacy, doubling, legacy / doubling, same ? "yes" : "no");
+        }
+    }
+
+    /**
+     * 使用 {@link MicroBenchmark} 的预热/测量流程，返回每次调用的平均毫秒数。
+     */
+    private static double measure(String name, Supplier<BigDecimal> task) {
+        return 1_000.0 / MicroBenchmark.run(name, task).getOpsPerSecond();
+    }
+
+    /**
+     * 旧实现的原样拷贝（仅增加迭代上限）：每一步都在目标精度下做除法，直到两次结果相等。
+     */
+    static BigDecimal legacySqrt(BigDecimal value, MathContext mc) {
+        if (value.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        BigDecimal guess = new BigDecimal(Math.sqrt(value.doubleValue()), mc);
+        BigDecimal previous;
+        int iterations = 0;
+        do {
+            previous = guess;
+            guess = guess.add(value.divide(guess, mc))
+                    .divide(BigDecimal.valueOf(2), mc);
+        } while (!guess.equals(previous) && ++iterations < LEGACY_MAX_ITERATIONS);
+        return guess;
+    }
+}
@@ -0,0 +1,432 @@
+package calculator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * 统计模式的在线累加器：计数、和、均值、方差、最小值与最大值，内存占用与数据量无关。
+ * 有两种存储方式（与 {@link NumericColumn} 相同的划分）：
+ * - 近似：全部是 double 字段，均值与二阶中心矩按 Welford 公式逐个更新，和用 Neumaier 补偿求和；
+ * - 精确：和与平方和是不舍入的 BigDecimal，均值与方差在读取时按分数（{@link BigRational}）计算。
+ * 在不同线程上分别累加的部分结果可以用 {@link #merge} 合并：近似方式使用 Chan 等人的两两合并公式，
+ * 精确方式只是整数与有限小数的加法，合并结果与顺序累加完全相同。
+ * 实例不是线程安全的，每个线程使用自己的实例，最后再合并。
+ */
+public final class StatisticsAccumulator {
+
+    // 解析文本时单个并行任务处理的最少字符数，约一万个数字。
+    private static final int SEQUENTIAL_CHARS = 1 << 17;
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    // 快速解析最多累积 18 位数字，保证 unscaled 不会溢出 long。
+    private static final int MAX_FAST_DIGITS = 18;
+
+    private final boolean exact;
+    private long count;
+
+    // 近似方式
+    private double mean;
+    private double m2;
+    private double sum;
+    private double sumCompensation;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+
+    // 精确方式
+    private BigDecimal exactSum = BigDecimal.ZERO;
+    private BigDecimal exactSumOfSquares = BigDecimal.ZERO;
+    private BigDecimal exactMin;
+    private BigDecimal exactMax;
+
+    public StatisticsAccumulator(boolean exact) {
+        this.exact = exact;
+    }
+
+    /**
+     * 同种方式、相同数据的独立副本，O(1)。
+     */
+    public StatisticsAccumulator copy() {
+        StatisticsAccumulator copy = new StatisticsAccumulator(exact);
+        copy.merge(this);
+        return copy;
+    }
+
+    /**
+     * 解析一段文本中的所有数字：以空白、逗号或分号分隔，接受 "-12.5"、"1e-3" 这类写法。
+     * 文本较长时切成若干段在公共 fork-join 池里并行解析，各段的结果再合并。
+     * 任务检查调用线程的中断状态，调用线程被中断时抛出 CancellationException。
+     *
+     * @throws IllegalArgumentException 某个记号不是数字
+     */
+    public static StatisticsAccumulator parse(CharSequence text, boolean exact) {
+        char[] chars = text.toString().toCharArray();
+        return new ParseTask(chars, 0, chars.length, exact, Thread.currentThread()).invoke();
+    }
+
+    /**
+     * 从字符流逐块读取并累加，只占用一个读缓冲区，适合大文件；分隔规则同 {@link #parse}。
+     *
+     * @throws IllegalArgumentException 某个记号不是数字
+     */
+    public static StatisticsAccumulator read(Reader in, boolean exact) throws IOException {
+        StatisticsAccumulator statistics = new StatisticsAccumulator(exact);
+        char[] buffer = new char[READ_BUFFER_SIZE];
+        int length = 0;
+        int read;
+        while ((read = in.read(buffer, length, buffer.length - length)) >= 0) {
+            checkCancelled(Thread.currentThread());
+            length += read;
+            // 缓冲区末尾可能是半个数字，只解析到最后一个分隔符，剩下的部分移到开头。
+            int end = length;
+            while (end > 0 && !isSeparator(buffer[end - 1])) {
+                end--;
+            }
+            if (end == 0 && length == buffer.length) {
+                // 一个记号就占满了缓冲区。
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                continue;
+            }
+            statistics.addAll(buffer, 0, end);
+            System.arraycopy(buffer, end, buffer, 0, length - end);
+            length -= end;
+        }
+        statistics.addAll(buffer, 0, length);
+        return statistics;
+    }
+
+    public boolean isExact() {
+        return exact;
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public void add(BigDecimal value) {
+        if (exact) {
+            addExact(value);
+        } else {
+            add(value.doubleValue());
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException value 是 NaN 或无穷大
+     */
+    public void add(double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("Value out of range: " + value);
+        }
+        if (exact) {
+            addExact(BigDecimal.valueOf(value));
+            return;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        addToSum(value, 0);
+        if (value < min) {
+            min = value;
+        }
+        if (value > max) {
+            max = value;
+        }
+    }
+
+    /**
+     * 把另一个累加器的数据并入当前累加器，other 不变。
+     *
+     * @throws IllegalArgumentException 两者的存储方式不同
+     */
+    public void merge(StatisticsAccumulator other) {
+        if (other.exact != exact) {
+            throw new IllegalArgumentException("Cannot merge exact and approximate statistics");
+        }
+        if (other.count == 0) {
+            return;
+        }
+        if (exact) {
+            exactSum = exactSum.add(other.exactSum);
+            exactSumOfSquares = exactSumOfSquares.add(other.exactSumOfSquares);
+            if (exactMin == null || other.exactMin.compareTo(exactMin) < 0) {
+                exactMin = other.exactMin;
+            }
+            if (exactMax == null || other.exactMax.compareTo(exactMax) > 0) {
+                exactMax = other.exactMax;
+            }
+            count += other.count;
+            return;
+        }
+        if (count == 0) {
+            mean = other.mean;
+            m2 = other.m2;
+        } else {
+            // Chan 等人的合并公式：两段均值之差乘以权重修正合并后的均值与二阶中心矩。
+            double total = (double) count + other.count;
+            double delta = other.mean - mean;
+            mean += delta * (other.count / total);
+            m2 += other.m2 + delta * delta * (count * (other.count / total));
+        }
+        count += other.count;
+        addToSum(other.sum, other.sumCompensation);
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+    }
+
+    public BigDecimal sum(MathContext mathContext) {
+        return exact ? exactSum.round(mathContext) : toBigDecimal(sum + sumCompensation, mathContext);
+    }
+
+    /**
+     * @throws ArithmeticException 没有数据
+     */
+    public BigDecimal mean(MathContext mathContext) {
+        if (exact) {
+            return exactMean().toBigDecimal(mathContext);
+        }
+        requireCount(1);
+        // 补偿求和的和比逐个更新的均值少一次舍入累积；Welford 均值只用于更新二阶中心矩。
+        return toBigDecimal((sum + sumCompensation) / count, mathContext);
+    }
+
+    /**
+     * 样本方差（除以 n - 1）。
+     *
+     * @throws ArithmeticException 数据少于两个
+     */
+    public BigDecimal variance(MathContext mathContext) {
+        if (exact) {
+            return exactVariance().toBigDecimal(mathContext);
+        }
+        requireCount(2);
+        return toBigDecimal(m2 / (count - 1), mathContext);
+    }
+
+    /**
+     * 样本标准差。
+     *
+     * @throws ArithmeticException 数据少于两个
+     */
+    public BigDecimal standardDeviation(MathContext mathContext) {
+        if (exact) {
+            return BigDecimalMath.sqrt(variance(mathContext), mathContext, null);
+        }
+        requireCount(2);
+        return toBigDecimal(Math.sqrt(m2 / (count - 1)), mathContext);
+    }
+
+    /**
+     * @throws ArithmeticException 没有数据
+     */
+    public BigDecimal min(MathContext mathContext) {
+        requireCount(1);
+        return exact ? exactMin.round(mathContext) : toBigDecimal(min, mathContext);
+    }
+
+    /**
+     * @throws ArithmeticException 没有数据
+     */
+    public BigDecimal max(MathContext mathContext) {
+        requireCount(1);
+        return exact ? exactMax.round(mathContext) : toBigDecimal(max, mathContext);
+    }
+
+    /**
+     * 精确方式下的均值 Σx / n。
+     */
+    BigRational exactMean() {
+        requireExact();
+        requireCount(1);
+        return BigRational.valueOf(exactSum).divide(BigRational.valueOf(BigDecimal.valueOf(count)));
+    }
+
+    /**
+     * 精确方式下的样本方差 (nΣx² - (Σx)²) / (n(n - 1))。
+     */
+    BigRational exactVariance() {
+        requireExact();
+        requireCount(2);
+        BigDecimal n = BigDecimal.valueOf(count);
+        BigDecimal numerator = n.multiply(exactSumOfSquares).subtract(exactSum.multiply(exactSum));
+        BigInteger denominator = BigInteger.valueOf(count).multiply(BigInteger.valueOf(count - 1));
+        return BigRational.valueOf(numerator).divide(BigRational.valueOf(new BigDecimal(denominator)));
+    }
+
+    @Override
+    public String toString() {
+        return "StatisticsAccumulator[n=" + count + (exact ? ", exact]" : ", double]");
+    }
+
+    private void addExact(BigDecimal value) {
+        count++;
+        exactSum = exactSum.add(value);
+        exactSumOfSquares = exactSumOfSquares.add(value.multiply(value));
+        if (exactMin == null || value.compareTo(exactMin) < 0) {
+            exactMin = value;
+        }
+        if (exactMax == null || value.compareTo(exactMax) > 0) {
+            exactMax = value;
+        }
+    }
+
+    /**
+     * Neumaier 补偿求和：把 value + compensation 加进 sum，丢失的低位累计在 sumCompensation 中。
+     */
+    private void addToSum(double value, double compensation) {
+        double total = sum + value;
+        if (Math.abs(sum) >= Math.abs(value)) {
+            sumCompensation += (sum - total) + value;
+        } else {
+            sumCompensation += (value - total) + sum;
+        }
+        sum = total;
+        sumCompensation += compensation;
+    }
+
+    /**
+     * 解析 text[from, to) 中以分隔符隔开的所有数字并逐个累加。
+     */
+    private void addAll(char[] text, int from, int to) {
+        int index = from;
+        while (index < to) {
+            while (index < to && isSeparator(text[index])) {
+                index++;
+            }
+            int start = index;
+            while (index < to && !isSeparator(text[index])) {
+                index++;
+            }
+            if (start < index) {
+                addToken(text, start, index);
+            }
+        }
+    }
+
+    /**
+     * 常见的定点小数在字符上直接累积成 unscaled/scale，超过 18 位或带指数的少数值才走 BigDecimal 解析。
+     */
+    private void addToken(char[] text, int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (text[position] == '-' || text[position] == '+') {
+            negative = text[position] == '-';
+            position++;
+        }
+        long value = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean sawDigit = false;
+        boolean point = false;
+        boolean fast = true;
+        for (; position < end && fast; position++) {
+            char c = text[position];
+            if (c >= '0' && c <= '9') {
+                sawDigit = true;
+                if (digits == MAX_FAST_DIGITS) {
+                    fast = false;
+                } else {
+                    value = value * 10 + (c - '0');
+                    if (value != 0) {
+                        digits++;
+                    }
+                    if (point) {
+                        scale++;
+                    }
+                }
+            } else if (c == '.' && !point) {
+                point = true;
+            } else {
+                fast = false;
+            }
+        }
+        if (fast && sawDigit) {
+            long signed = negative ? -value : value;
+            if (exact) {
+                addExact(BigDecimal.valueOf(signed, scale));
+            } else {
+                add(NumericColumn.toDouble(signed, scale));
+            }
+            return;
+        }
+        try {
+            add(new BigDecimal(text, start, end - start));
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid number '" + new String(text, start, end - start) + "'");
+        }
+    }
+
+    private void requireExact() {
+        if (!exact) {
+            throw new IllegalStateException("Statistics are not exact");
+        }
+    }
+
+    private void requireCount(long minimum) {
+        if (count < minimum) {
+            throw new ArithmeticException("Invalid input");
+        }
+    }
+
+    private static BigDecimal toBigDecimal(double value, MathContext mathContext) {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new ArithmeticException("Overflow");
+        }
+        return BigDecimal.valueOf(value).round(mathContext);
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ',' || c == ';' || Character.isWhitespace(c);
+    }
+
+    private static void checkCancelled(Thread caller) {
+        if (caller.isInterrupted()) {
+            throw new CancellationException("Calculation cancelled");
+        }
+    }
+
+    /**
+     * 解析 text[from, to)：区间较长时在中点附近的分隔符处切开，一半 fork 出去，一半在当前线程解析，
+     * 最后合并两个部分结果。
+     */
+    private static final class ParseTask extends RecursiveTask<StatisticsAccumulator> {
+        private final char[] text;
+        private final int from;
+        private final int to;
+        private final boolean exact;
+        private final Thread caller;
+
+        ParseTask(char[] text, int from, int to, boolean exact, Thread caller) {
+            this.text = text;
+            this.from = from;
+            this.to = to;
+            this.exact = exact;
+            this.caller = caller;
+        }
+
+        @Override
+        protected StatisticsAccumulator compute() {
+            checkCancelled(caller);
+            int middle = (from + to) >>> 1;
+            while (middle < to && !isSeparator(text[middle])) {
+                middle++;
+            }
+            if (to - from <= SEQUENTIAL_CHARS || middle == to) {
+                StatisticsAccumulator statistics = new StatisticsAccumulator(exact);
+                statistics.addAll(text, from, to);
+                return statistics;
+            }
+            ParseTask left = new ParseTask(text, from, middle, exact, caller);
+            left.fork();
+            StatisticsAccumulator right = new ParseTask(text, middle, to, exact, caller).compute();
+            StatisticsAccumulator statistics = left.join();
+            statistics.merge(right);
+            return statistics;
+        }
+    }
+}
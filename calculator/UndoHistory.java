@@ -0,0 +1,168 @@
+package calculator;
+
+import java.util.ArrayDeque;
+
+/**
+ * 撤销/重做栈，容量按估算的内存占用而不是条目数限制：
+ * - 每条记录的代价是 {@link CalculatorState#retainedBytes} 相对栈中相邻快照的增量，
+ *   共享的对象只计算一次，因此长链路中每一步通常只占一两百字节；
+ * - 超出上限时丢弃最旧的撤销记录，并把新的最旧记录按完整大小重新计价；
+ * - 不改变状态的命令（错误态下按数字等）不会产生记录，也不会清空重做栈。
+ * 所有操作都是 O(1)（丢弃旧记录时按被丢弃的条数均摊）。只在持有模型的线程上使用。
+ */
+final class UndoHistory {
+
+    // 每条记录自身的开销：Entry 对象与 ArrayDeque 中的槽位。
+    private static final int ENTRY_BYTES = 32;
+
+    private final ArrayDeque<Entry> undoStack = new ArrayDeque<>();
+    private ArrayDeque<Entry> redoStack = new ArrayDeque<>();
+    // 最近一次 record 暂存的重做栈：那条命令若什么都没改变，就原样恢复。
+    private ArrayDeque<Entry> suspendedRedo = new ArrayDeque<>();
+    private Entry pending;
+    private final long maxBytes;
+    private long usedBytes;
+
+    UndoHistory(long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Undo memory limit must be positive");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 一条命令即将修改模型：记下修改前的状态。
+     * 是否真的发生了修改要等到下一次调用时才知道（见 {@link #settle}）。
+     */
+    void record(CalculatorState before) {
+        settle(before);
+        Entry entry = push(undoStack, before);
+        pending = entry;
+        // 新命令会让重做栈失效；先暂存，确认命令确实改变了状态后再释放。
+        ArrayDeque<Entry> swap = suspendedRedo;
+        suspendedRedo = redoStack;
+        redoStack = swap;
+        trim();
+    }
+
+    /**
+     * 撤销一步：返回要恢复的状态并把 current 压入重做栈；没有可撤销的记录时返回 null。
+     */
+    CalculatorState undo(CalculatorState current) {
+        settle(current);
+        Entry entry = undoStack.pollLast();
+        if (entry == null) {
+            return null;
+        }
+        usedBytes -= entry.bytes;
+        push(redoStack, current);
+        trim();
+        return entry.state;
+    }
+
+    /**
+     * 重做一步：返回要恢复的状态并把 current 压回撤销栈；没有可重做的记录时返回 null。
+     */
+    CalculatorState redo(CalculatorState current) {
+        settle(current);
+        Entry entry = redoStack.pollLast();
+        if (entry == null) {
+            return null;
+        }
+        usedBytes -= entry.bytes;
+        push(undoStack, current);
+        trim();
+        return entry.state;
+    }
+
+    boolean canUndo(CalculatorState current) {
+        settle(current);
+        return !undoStack.isEmpty();
+    }
+
+    boolean canRedo(CalculatorState current) {
+        settle(current);
+        return !redoStack.isEmpty();
+    }
+
+    int undoDepth() {
+        return undoStack.size();
+    }
+
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * 结算上一次 record：若当前状态与记录的“修改前”状态相同，说明那条命令什么都没做，
+     * 撤掉这条记录并恢复暂存的重做栈；否则释放暂存的重做栈。
+     */
+    private void settle(CalculatorState current) {
+        if (pending == null) {
+            return;
+        }
+        if (pending.state.sameAs(current) && undoStack.peekLast() == pending) {
+            undoStack.pollLast();
+            usedBytes -= pending.bytes;
+            ArrayDeque<Entry> swap = redoStack;
+            redoStack = suspendedRedo;
+            suspendedRedo = swap;
+        }
+        usedBytes -= totalBytes(suspendedRedo);
+        suspendedRedo.clear();
+        pending = null;
+    }
+
+    private Entry push(ArrayDeque<Entry> stack, CalculatorState state) {
+        Entry top = stack.peekLast();
+        Entry entry = new Entry(state, ENTRY_BYTES + state.retainedBytes(top == null ? null : top.state));
+        stack.addLast(entry);
+        usedBytes += entry.bytes;
+        return entry;
+    }
+
+    /**
+     * 超出内存上限时先丢最旧的撤销记录，撤销栈空了再丢最远的重做记录；最近的一步总是保留。
+     */
+    private void trim() {
+        while (usedBytes > maxBytes && undoStack.size() > 1) {
+            dropOldest(undoStack);
+        }
+        while (usedBytes > maxBytes && redoStack.size() > 1) {
+            dropOldest(redoStack);
+        }
+    }
+
+    private void dropOldest(ArrayDeque<Entry> stack) {
+        Entry dropped = stack.pollFirst();
+        usedBytes -= dropped.bytes;
+        if (dropped == pending) {
+            pending = null;
+        }
+        Entry oldest = stack.peekFirst();
+        if (oldest != null) {
+            // 原先与被丢弃快照共享的对象现在只由它保留，改按完整大小计价。
+            long full = ENTRY_BYTES + oldest.state.retainedBytes(null);
+            usedBytes += full - oldest.bytes;
+            oldest.bytes = full;
+        }
+    }
+
+    private static long totalBytes(ArrayDeque<Entry> stack) {
+        long total = 0;
+        for (Entry entry : stack) {
+            total += entry.bytes;
+        }
+        return total;
+    }
+
+    private static final class Entry {
+        final CalculatorState state;
+        long bytes;
+
+        Entry(CalculatorState state, long bytes) {
+            this.state = state;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package calculator;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * “每个任务一个线程”的执行器工厂：
+ * - 运行在 Java 21+ 上时通过反射取得 {@code Executors.newVirtualThreadPerTaskExecutor()}，
+ *   上万个阻塞在套接字读写上的会话只占用少量载体线程；
+ * - 更早的 JVM（项目仍以 Java 8 为编译目标）退回到守护线程组成的可伸缩线程池，语义相同，只是每个任务占一个平台线程。
+ */
+final class VirtualThreads {
+
+    private static final Method FACTORY = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前 JVM 是否支持虚拟线程。
+     */
+    static boolean isAvailable() {
+        return FACTORY != null;
+    }
+
+    /**
+     * 创建每提交一个任务就启动一个新线程的执行器；name 仅用于回退方案中的平台线程名。
+     */
+    static ExecutorService newPerTaskExecutor(String name) {
+        if (FACTORY != null) {
+            try {
+                return (ExecutorService) FACTORY.invoke(null);
+            } catch (IllegalAccessException | InvocationTargetException ex) {
+                // 预览版 JVM 上可能未开启该特性，按不支持处理。
+            }
+        }
+        AtomicInteger sequence = new AtomicInteger();
+        return Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static Method lookupFactory() {
+        try {
+            Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            // 试创建一次：Java 19/20 上未开启预览特性时会抛出 UnsupportedOperationException。
+            ((ExecutorService) method.invoke(null)).shutdown();
+            return method;
+        } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException ex) {
+            return null;
+        }
+    }
+}